@@ -4,21 +4,18 @@ import android.os.Build;
 
 import junit.framework.TestCase;
 
-import static org.assertj.core.api.Assertions.assertThat;
-
 public class CpuArchHelperTest extends TestCase {
     
     public void testGetCpuArch() throws Exception {
         CpuArch cpuArch = CpuArchHelper.getCpuArch();
         assertNotNull(cpuArch);
-        if (Build.CPU_ABI.equals(CpuArchHelper.getx86CpuAbi()) || Build.CPU_ABI.equals(CpuArchHelper.getx86_64CpuAbi())) {
-            assertEquals(cpuArch, CpuArch.x86);
-        } else if (Build.CPU_ABI.equals(CpuArchHelper.getArmeabiv7CpuAbi())) {
-            assertEquals(cpuArch, CpuArch.ARMv7);
-        } else if (Build.CPU_ABI.equals(CpuArchHelper.getArm64CpuAbi())) {
-            assertEquals(cpuArch, CpuArch.ARMv7);
-        }else {
-            assertEquals(cpuArch, CpuArch.NONE);
+        CpuArch expected = CpuArch.NONE;
+        for (String abi : AbiSelector.orderAbis(Build.SUPPORTED_ABIS)) {
+            expected = CpuArch.fromAbi(abi);
+            if (expected != CpuArch.NONE) {
+                break;
+            }
         }
+        assertEquals(expected, cpuArch);
     }
-}
\ No newline at end of file
+}
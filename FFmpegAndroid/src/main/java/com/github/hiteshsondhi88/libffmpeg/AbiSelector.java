@@ -0,0 +1,79 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Picks the binary variant to install from the ABIs and CPU features of the device.
+ * <p>
+ * ABIs are tried in the order the device reports them, except that 64-bit ABIs come before
+ * 32-bit ones: some devices list armeabi-v7a first although they run arm64 binaries faster.
+ * Within an ABI the variant compiled for the most CPU features the device has wins.
+ */
+class AbiSelector {
+
+    private static final List<String> ABIS_64_BIT = Arrays.asList("arm64-v8a", "x86_64");
+
+    private final List<String> abis;
+    private final Set<String> cpuFeatures;
+
+    /**
+     * @param supportedAbis ABIs of the device in preference order, usually {@code Build.SUPPORTED_ABIS}
+     * @param cpuFeatures CPU features of the device, see {@link ArmArchHelper#getCpuFeatures()}
+     */
+    AbiSelector(String[] supportedAbis, Set<String> cpuFeatures) {
+        this.abis = orderAbis(supportedAbis);
+        this.cpuFeatures = cpuFeatures;
+    }
+
+    /**
+     * @param variants registered variants
+     * @param name variant name, e.g. {@link BinaryVariant#FULL}
+     * @return best variant with this name the device can run, null if there is none
+     */
+    BinaryVariant select(List<BinaryVariant> variants, String name) {
+        for (String abi : abis) {
+            BinaryVariant best = null;
+            for (BinaryVariant variant : variants) {
+                if (variant.getName().equals(name)
+                        && variant.getAbi().equals(abi)
+                        && cpuFeatures.containsAll(variant.getRequiredFeatures())
+                        && (best == null || variant.getRequiredFeatures().size() > best.getRequiredFeatures().size())) {
+                    best = variant;
+                }
+            }
+            if (best != null) {
+                return best;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return ABIs in the order they are tried
+     */
+    List<String> getAbis() {
+        return abis;
+    }
+
+    static List<String> orderAbis(String[] supportedAbis) {
+        if (supportedAbis == null) {
+            return Collections.emptyList();
+        }
+        List<String> ordered = new ArrayList<>();
+        for (String abi : supportedAbis) {
+            if (ABIS_64_BIT.contains(abi) && !ordered.contains(abi)) {
+                ordered.add(abi);
+            }
+        }
+        for (String abi : supportedAbis) {
+            if (!ordered.contains(abi)) {
+                ordered.add(abi);
+            }
+        }
+        return ordered;
+    }
+}
@@ -1,9 +1,27 @@
-/*
 package com.github.hiteshsondhi88.libffmpeg;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
 class ArmArchHelper {
+
+    private static final boolean NATIVE_LOADED;
+
     static {
-        System.loadLibrary("ARM_ARCH");
+        boolean loaded;
+        try {
+            System.loadLibrary("ARM_ARCH");
+            loaded = true;
+        } catch (UnsatisfiedLinkError e) {
+            // not bundled for this ABI, /proc/cpuinfo is used instead
+            loaded = false;
+        }
+        NATIVE_LOADED = loaded;
     }
 
     native String cpuArchFromJNI();
@@ -17,4 +35,65 @@ class ArmArchHelper {
         return cpuInfoString.contains("-neon");
     }
 
-}*/
\ No newline at end of file
+    /**
+     * SIMD features of the CPU, lower case as in /proc/cpuinfo (neon, asimd, sse4_1, avx2, ...)
+     * @return detected features, empty if nothing could be read
+     */
+    Set<String> getCpuFeatures() {
+        Set<String> features = new HashSet<>();
+        if (NATIVE_LOADED) {
+            try {
+                if (isNeonSupported(cpuArchFromJNI())) {
+                    features.add("neon");
+                }
+            } catch (UnsatisfiedLinkError e) {
+                Log.w("ARM_ARCH probe unavailable: " + e.getMessage());
+            }
+        }
+        InputStream is = null;
+        try {
+            is = new FileInputStream("/proc/cpuinfo");
+            features.addAll(parseCpuFeatures(readAll(is)));
+        } catch (IOException e) {
+            Log.d("could not read /proc/cpuinfo: " + e.getMessage());
+        } finally {
+            Util.close(is);
+        }
+        return features;
+    }
+
+    /**
+     * @param cpuInfo content of /proc/cpuinfo
+     * @return tokens of the first "Features" (ARM) or "flags" (x86) line
+     */
+    static Set<String> parseCpuFeatures(String cpuInfo) {
+        if (cpuInfo != null) {
+            for (String line : cpuInfo.split("\n")) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String key = line.substring(0, colon).trim();
+                if (key.equals("Features") || key.equals("flags")) {
+                    Set<String> features = new HashSet<>();
+                    for (String feature : line.substring(colon + 1).trim().split("\\s+")) {
+                        if (!feature.isEmpty()) {
+                            features.add(feature.toLowerCase(Locale.US));
+                        }
+                    }
+                    return features;
+                }
+            }
+        }
+        return Collections.emptySet();
+    }
+
+    private static String readAll(InputStream is) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        byte[] buffer = new byte[4096];
+        for (int read; (read = is.read(buffer)) != -1; ) {
+            sb.append(new String(buffer, 0, read, "US-ASCII"));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,223 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Formatter;
+
+/**
+ * Installs the FFmpeg binary and verifies it without hashing it on every load.
+ * <p>
+ * After a successful install or verification the size, modification time and hash of the
+ * binary are written to a stamp file. While the binary still matches the stamp it is trusted,
+ * the full SHA-1 is only computed again when the file changed or the expected hash did.
+ * A missing or stale binary is copied to a temporary file while being hashed, then renamed
+ * over the old one so a crash or a concurrent reader never sees a partial binary.
+ */
+class BinaryInstaller {
+
+    interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int WARM_UP_BUFFER_SIZE = 1024 * 1024;
+    private static final String STAMP_SUFFIX = ".stamp";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File binary;
+    private final File stamp;
+    private final String expectedSha1;
+    private final Source source;
+
+    /**
+     * @param binary installed binary
+     * @param expectedSha1 SHA-1 of the shipped binary, null accepts whatever the source contains
+     * @param source opens the shipped binary, usually from the assets
+     */
+    BinaryInstaller(File binary, String expectedSha1, Source source) {
+        this.binary = binary;
+        this.stamp = new File(binary.getPath() + STAMP_SUFFIX);
+        this.expectedSha1 = expectedSha1;
+        this.source = source;
+    }
+
+    /**
+     * Makes sure the binary is installed, up to date and executable
+     * @return true if the binary can be executed
+     */
+    synchronized boolean install() {
+        if (binary.exists()) {
+            if (matchesStamp()) {
+                Log.d("FFmpeg matches its verification stamp");
+                return makeExecutable();
+            }
+            String sha1 = sha1(binary);
+            if (sha1 != null && (expectedSha1 == null || expectedSha1.equalsIgnoreCase(sha1))) {
+                Log.d("FFmpeg verified, writing its stamp");
+                writeStamp(sha1);
+                return makeExecutable();
+            }
+            Log.i("FFmpeg on device is outdated, installing the shipped binary");
+        }
+        return copy() && makeExecutable();
+    }
+
+    /**
+     * Reads the whole binary once so its pages are in the page cache before the first command
+     */
+    void warmUp() {
+        InputStream is = null;
+        try {
+            is = new FileInputStream(binary);
+            byte[] buffer = new byte[WARM_UP_BUFFER_SIZE];
+            //noinspection StatementWithEmptyBody
+            while (is.read(buffer) != -1) {
+                // only the page-in matters
+            }
+        } catch (IOException e) {
+            Log.w("could not warm up FFmpeg: " + e.getMessage());
+        } finally {
+            Util.close(is);
+        }
+    }
+
+    /**
+     * Runs {@link #warmUp()} on a low priority daemon thread
+     */
+    void warmUpAsync() {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                warmUp();
+            }
+        }, "FFmpeg warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    File getStampFile() {
+        return stamp;
+    }
+
+    private boolean matchesStamp() {
+        String[] values = readStamp();
+        return values != null
+                && values.length == 3
+                && values[0].equals(String.valueOf(binary.length()))
+                && values[1].equals(String.valueOf(binary.lastModified()))
+                && (expectedSha1 == null || expectedSha1.equalsIgnoreCase(values[2]));
+    }
+
+    private String[] readStamp() {
+        if (!stamp.isFile()) {
+            return null;
+        }
+        InputStream is = null;
+        try {
+            is = new FileInputStream(stamp);
+            String content = Util.convertInputStreamToString(is);
+            return content == null ? null : content.trim().split(" ");
+        } catch (IOException e) {
+            return null;
+        } finally {
+            Util.close(is);
+        }
+    }
+
+    private void writeStamp(String sha1) {
+        FileOutputStream os = null;
+        try {
+            os = new FileOutputStream(stamp);
+            os.write((binary.length() + " " + binary.lastModified() + " " + sha1).getBytes("UTF-8"));
+        } catch (IOException e) {
+            // without stamp the next load verifies the hash again
+            Log.w("could not write FFmpeg stamp: " + e.getMessage());
+        } finally {
+            Util.close(os);
+        }
+    }
+
+    private boolean copy() {
+        File temp = new File(binary.getPath() + TEMP_SUFFIX);
+        InputStream is = null;
+        FileOutputStream os = null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            is = source.open();
+            os = new FileOutputStream(temp);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int read; (read = is.read(buffer)) != -1; ) {
+                digest.update(buffer, 0, read);
+                os.write(buffer, 0, read);
+            }
+            os.getFD().sync();
+            os.close();
+            os = null;
+
+            String sha1 = toHex(digest.digest());
+            if (expectedSha1 != null && !expectedSha1.equalsIgnoreCase(sha1)) {
+                Log.e("copied FFmpeg has SHA-1 " + sha1 + ", expected " + expectedSha1);
+                return false;
+            }
+            if (!temp.setExecutable(true) || !temp.renameTo(binary)) {
+                Log.e("could not install FFmpeg to " + binary);
+                return false;
+            }
+            writeStamp(sha1);
+            return true;
+        } catch (IOException e) {
+            Log.e("issue in copying FFmpeg binary", e);
+        } catch (NoSuchAlgorithmException e) {
+            Log.e(e);
+        } finally {
+            Util.close(is);
+            Util.close(os);
+            if (temp.exists() && !temp.delete()) {
+                Log.w("could not delete " + temp);
+            }
+        }
+        return false;
+    }
+
+    private boolean makeExecutable() {
+        if (binary.canExecute()) {
+            return true;
+        }
+        Log.d("FFmpeg is not executable, trying to make it executable ...");
+        return binary.setExecutable(true);
+    }
+
+    static String sha1(File file) {
+        InputStream is = null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            is = new FileInputStream(file);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int read; (read = is.read(buffer)) != -1; ) {
+                digest.update(buffer, 0, read);
+            }
+            return toHex(digest.digest());
+        } catch (IOException e) {
+            Log.e(e);
+        } catch (NoSuchAlgorithmException e) {
+            Log.e(e);
+        } finally {
+            Util.close(is);
+        }
+        return null;
+    }
+
+    private static String toHex(byte[] bytes) {
+        Formatter formatter = new Formatter();
+        for (byte b : bytes) {
+            formatter.format("%02x", b);
+        }
+        return formatter.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An FFmpeg build bundled in the assets for one ABI.
+ * <p>
+ * Several variants may share a name (e.g. "full") and differ by ABI or by the CPU features they
+ * were compiled for, {@link FFmpeg#loadBinary(FFmpegLoadBinaryResponseHandler)} installs the best
+ * one the device can run.
+ */
+@SuppressWarnings("unused")
+public class BinaryVariant {
+
+    /**
+     * Name of the build with every codec, the one shipped with the library
+     */
+    public static final String FULL = "full";
+
+    /**
+     * Name of a slim build with the demuxers but only the audio codecs and filters, used by audio-only jobs
+     * when one is registered for the device, see {@link ExecuteOptions#setBinaryVariant(String)}
+     */
+    public static final String AUDIO = "audio";
+
+    private final String name;
+    private final String abi;
+    private final String assetPath;
+    private final String sha1;
+    private final Set<String> requiredFeatures;
+
+    /**
+     * @param name variant name, e.g. {@link #FULL}
+     * @param abi Android ABI, e.g. arm64-v8a
+     * @param assetPath path of the binary in the assets
+     * @param sha1 SHA-1 of the binary, null to skip verification: the binary is then only copied when missing
+     * @param requiredFeatures CPU features the binary was compiled for, e.g. neon, as named in /proc/cpuinfo
+     */
+    public BinaryVariant(String name, String abi, String assetPath, String sha1, String... requiredFeatures) {
+        this.name = name;
+        this.abi = abi;
+        this.assetPath = assetPath;
+        this.sha1 = sha1;
+        this.requiredFeatures = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(requiredFeatures)));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAbi() {
+        return abi;
+    }
+
+    public String getAssetPath() {
+        return assetPath;
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+
+    public Set<String> getRequiredFeatures() {
+        return requiredFeatures;
+    }
+
+    /**
+     * @return the full builds shipped with the library, one per ABI
+     */
+    static List<BinaryVariant> defaults() {
+        List<BinaryVariant> variants = new ArrayList<>();
+        for (CpuArch cpuArch : CpuArch.values()) {
+            if (cpuArch != CpuArch.NONE) {
+                variants.add(new BinaryVariant(FULL, cpuArch.getAbi(),
+                        cpuArch.getAbi() + File.separator + FileUtils.ffmpegFileName, cpuArch.getSha1()));
+            }
+        }
+        return variants;
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryVariant{name=" + name + ", abi=" + abi + ", features=" + requiredFeatures + "}";
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Reuses direct buffers between streaming jobs, allocating them is slow and their memory is only
+ * reclaimed by the garbage collector.
+ */
+class BufferPool {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED = 16;
+
+    private static final BufferPool instance = new BufferPool(BUFFER_SIZE, MAX_POOLED);
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    static BufferPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return a cleared buffer, to give back with {@link #release(ByteBuffer)}
+     */
+    synchronized ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    synchronized void release(ByteBuffer buffer) {
+        if (buffer != null && buffers.size() < maxPooled) {
+            buffers.push(buffer);
+        }
+    }
+
+    synchronized int getPooledCount() {
+        return buffers.size();
+    }
+}
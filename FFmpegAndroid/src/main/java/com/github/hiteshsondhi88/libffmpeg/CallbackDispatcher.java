@@ -0,0 +1,93 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers callbacks of every job on their executor in batches, one hop per executor and per frame,
+ * instead of one hop per output line. Callbacks for the direct executor run immediately.
+ */
+class CallbackDispatcher {
+
+    static final long FRAME_MILLIS = 16;
+
+    private static final CallbackDispatcher instance = new CallbackDispatcher(FRAME_MILLIS);
+
+    private final long frameMillis;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Object lock = new Object();
+    private Map<Executor, List<Runnable>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    CallbackDispatcher(long frameMillis) {
+        this.frameMillis = frameMillis;
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FFmpeg callback dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    static CallbackDispatcher getInstance() {
+        return instance;
+    }
+
+    void post(Executor executor, Runnable callback) {
+        if (CallbackExecutors.isDirect(executor)) {
+            callback.run();
+            return;
+        }
+        synchronized (lock) {
+            List<Runnable> callbacks = pending.get(executor);
+            if (callbacks == null) {
+                callbacks = new ArrayList<>();
+                pending.put(executor, callbacks);
+            }
+            callbacks.add(callback);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                timer.schedule(flush, frameMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void flush() {
+        Map<Executor, List<Runnable>> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        for (Map.Entry<Executor, List<Runnable>> entry : batch.entrySet()) {
+            final List<Runnable> callbacks = entry.getValue();
+            try {
+                entry.getKey().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (Runnable callback : callbacks) {
+                            callback.run();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                Log.e("unable to deliver FFmpeg callbacks", e);
+            }
+        }
+    }
+}
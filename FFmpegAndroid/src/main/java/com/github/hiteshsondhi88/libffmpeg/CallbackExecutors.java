@@ -0,0 +1,50 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executors on which command callbacks and progress can be delivered, see {@link ExecuteOptions#setCallbackExecutor(Executor)}.
+ * Any other {@link Executor}, e.g. a background thread pool, can be used as well.
+ */
+@SuppressWarnings("unused")
+public class CallbackExecutors {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static Executor mainThread;
+
+    /**
+     * @return executor posting to the Android main thread, the default
+     */
+    public static synchronized Executor mainThread() {
+        if (mainThread == null) {
+            final Handler handler = new Handler(Looper.getMainLooper());
+            mainThread = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    handler.post(command);
+                }
+            };
+        }
+        return mainThread;
+    }
+
+    /**
+     * @return executor running callbacks right away on the FFmpeg threads, for headless and batch callers
+     */
+    public static Executor direct() {
+        return DIRECT;
+    }
+
+    static boolean isDirect(Executor executor) {
+        return executor == DIRECT;
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+/**
+ * Finalizes the arguments of a command on the scheduler thread, right before its process starts,
+ * so decisions needing blocking work (e.g. probing the input) stay off the calling thread.
+ */
+public interface CommandPreparer {
+
+    /**
+     * @param args FFmpeg arguments, without the binary
+     * @return the arguments to run, args itself to keep them
+     */
+    String[] prepare(String[] args);
+
+}
@@ -0,0 +1,157 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handle of a single FFmpeg command, returned by {@link FFmpeg#execute}.
+ * Each job can be inspected and cancelled independently of the other running jobs.
+ */
+@SuppressWarnings("unused")
+public class ConversionJob {
+
+    private static final AtomicLong ids = new AtomicLong();
+
+    private final long id;
+    private final String tag;
+    private volatile String[] cmd;
+    private final long queuedTime;
+    private volatile JobState state = JobState.QUEUED;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile Integer exitCode;
+    private volatile Process process;
+    private JobRegistry registry;
+    private volatile JobGroup group;
+
+    ConversionJob(String tag, String[] cmd) {
+        this.id = ids.incrementAndGet();
+        this.tag = tag;
+        this.cmd = cmd;
+        this.queuedTime = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String[] getCmd() {
+        return cmd;
+    }
+
+    public JobState getState() {
+        return state;
+    }
+
+    public boolean isRunning() {
+        return state == JobState.RUNNING;
+    }
+
+    public boolean isFinished() {
+        return state.isFinished();
+    }
+
+    /**
+     * @return time in milliseconds when the job was queued
+     */
+    public long getQueuedTime() {
+        return queuedTime;
+    }
+
+    /**
+     * @return time in milliseconds when the FFmpeg process was started, 0 while queued
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return time in milliseconds when the job finished, 0 while queued or running
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * @return exit code of the FFmpeg process, null while it is queued or running or if it never started
+     */
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Cancels the job, killing its FFmpeg process if it is already running.
+     * A step of a {@link JobGroup} cancels the whole group.
+     * @return true if the job was not finished yet
+     */
+    public boolean cancel() {
+        synchronized (this) {
+            if (state.isFinished()) {
+                return false;
+            }
+            state = JobState.CANCELLED;
+            endTime = System.currentTimeMillis();
+        }
+        Util.destroyProcess(process);
+        unregister();
+        JobGroup group = this.group;
+        if (group != null) {
+            group.cancel();
+        }
+        return true;
+    }
+
+    void setCommand(String[] cmd) {
+        this.cmd = cmd;
+    }
+
+    void setGroup(JobGroup group) {
+        this.group = group;
+    }
+
+    void attach(JobRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @return false if the job was cancelled before its process could be started
+     */
+    synchronized boolean onStarted(Process process) {
+        if (state.isFinished()) {
+            return false;
+        }
+        this.process = process;
+        this.startTime = System.currentTimeMillis();
+        this.state = JobState.RUNNING;
+        return true;
+    }
+
+    void onExit(Integer exitCode) {
+        this.exitCode = exitCode;
+    }
+
+    void onFinished(boolean success) {
+        synchronized (this) {
+            if (!state.isFinished()) {
+                state = success ? JobState.SUCCEEDED : JobState.FAILED;
+                endTime = System.currentTimeMillis();
+            }
+            process = null;
+        }
+        unregister();
+    }
+
+    private void unregister() {
+        if (registry != null) {
+            registry.remove(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConversionJob{id=" + id + ", tag=" + tag + ", state=" + state + ", exitCode=" + exitCode + "}";
+    }
+}
@@ -2,35 +2,47 @@ package com.github.hiteshsondhi88.libffmpeg;
 
 import android.os.Build;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
 class CpuArchHelper {
-    
+
     static CpuArch getCpuArch() {
-        Log.d("Build.CPU_ABI : " + Build.CPU_ABI);
-        // check if device is x86 or x86_64
-        if (Build.CPU_ABI.equals(getx86CpuAbi())) {
-            return CpuArch.x86;
-        } else if(Build.CPU_ABI.equals(getx86_64CpuAbi())){
-            return CpuArch.x86_64;
-        }else {
-            // check if device is armeabi
-            if (Build.CPU_ABI.equals(getArmeabiv7CpuAbi())) {
-                // check if device is arm64 which is supported by ARMV7
-                    return CpuArch.ARMv7;
-            } else if (Build.CPU_ABI.equals(getArm64CpuAbi())) {
-                return CpuArch.ARMv8;
+        Log.d("Build.SUPPORTED_ABIS : " + Arrays.toString(Build.SUPPORTED_ABIS));
+        for (String abi : AbiSelector.orderAbis(Build.SUPPORTED_ABIS)) {
+            CpuArch cpuArch = CpuArch.fromAbi(abi);
+            if (cpuArch != CpuArch.NONE) {
+                return cpuArch;
             }
         }
         return CpuArch.NONE;
     }
-    
+
+    static AbiSelector getAbiSelector() {
+        return new AbiSelector(Build.SUPPORTED_ABIS, getCpuFeatures(Build.SUPPORTED_ABIS));
+    }
+
+    static Set<String> getCpuFeatures(String[] supportedAbis) {
+        Set<String> features = new ArmArchHelper().getCpuFeatures();
+        List<String> abis = Arrays.asList(supportedAbis);
+        if (abis.contains(getArm64CpuAbi())) {
+            // Advanced SIMD is mandatory on ARMv8, 32-bit builds get it as NEON
+            features.add("neon");
+            features.add("asimd");
+        }
+        Log.d("CPU features : " + features);
+        return features;
+    }
+
     static String getx86CpuAbi() {
         return "x86";
     }
-    
+
     static String getx86_64CpuAbi() {
         return "x86_64";
     }
-    
+
     static String getArm64CpuAbi() {
         return "arm64-v8a";
     }
@@ -0,0 +1,274 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.io.File;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Per-command options of {@link FFmpeg#execute(String[], ExecuteOptions, FFmpegExecuteResponseHandler)}
+ */
+@SuppressWarnings("unused")
+public class ExecuteOptions {
+
+    private Map<String, String> environment;
+    private int priority = FFmpegScheduler.PRIORITY_NORMAL;
+    private String tag;
+    private int maxLogLines = LogBuffer.DEFAULT_MAX_LINES;
+    private int maxLogChars = LogBuffer.DEFAULT_MAX_CHARS;
+    private File logFile;
+    private ProgressListener progressListener;
+    private long progressInterval = ProgressTracker.DEFAULT_INTERVAL;
+    private long durationHint = -1;
+    private Executor callbackExecutor;
+    private CommandPreparer commandPreparer;
+    private Runnable successAction;
+    private ReadableByteChannel input;
+    private WritableByteChannel output;
+    private String binaryVariant = BinaryVariant.FULL;
+    private long timeout = -1;
+    private long stallTimeout = -1;
+
+    public ExecuteOptions setEnvironment(Map<String, String> environment) {
+        this.environment = environment;
+        return this;
+    }
+
+    public ExecuteOptions setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    public ExecuteOptions setTag(String tag) {
+        this.tag = tag;
+        return this;
+    }
+
+    /**
+     * Bounds the output kept in memory and given to onSuccess/onFailure, only the last lines are kept
+     * @param maxLines maximum number of lines
+     * @param maxChars maximum number of characters
+     */
+    public ExecuteOptions setLogLimits(int maxLines, int maxChars) {
+        if (maxLines < 1 || maxChars < 1) {
+            throw new IllegalArgumentException("log limits must be positive");
+        }
+        this.maxLogLines = maxLines;
+        this.maxLogChars = maxChars;
+        return this;
+    }
+
+    /**
+     * Streams the complete output of the command to a file
+     */
+    public ExecuteOptions setLogFile(File logFile) {
+        this.logFile = logFile;
+        return this;
+    }
+
+    /**
+     * Receives typed progress events, see {@link ProgressEvent}
+     */
+    public ExecuteOptions setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * Minimum time between two progress events, intermediate updates are coalesced
+     * @param progressInterval in milliseconds
+     */
+    public ExecuteOptions setProgressInterval(long progressInterval) {
+        if (progressInterval < 0) {
+            throw new IllegalArgumentException("progress interval cannot be negative");
+        }
+        this.progressInterval = progressInterval;
+        return this;
+    }
+
+    /**
+     * Duration of the input if already known, otherwise it is read from the FFmpeg output.
+     * Used to compute the percent and the ETA of progress events.
+     * @param durationHint in milliseconds
+     */
+    public ExecuteOptions setDurationHint(long durationHint) {
+        this.durationHint = durationHint;
+        return this;
+    }
+
+    /**
+     * Executor on which the response handler and the progress listener are called,
+     * defaults to {@link CallbackExecutors#mainThread()}. Progress of all jobs is delivered in batches,
+     * at most once per frame, unless {@link CallbackExecutors#direct()} is used.
+     */
+    public ExecuteOptions setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    /**
+     * Rewrites the arguments on the scheduler thread before the process starts
+     */
+    public ExecuteOptions setCommandPreparer(CommandPreparer commandPreparer) {
+        this.commandPreparer = commandPreparer;
+        return this;
+    }
+
+    /**
+     * Runs on the scheduler thread once the command succeeded, before the handler gets onSuccess,
+     * e.g. to copy the output somewhere else. The job fails if the action throws.
+     */
+    public ExecuteOptions setSuccessAction(Runnable successAction) {
+        this.successAction = successAction;
+        return this;
+    }
+
+    /**
+     * Streams the channel to FFmpeg stdin, read with the "pipe:0" input. The channel is not closed.
+     */
+    public ExecuteOptions setInput(ReadableByteChannel input) {
+        this.input = input;
+        return this;
+    }
+
+    /**
+     * Streams FFmpeg stdout to the channel, written with the "pipe:1" output. The channel is not closed.
+     * The job succeeds once every byte has been written to it.
+     */
+    public ExecuteOptions setOutput(WritableByteChannel output) {
+        this.output = output;
+        return this;
+    }
+
+    /**
+     * Runs the command with another installed {@link BinaryVariant}, e.g. {@link BinaryVariant#AUDIO}.
+     * The full build is used when the variant is not installed on the device.
+     */
+    public ExecuteOptions setBinaryVariant(String binaryVariant) {
+        this.binaryVariant = binaryVariant;
+        return this;
+    }
+
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public int getMaxLogLines() {
+        return maxLogLines;
+    }
+
+    public int getMaxLogChars() {
+        return maxLogChars;
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    public long getDurationHint() {
+        return durationHint;
+    }
+
+    public Executor getCallbackExecutor() {
+        return callbackExecutor != null ? callbackExecutor : CallbackExecutors.mainThread();
+    }
+
+    public CommandPreparer getCommandPreparer() {
+        return commandPreparer;
+    }
+
+    public Runnable getSuccessAction() {
+        return successAction;
+    }
+
+    public ReadableByteChannel getInput() {
+        return input;
+    }
+
+    public WritableByteChannel getOutput() {
+        return output;
+    }
+
+    /**
+     * Wall-clock limit of this command, overrides {@link FFmpeg#setTimeout(long)}
+     * @param timeout in milliseconds, Long.MAX_VALUE for none
+     */
+    public ExecuteOptions setTimeout(long timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Kills the command when FFmpeg prints nothing for this long, overrides {@link FFmpeg#setStallTimeout(long)}.
+     * FFmpeg prints its statistics about twice a second unless -nostats or a quiet log level is used.
+     * @param stallTimeout in milliseconds, Long.MAX_VALUE for none
+     */
+    public ExecuteOptions setStallTimeout(long stallTimeout) {
+        this.stallTimeout = stallTimeout;
+        return this;
+    }
+
+    /**
+     * @return timeout given to {@link #setTimeout(long)}, -1 if none was given
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return stall timeout given to {@link #setStallTimeout(long)}, -1 if none was given
+     */
+    public long getStallTimeout() {
+        return stallTimeout;
+    }
+
+    /**
+     * @return options with the same values, to be changed without affecting the caller's
+     */
+    ExecuteOptions copy() {
+        ExecuteOptions copy = new ExecuteOptions();
+        copy.environment = environment;
+        copy.priority = priority;
+        copy.tag = tag;
+        copy.maxLogLines = maxLogLines;
+        copy.maxLogChars = maxLogChars;
+        copy.logFile = logFile;
+        copy.progressListener = progressListener;
+        copy.progressInterval = progressInterval;
+        copy.durationHint = durationHint;
+        copy.callbackExecutor = callbackExecutor;
+        copy.commandPreparer = commandPreparer;
+        copy.successAction = successAction;
+        copy.input = input;
+        copy.output = output;
+        copy.binaryVariant = binaryVariant;
+        copy.timeout = timeout;
+        copy.stallTimeout = stallTimeout;
+        return copy;
+    }
+
+    boolean hasCallbackExecutor() {
+        return callbackExecutor != null;
+    }
+
+    public String getBinaryVariant() {
+        return binaryVariant;
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegCommandAlreadyRunningException;
+
+/**
+ * Runs FFmpeg commands. {@link FFmpeg} runs the binary installed on an Android device,
+ * {@link HostExecutionEngine} a local binary on any JVM, e.g. a Linux server or a benchmark.
+ */
+@SuppressWarnings("unused")
+public interface ExecutionEngine {
+
+    /**
+     * Queues a command
+     * @param cmd arguments, without the binary
+     * @param options {@link ExecuteOptions}
+     * @param ffmpegExecuteResponseHandler {@link FFmpegExecuteResponseHandler}
+     * @return {@link ConversionJob} handle of the queued command
+     * @throws FFmpegCommandAlreadyRunningException
+     */
+    ConversionJob execute(String[] cmd, ExecuteOptions options, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException;
+
+    /**
+     * Runs {@code ffmpeg -i} on a file and waits for it, do not call it from the main thread
+     * @param inputPath file to inspect
+     * @return the input description printed by FFmpeg (duration, bitrate, streams)
+     */
+    String probe(String inputPath);
+
+    /**
+     * @param name {@link BinaryVariant} name, e.g. {@link BinaryVariant#AUDIO}
+     * @return true if commands can run with this variant
+     */
+    boolean isBinaryVariantInstalled(String name);
+
+    /**
+     * Cancels every queued or running job with the given tag
+     * @param tag tag of {@link ExecuteOptions#setTag(String)}
+     * @return number of cancelled jobs
+     */
+    int cancelAll(String tag);
+
+    /**
+     * @return {@link FFmpegScheduler} running the commands
+     */
+    FFmpegScheduler getScheduler();
+
+    /**
+     * @return {@link ThreadBudget} shared by the running commands
+     */
+    ThreadBudget getThreadBudget();
+}
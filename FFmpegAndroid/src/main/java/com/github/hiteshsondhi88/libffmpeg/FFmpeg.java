@@ -1,11 +1,16 @@
 package com.github.hiteshsondhi88.libffmpeg;
 
 import android.content.Context;
-import android.os.AsyncTask;
-import android.text.TextUtils;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegCommandAlreadyRunningException;
 import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegNotSupportedException;
@@ -14,11 +19,19 @@ import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegNotSupportedExceptio
 public class FFmpeg implements FFmpegInterface {
 
     private final Context context;
-    private FFmpegExecuteAsyncTask ffmpegExecuteAsyncTask;
     private FFmpegLoadLibraryAsyncTask ffmpegLoadLibraryAsyncTask;
+    private final FFmpegScheduler scheduler = new FFmpegScheduler();
+    private final ThreadBudget threadBudget = new ThreadBudget(scheduler);
+    private final JobRegistry jobRegistry = new JobRegistry();
 
     private static final long MINIMUM_TIMEOUT = 10 * 1000;
     private long timeout = Long.MAX_VALUE;
+    private long stallTimeout = Long.MAX_VALUE;
+    private boolean warmUpBinary;
+    private final List<BinaryVariant> variants = new CopyOnWriteArrayList<>(BinaryVariant.defaults());
+    private AbiSelector abiSelector;
+    private final Set<String> installedVariants = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ConcurrentMap<String, SpawnStats> spawnStats = new ConcurrentHashMap<>();
 
     private static FFmpeg instance = null;
 
@@ -35,48 +48,94 @@ public class FFmpeg implements FFmpegInterface {
     }
 
     @Override
-    public void loadBinary(FFmpegLoadBinaryResponseHandler ffmpegLoadBinaryResponseHandler) throws FFmpegNotSupportedException {
-        String cpuArchNameFromAssets = null;
-        switch (CpuArchHelper.getCpuArch()) {
-            case x86:
-                Log.i("Loading FFmpeg for x86 CPU");
-                cpuArchNameFromAssets = "x86";
-                break;
-            case ARMv7:
-                Log.i("Loading FFmpeg for armv7 CPU");
-                cpuArchNameFromAssets = "armeabi-v7a";
-                break;
-            case ARMv8:
-                Log.i("Loading FFmpeg for arm64-v8a CPU");
-                cpuArchNameFromAssets = "arm64-v8a";
-                break;
-
-            case x86_64:
-                Log.i("Loading FFmpeg for x86_64 CPU");
-                cpuArchNameFromAssets = "x86_64";
-                break;
-            case NONE:
-                throw new FFmpegNotSupportedException("Device not supported");
+    public synchronized void loadBinary(FFmpegLoadBinaryResponseHandler ffmpegLoadBinaryResponseHandler) throws FFmpegNotSupportedException {
+        if (abiSelector == null) {
+            abiSelector = CpuArchHelper.getAbiSelector();
         }
-
-        if (!TextUtils.isEmpty(cpuArchNameFromAssets)) {
-            ffmpegLoadLibraryAsyncTask = new FFmpegLoadLibraryAsyncTask(context, cpuArchNameFromAssets, ffmpegLoadBinaryResponseHandler);
-            ffmpegLoadLibraryAsyncTask.execute();
-        } else {
+        BinaryVariant full = abiSelector.select(variants, BinaryVariant.FULL);
+        if (full == null) {
             throw new FFmpegNotSupportedException("Device not supported");
         }
+        List<BinaryVariant> selected = new ArrayList<>();
+        selected.add(full);
+        for (BinaryVariant variant : variants) {
+            if (!containsName(selected, variant.getName())) {
+                BinaryVariant best = abiSelector.select(variants, variant.getName());
+                if (best != null) {
+                    selected.add(best);
+                }
+            }
+        }
+        Log.i("Loading FFmpeg " + selected);
+
+        // single flight: callers arriving while a load is running share its result
+        if (ffmpegLoadLibraryAsyncTask != null && ffmpegLoadLibraryAsyncTask.addHandler(ffmpegLoadBinaryResponseHandler)) {
+            Log.d("FFmpeg load already running, waiting for it");
+            return;
+        }
+        ffmpegLoadLibraryAsyncTask = new FFmpegLoadLibraryAsyncTask(context, selected, installedVariants, warmUpBinary, ffmpegLoadBinaryResponseHandler);
+        ffmpegLoadLibraryAsyncTask.execute();
+    }
+
+    private static boolean containsName(List<BinaryVariant> variants, String name) {
+        for (BinaryVariant variant : variants) {
+            if (variant.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void registerBinaryVariant(BinaryVariant variant) {
+        variants.add(variant);
+    }
+
+    @Override
+    public boolean isBinaryVariantInstalled(String name) {
+        return installedVariants.contains(name);
+    }
+
+    @Override
+    public SpawnStats getSpawnStats(String name) {
+        SpawnStats stats = spawnStats.get(name);
+        if (stats == null) {
+            SpawnStats created = new SpawnStats(name);
+            stats = spawnStats.putIfAbsent(name, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
     }
 
     @Override
-    public void execute(Map<String, String> environvenmentVars, String[] cmd, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException {
-        /*if (ffmpegExecuteAsyncTask != null && !ffmpegExecuteAsyncTask.isProcessCompleted()) {
-            throw new FFmpegCommandAlreadyRunningException("FFmpeg command is already running, you are only allowed to run single command at a time");
-        }*/
+    public ConversionJob execute(Map<String, String> environvenmentVars, String[] cmd, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException {
+        return execute(environvenmentVars, cmd, FFmpegScheduler.PRIORITY_NORMAL, null, ffmpegExecuteResponseHandler);
+    }
+
+    @Override
+    public ConversionJob execute(Map<String, String> environvenmentVars, String[] cmd, int priority, String tag, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException {
+        return execute(cmd, new ExecuteOptions().setEnvironment(environvenmentVars).setPriority(priority).setTag(tag), ffmpegExecuteResponseHandler);
+    }
+
+    @Override
+    public ConversionJob execute(String[] cmd, ExecuteOptions options, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException {
         if (cmd.length != 0) {
-            String[] ffmpegBinary = new String[] { FileUtils.getFFmpeg(context, environvenmentVars) };
+            // variants other than the full build are optional
+            String variant = installedVariants.contains(options.getBinaryVariant()) ? options.getBinaryVariant() : BinaryVariant.FULL;
+            String[] ffmpegBinary = new String[] { FileUtils.getFFmpeg(context, options.getEnvironment(), variant) };
             String[] command = concatenate(ffmpegBinary, cmd);
-            ffmpegExecuteAsyncTask = new FFmpegExecuteAsyncTask(command , timeout, ffmpegExecuteResponseHandler);
-            ffmpegExecuteAsyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+            ConversionJob job = new ConversionJob(options.getTag(), command);
+            FFmpegExecuteTask ffmpegExecuteTask = new FFmpegExecuteTask(command, timeout, job, options, ffmpegExecuteResponseHandler);
+            ffmpegExecuteTask.setThreadBudget(threadBudget);
+            ffmpegExecuteTask.setDefaultStallTimeout(stallTimeout);
+            ffmpegExecuteTask.setSpawnStats(getSpawnStats(variant));
+            job.attach(jobRegistry);
+            jobRegistry.add(job);
+            ffmpegExecuteTask.onQueued();
+            scheduler.submit(ffmpegExecuteTask, options.getPriority());
+            return job;
         } else {
             throw new IllegalArgumentException("shell command cannot be empty");
         }
@@ -95,8 +154,8 @@ public class FFmpeg implements FFmpegInterface {
     }
 
     @Override
-    public void execute(String[] cmd, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException {
-        execute(null, cmd, ffmpegExecuteResponseHandler);
+    public ConversionJob execute(String[] cmd, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException {
+        return execute(null, cmd, ffmpegExecuteResponseHandler);
     }
 
     @Override
@@ -110,6 +169,12 @@ public class FFmpeg implements FFmpegInterface {
         return "";
     }
 
+    @Override
+    public String probe(String inputPath) {
+        // without output file FFmpeg prints the input header and exits with an error
+        return new ShellCommand().runWaitForOutput(new String[] { FileUtils.getFFmpeg(context), "-hide_banner", "-i", inputPath }).output;
+    }
+
     @Override
     public String getLibraryFFmpegVersion() {
         return context.getString(R.string.shipped_ffmpeg_version);
@@ -117,12 +182,28 @@ public class FFmpeg implements FFmpegInterface {
 
     @Override
     public boolean isFFmpegCommandRunning() {
-        return ffmpegExecuteAsyncTask != null && !ffmpegExecuteAsyncTask.isProcessCompleted();
+        return jobRegistry.hasRunningJobs();
     }
 
     @Override
     public boolean killRunningProcesses() {
-        return Util.killAsync(ffmpegLoadLibraryAsyncTask) || Util.killAsync(ffmpegExecuteAsyncTask);
+        boolean loadKilled = Util.killAsync(ffmpegLoadLibraryAsyncTask);
+        return jobRegistry.cancelAll() > 0 || loadKilled;
+    }
+
+    @Override
+    public List<ConversionJob> getJobs() {
+        return jobRegistry.getJobs();
+    }
+
+    @Override
+    public List<ConversionJob> getJobs(String tag) {
+        return jobRegistry.getJobs(tag);
+    }
+
+    @Override
+    public int cancelAll(String tag) {
+        return jobRegistry.cancelAll(tag);
     }
 
     @Override
@@ -131,4 +212,31 @@ public class FFmpeg implements FFmpegInterface {
             this.timeout = timeout;
         }
     }
+
+    @Override
+    public void setStallTimeout(long stallTimeout) {
+        if (stallTimeout >= MINIMUM_TIMEOUT) {
+            this.stallTimeout = stallTimeout;
+        }
+    }
+
+    @Override
+    public void setWarmUpBinary(boolean warmUpBinary) {
+        this.warmUpBinary = warmUpBinary;
+    }
+
+    @Override
+    public void setMaxConcurrency(int maxConcurrency) {
+        scheduler.setMaxConcurrency(maxConcurrency);
+    }
+
+    @Override
+    public FFmpegScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public ThreadBudget getThreadBudget() {
+        return threadBudget;
+    }
 }
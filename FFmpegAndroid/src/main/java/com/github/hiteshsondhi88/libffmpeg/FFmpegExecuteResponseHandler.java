@@ -4,7 +4,7 @@ public interface FFmpegExecuteResponseHandler extends ResponseHandler {
 
     /**
      * on Success
-     * @param message complete output of the FFmpeg command
+     * @param message last lines of the FFmpeg command output, bounded by {@link ExecuteOptions#setLogLimits(int, int)}
      */
     public void onSuccess(String message);
 
@@ -16,7 +16,7 @@ public interface FFmpegExecuteResponseHandler extends ResponseHandler {
 
     /**
      * on Failure
-     * @param message complete output of the FFmpeg command
+     * @param message last lines of the FFmpeg command output, bounded by {@link ExecuteOptions#setLogLimits(int, int)}
      */
     public void onFailure(String message);
 
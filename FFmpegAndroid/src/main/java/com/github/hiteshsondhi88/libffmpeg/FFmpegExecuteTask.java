@@ -0,0 +1,317 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs one FFmpeg command on a {@link FFmpegScheduler} thread, delivering the callbacks on the executor of the job.
+ */
+class FFmpegExecuteTask implements Runnable {
+
+    /**
+     * Once the process exited, how often the output pump is checked for cancellation while the output channel
+     * is still written, e.g. by a slow consumer applying backpressure
+     */
+    private static final long PUMP_CHECK_INTERVAL = 500;
+    /**
+     * How long a stopped pump may take to return
+     */
+    private static final long PUMP_STOP_TIMEOUT = 1000;
+    /**
+     * Exit value reported when FFmpeg succeeded but its input or output stream failed
+     */
+    private static final int STREAM_ERROR_EXIT_VALUE = -1;
+
+    private String[] cmd;
+    private final FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler;
+    private final ShellCommand shellCommand;
+    private final long timeout;
+    private final long stallTimeout;
+    private long defaultStallTimeout = Long.MAX_VALUE;
+    private final ConversionJob job;
+    private final LogBuffer output;
+    private final File logFile;
+    private LogFileSink logFileSink;
+    private final ProgressListener progressListener;
+    private final ProgressTracker progressTracker;
+    private final Executor callbackExecutor;
+    private final CommandPreparer commandPreparer;
+    private final Runnable successAction;
+    private final ReadableByteChannel input;
+    private final WritableByteChannel outputChannel;
+    private final CallbackDispatcher dispatcher;
+    private Process process;
+    private ThreadBudget threadBudget;
+    private SpawnStats spawnStats;
+
+    FFmpegExecuteTask(String[] cmd, long timeout, ConversionJob job, ExecuteOptions options, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) {
+        this.cmd = cmd;
+        this.timeout = options.getTimeout() >= 0 ? options.getTimeout() : timeout;
+        this.stallTimeout = options.getStallTimeout();
+        this.job = job;
+        this.ffmpegExecuteResponseHandler = ffmpegExecuteResponseHandler;
+        this.shellCommand = new ShellCommand();
+        this.output = new LogBuffer(options.getMaxLogLines(), options.getMaxLogChars());
+        this.logFile = options.getLogFile();
+        this.progressListener = options.getProgressListener();
+        this.progressTracker = new ProgressTracker(options.getProgressInterval(), options.getDurationHint());
+        this.callbackExecutor = options.getCallbackExecutor();
+        this.commandPreparer = options.getCommandPreparer();
+        this.successAction = options.getSuccessAction();
+        this.input = options.getInput();
+        this.outputChannel = options.getOutput();
+        this.dispatcher = CallbackDispatcher.getInstance();
+    }
+
+    /**
+     * Budget giving the -threads option of the command when it starts, none by default
+     */
+    void setThreadBudget(ThreadBudget threadBudget) {
+        this.threadBudget = threadBudget;
+    }
+
+    /**
+     * Stall timeout of the engine, used unless the options give one, none by default
+     */
+    void setDefaultStallTimeout(long defaultStallTimeout) {
+        this.defaultStallTimeout = defaultStallTimeout;
+    }
+
+    /**
+     * Receives the start-up latency of the process, none by default
+     */
+    void setSpawnStats(SpawnStats spawnStats) {
+        this.spawnStats = spawnStats;
+    }
+
+    /**
+     * Called when the job is queued
+     */
+    void onQueued() {
+        if (ffmpegExecuteResponseHandler != null) {
+            dispatcher.post(callbackExecutor, new Runnable() {
+                @Override
+                public void run() {
+                    ffmpegExecuteResponseHandler.onStart();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void run() {
+        final CommandResult commandResult = runSuccessAction(execute());
+        job.onFinished(commandResult.success);
+        if (job.getState() == JobState.CANCELLED || ffmpegExecuteResponseHandler == null) {
+            return;
+        }
+        dispatcher.post(callbackExecutor, new Runnable() {
+            @Override
+            public void run() {
+                output.appendAll(commandResult.output);
+                if (commandResult.success) {
+                    ffmpegExecuteResponseHandler.onSuccess(output.getSummary());
+                } else {
+                    ffmpegExecuteResponseHandler.onFailure(output.getSummary());
+                }
+                ffmpegExecuteResponseHandler.onFinish();
+            }
+        });
+    }
+
+    private CommandResult runSuccessAction(CommandResult commandResult) {
+        if (!commandResult.success || successAction == null || job.isFinished()) {
+            return commandResult;
+        }
+        try {
+            successAction.run();
+            return commandResult;
+        } catch (RuntimeException e) {
+            Log.e("Success action failed", e);
+            return new CommandResult(false, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private CommandResult execute() {
+        if (job.isFinished()) {
+            Log.d("Job cancelled while queued");
+            return CommandResult.getDummyFailureResponse();
+        }
+        if (logFile != null) {
+            logFileSink = new LogFileSink(logFile);
+        }
+        int threads = 0;
+        try {
+            prepareCommand();
+            if (job.isFinished()) {
+                Log.d("Job cancelled while its command was prepared");
+                return CommandResult.getDummyFailureResponse();
+            }
+            threads = acquireThreads();
+            final long spawnStart = System.nanoTime();
+            process = shellCommand.run(cmd);
+            if (process == null) {
+                return CommandResult.getDummyFailureResponse();
+            }
+            if (spawnStats != null) {
+                spawnStats.onSpawned(System.nanoTime() - spawnStart);
+            }
+            final AtomicBoolean firstLine = new AtomicBoolean(true);
+            if (!job.onStarted(process)) {
+                Log.d("Job cancelled before its process started");
+                return CommandResult.getDummyFailureResponse();
+            }
+            ProcessMonitor.LineListener outputListener = new ProcessMonitor.LineListener() {
+                @Override
+                public void onLine(String line) {
+                    if (spawnStats != null && firstLine.compareAndSet(true, false)) {
+                        spawnStats.onFirstOutput(System.nanoTime() - spawnStart);
+                    }
+                    output.append(line);
+                    if (logFileSink != null) {
+                        logFileSink.write(line);
+                    }
+                    publishLine(line);
+                    if (progressListener != null) {
+                        publishProgress(progressTracker.onLine(line));
+                    }
+                }
+            };
+            StreamPump inputPump = null;
+            if (input != null) {
+                inputPump = new StreamPump(input, Channels.newChannel(process.getOutputStream()), false, true).start();
+            }
+            StreamPump outputPump = null;
+            if (outputChannel != null) {
+                outputPump = new StreamPump(Channels.newChannel(process.getInputStream()), outputChannel, true, false).start();
+            }
+            int exitValue = new ProcessMonitor(process, timeout, stallTimeout >= 0 ? stallTimeout : defaultStallTimeout, outputListener, outputPump != null ? null : outputListener).waitFor();
+            if (outputPump != null && !awaitPump(outputPump)) {
+                Log.e("FFmpeg output not delivered in time");
+                exitValue = STREAM_ERROR_EXIT_VALUE;
+            }
+            if (outputPump != null && outputPump.getWriteError() != null) {
+                Log.e("Unable to write FFmpeg output", outputPump.getWriteError());
+                exitValue = STREAM_ERROR_EXIT_VALUE;
+            }
+            // write errors of the input pump only mean FFmpeg stopped reading, it reports its own failures
+            if (inputPump != null && inputPump.getReadError() != null) {
+                Log.e("Unable to read FFmpeg input", inputPump.getReadError());
+                exitValue = STREAM_ERROR_EXIT_VALUE;
+            }
+            job.onExit(exitValue);
+            if (progressListener != null) {
+                publishProgress(progressTracker.flush());
+            }
+            return new CommandResult(CommandResult.success(exitValue), "");
+        } catch (TimeoutException e) {
+            // the reason ends the output given to onFailure
+            Log.e(e.getMessage());
+            return new CommandResult(false, e.getMessage());
+        } catch (InterruptedException e) {
+            Log.d("FFmpeg command interrupted");
+        } catch (Exception e) {
+            Log.e("Error running FFmpeg", e);
+        } finally {
+            Util.destroyProcess(process);
+            Util.close(logFileSink);
+            if (threads > 0) {
+                threadBudget.release(threads);
+            }
+        }
+        return CommandResult.getDummyFailureResponse();
+    }
+
+    /**
+     * Waits until the output is written, within the timeout of the job and unless it is cancelled.
+     * Otherwise the pump is stopped before the job fails, so the output channel is not written after the callback.
+     * @return true if the whole output was written
+     */
+    private boolean awaitPump(StreamPump pump) throws InterruptedException {
+        long start = job.getStartTime();
+        long deadline = (timeout >= Long.MAX_VALUE - start) ? Long.MAX_VALUE : start + timeout;
+        while (!job.isFinished()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            if (pump.await(Math.min(remaining, PUMP_CHECK_INTERVAL))) {
+                return true;
+            }
+        }
+        pump.stop();
+        if (!pump.await(PUMP_STOP_TIMEOUT)) {
+            Log.e("FFmpeg output pump did not stop");
+        }
+        return false;
+    }
+
+    private void prepareCommand() {
+        if (commandPreparer == null) {
+            return;
+        }
+        String[] args = Arrays.copyOfRange(cmd, 1, cmd.length);
+        String[] prepared = commandPreparer.prepare(args);
+        if (prepared != null && prepared != args) {
+            String[] command = new String[prepared.length + 1];
+            command[0] = cmd[0];
+            System.arraycopy(prepared, 0, command, 1, prepared.length);
+            cmd = command;
+            job.setCommand(command);
+        }
+    }
+
+    /**
+     * Adds -threads before the output, the last argument, unless the command already sets it
+     * @return threads taken from the budget
+     */
+    private int acquireThreads() {
+        if (threadBudget == null || cmd.length < 2 || Arrays.asList(cmd).contains("-threads")) {
+            return 0;
+        }
+        int threads = threadBudget.acquire();
+        if (threads > 0) {
+            cmd = ThreadBudget.withThreads(cmd, threads);
+            job.setCommand(cmd);
+        }
+        return threads;
+    }
+
+    private void publishLine(final String line) {
+        if (ffmpegExecuteResponseHandler == null || job.isFinished()) {
+            return;
+        }
+        dispatcher.post(callbackExecutor, new Runnable() {
+            @Override
+            public void run() {
+                ffmpegExecuteResponseHandler.onProgress(line);
+            }
+        });
+    }
+
+    private void publishProgress(final ProgressEvent event) {
+        if (event == null || job.isFinished()) {
+            return;
+        }
+        dispatcher.post(callbackExecutor, new Runnable() {
+            @Override
+            public void run() {
+                progressListener.onProgress(event);
+            }
+        });
+    }
+
+    boolean isProcessCompleted() {
+        return Util.isProcessCompleted(process);
+    }
+
+    public String[] getCmd() {
+        return cmd;
+    }
+}
@@ -1,12 +1,13 @@
 package com.github.hiteshsondhi88.libffmpeg;
 
+import java.util.List;
 import java.util.Map;
 
 import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegCommandAlreadyRunningException;
 import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegNotSupportedException;
 
 @SuppressWarnings("unused")
-interface FFmpegInterface {
+interface FFmpegInterface extends ExecutionEngine {
 
     /**
      * Load binary to the device according to archituecture. This also updates FFmpeg binary if the binary on device have old version.
@@ -15,22 +16,66 @@ interface FFmpegInterface {
      */
     public void loadBinary(FFmpegLoadBinaryResponseHandler ffmpegLoadBinaryResponseHandler) throws FFmpegNotSupportedException;
 
+    /**
+     * Registers a binary bundled in the assets, {@link #loadBinary(FFmpegLoadBinaryResponseHandler)} installs
+     * the variant of each name best suited to the device ABIs and CPU features
+     * @param variant {@link BinaryVariant}
+     */
+    public void registerBinaryVariant(BinaryVariant variant);
+
+    /**
+     * @param name {@link BinaryVariant} name, e.g. {@link BinaryVariant#AUDIO}
+     * @return true once the last {@link #loadBinary(FFmpegLoadBinaryResponseHandler)} installed a variant with this name
+     */
+    public boolean isBinaryVariantInstalled(String name);
+
+    /**
+     * Start-up latency of the processes running a variant
+     * @param name {@link BinaryVariant} name, e.g. {@link BinaryVariant#FULL}
+     * @return {@link SpawnStats} of the variant
+     */
+    public SpawnStats getSpawnStats(String name);
+
     /**
      * Executes a command
      * @param environvenmentVars Environment variables
      * @param cmd command to execute
      * @param ffmpegExecuteResponseHandler {@link FFmpegExecuteResponseHandler}
+     * @return {@link ConversionJob} handle of the queued command
      * @throws FFmpegCommandAlreadyRunningException
      */
-    public void execute(Map<String, String> environvenmentVars, String[] cmd, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException;
+    public ConversionJob execute(Map<String, String> environvenmentVars, String[] cmd, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException;
+
+    /**
+     * Executes a command through the {@link FFmpegScheduler}
+     * @param environvenmentVars Environment variables
+     * @param cmd command to execute
+     * @param priority queue priority, see {@link FFmpegScheduler#PRIORITY_NORMAL}
+     * @param tag optional tag used to find or cancel related jobs, may be null
+     * @param ffmpegExecuteResponseHandler {@link FFmpegExecuteResponseHandler}
+     * @return {@link ConversionJob} handle of the queued command
+     * @throws FFmpegCommandAlreadyRunningException
+     */
+    public ConversionJob execute(Map<String, String> environvenmentVars, String[] cmd, int priority, String tag, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException;
+
+    /**
+     * Executes a command through the {@link FFmpegScheduler}
+     * @param cmd command to execute
+     * @param options {@link ExecuteOptions}
+     * @param ffmpegExecuteResponseHandler {@link FFmpegExecuteResponseHandler}
+     * @return {@link ConversionJob} handle of the queued command
+     * @throws FFmpegCommandAlreadyRunningException
+     */
+    public ConversionJob execute(String[] cmd, ExecuteOptions options, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException;
 
     /**
      * Executes a command
      * @param cmd command to execute
      * @param ffmpegExecuteResponseHandler {@link FFmpegExecuteResponseHandler}
+     * @return {@link ConversionJob} handle of the queued command
      * @throws FFmpegCommandAlreadyRunningException
      */
-    public void execute(String[] cmd, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException;
+    public ConversionJob execute(String[] cmd, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) throws FFmpegCommandAlreadyRunningException;
 
     /**
      * Tells FFmpeg version currently on device
@@ -39,6 +84,13 @@ interface FFmpegInterface {
      */
     public String getDeviceFFmpegVersion() throws FFmpegCommandAlreadyRunningException;
 
+    /**
+     * Runs {@code ffmpeg -i} on a file and waits for it, do not call it from the main thread
+     * @param inputPath file to inspect
+     * @return the input description printed by FFmpeg (duration, bitrate, streams)
+     */
+    public String probe(String inputPath);
+
     /**
      * Tells FFmpeg version shipped with current library
      * @return FFmpeg version shipped with Library
@@ -46,21 +98,71 @@ interface FFmpegInterface {
     public String getLibraryFFmpegVersion();
 
     /**
-     * Checks if FFmpeg command is Currently running
-     * @return true if FFmpeg command is running
+     * Checks if any FFmpeg command is Currently running
+     * @return true if at least one FFmpeg command is running
      */
     public boolean isFFmpegCommandRunning();
 
     /**
-     * Kill Running FFmpeg process
-     * @return true if process is killed successfully
+     * Kill every queued or running FFmpeg process
+     * @return true if at least one process is killed successfully
      */
     public boolean killRunningProcesses();
 
+    /**
+     * @return every queued or running job
+     */
+    public List<ConversionJob> getJobs();
+
+    /**
+     * @param tag tag given to {@link #execute(Map, String[], int, String, FFmpegExecuteResponseHandler)}
+     * @return queued or running jobs with the given tag
+     */
+    public List<ConversionJob> getJobs(String tag);
+
+    /**
+     * Cancels every queued or running job with the given tag
+     * @param tag tag given to {@link #execute(Map, String[], int, String, FFmpegExecuteResponseHandler)}
+     * @return number of cancelled jobs
+     */
+    public int cancelAll(String tag);
+
     /**
      * Timeout for FFmpeg process, should be minimum of 10 seconds
      * @param timeout in milliseconds
      */
     public void setTimeout(long timeout);
 
+    /**
+     * Kills FFmpeg processes printing nothing for this long, should be minimum of 10 seconds.
+     * Applies to every command without {@link ExecuteOptions#setStallTimeout(long)}, none by default
+     * @param stallTimeout in milliseconds
+     */
+    public void setStallTimeout(long stallTimeout);
+
+    /**
+     * Reads the binary once in the background after {@link #loadBinary(FFmpegLoadBinaryResponseHandler)}
+     * so the first command does not wait for it to be paged in, disabled by default
+     * @param warmUpBinary true to warm up the binary after loading it
+     */
+    public void setWarmUpBinary(boolean warmUpBinary);
+
+    /**
+     * Maximum number of FFmpeg processes running at the same time, defaults to the number of cores
+     * @param maxConcurrency at least 1
+     */
+    public void setMaxConcurrency(int maxConcurrency);
+
+    /**
+     * Scheduler running the FFmpeg commands, gives access to queue-wait and run-time statistics
+     * @return {@link FFmpegScheduler}
+     */
+    public FFmpegScheduler getScheduler();
+
+    /**
+     * Threads shared by the running FFmpeg processes, defaults to the number of cores
+     * @return {@link ThreadBudget}
+     */
+    public ThreadBudget getThreadBudget();
+
 }
@@ -4,50 +4,88 @@ import android.content.Context;
 import android.os.AsyncTask;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 class FFmpegLoadLibraryAsyncTask extends AsyncTask<Void, Void, Boolean> {
 
-    private final String cpuArchNameFromAssets;
-    private final FFmpegLoadBinaryResponseHandler ffmpegLoadBinaryResponseHandler;
     private final Context context;
+    private final List<BinaryVariant> variants;
+    private final Set<String> installedVariants;
+    private final boolean warmUp;
+    private final List<FFmpegLoadBinaryResponseHandler> handlers = new ArrayList<>();
+    private boolean finished;
 
-    FFmpegLoadLibraryAsyncTask(Context context, String cpuArchNameFromAssets, FFmpegLoadBinaryResponseHandler ffmpegLoadBinaryResponseHandler) {
+    /**
+     * @param variants variants to install, the first one is the {@link BinaryVariant#FULL} build the load depends on
+     * @param installedVariants receives the names of the variants ready to run
+     */
+    FFmpegLoadLibraryAsyncTask(Context context, List<BinaryVariant> variants, Set<String> installedVariants, boolean warmUp,
+                               FFmpegLoadBinaryResponseHandler ffmpegLoadBinaryResponseHandler) {
         this.context = context;
-        this.cpuArchNameFromAssets = cpuArchNameFromAssets;
-        this.ffmpegLoadBinaryResponseHandler = ffmpegLoadBinaryResponseHandler;
+        this.variants = variants;
+        this.installedVariants = installedVariants;
+        this.warmUp = warmUp;
+        addHandler(ffmpegLoadBinaryResponseHandler);
     }
 
-    @Override
-    protected Boolean doInBackground(Void... params) {
-        File ffmpegFile = new File(FileUtils.getFFmpeg(context));
-        if (ffmpegFile.exists() && isDeviceFFmpegVersionOld() && !ffmpegFile.delete()) {
+    /**
+     * Lets another caller share this load instead of starting a second one
+     * @return false if the load already finished, a new one has to be started
+     */
+    synchronized boolean addHandler(FFmpegLoadBinaryResponseHandler ffmpegLoadBinaryResponseHandler) {
+        if (finished || isCancelled()) {
             return false;
         }
-        if (!ffmpegFile.exists()) {
-            boolean isFileCopied = FileUtils.copyBinaryFromAssetsToData(context,
-                    cpuArchNameFromAssets + File.separator + FileUtils.ffmpegFileName,
-                    FileUtils.ffmpegFileName);
-
-            // make file executable
-            if (isFileCopied) {
-                if(!ffmpegFile.canExecute()) {
-                    Log.d("FFmpeg is not executable, trying to make it executable ...");
-                    if (ffmpegFile.setExecutable(true)) {
-                        return true;
-                    }
-                } else {
-                    Log.d("FFmpeg is executable");
-                    return true;
+        if (ffmpegLoadBinaryResponseHandler != null) {
+            handlers.add(ffmpegLoadBinaryResponseHandler);
+        }
+        return true;
+    }
+
+    @Override
+    protected Boolean doInBackground(Void... params) {
+        boolean success = true;
+        for (int i = 0; i < variants.size(); i++) {
+            BinaryVariant variant = variants.get(i);
+            BinaryInstaller installer = newInstaller(variant);
+            if (installer.install()) {
+                installedVariants.add(variant.getName());
+                if (warmUp) {
+                    installer.warmUpAsync();
                 }
+            } else {
+                installedVariants.remove(variant.getName());
+                // optional variants fall back to the full build
+                Log.w("Could not install FFmpeg " + variant);
+                success &= i > 0;
             }
         }
-        return ffmpegFile.exists() && ffmpegFile.canExecute();
+        return success;
+    }
+
+    private BinaryInstaller newInstaller(final BinaryVariant variant) {
+        return new BinaryInstaller(new File(FileUtils.getFFmpegVariant(context, variant.getName())), variant.getSha1(), new BinaryInstaller.Source() {
+            @Override
+            public InputStream open() throws IOException {
+                return context.getAssets().open(variant.getAssetPath());
+            }
+        });
     }
 
     @Override
     protected void onPostExecute(Boolean isSuccess) {
         super.onPostExecute(isSuccess);
-        if (ffmpegLoadBinaryResponseHandler != null) {
+        List<FFmpegLoadBinaryResponseHandler> waiting;
+        synchronized (this) {
+            finished = true;
+            waiting = new ArrayList<>(handlers);
+            handlers.clear();
+        }
+        for (FFmpegLoadBinaryResponseHandler ffmpegLoadBinaryResponseHandler : waiting) {
             if (isSuccess) {
                 ffmpegLoadBinaryResponseHandler.onSuccess();
             } else {
@@ -57,7 +95,12 @@ class FFmpegLoadLibraryAsyncTask extends AsyncTask<Void, Void, Boolean> {
         }
     }
 
-    private boolean isDeviceFFmpegVersionOld() {
-        return CpuArch.fromString(FileUtils.SHA1(FileUtils.getFFmpeg(context))).equals(CpuArch.NONE);
+    @Override
+    protected void onCancelled() {
+        super.onCancelled();
+        synchronized (this) {
+            finished = true;
+            handlers.clear();
+        }
     }
 }
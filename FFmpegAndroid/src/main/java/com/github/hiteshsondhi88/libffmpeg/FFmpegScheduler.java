@@ -0,0 +1,149 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs FFmpeg jobs with a bounded number of concurrent processes.
+ * Queued jobs are started by priority (highest first) and then in submission order.
+ */
+@SuppressWarnings("unused")
+public class FFmpegScheduler {
+
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final SchedulerStats stats = new SchedulerStats();
+
+    public FFmpegScheduler() {
+        this(defaultConcurrency());
+    }
+
+    public FFmpegScheduler(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new SchedulerThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return number of available cores, used when no concurrency limit is given
+     */
+    public static int defaultConcurrency() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    public synchronized void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        // the pool refuses a core size bigger than the maximum, so grow and shrink in the right order
+        if (maxConcurrency > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(maxConcurrency);
+            executor.setCorePoolSize(maxConcurrency);
+        } else {
+            executor.setCorePoolSize(maxConcurrency);
+            executor.setMaximumPoolSize(maxConcurrency);
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Queues a job
+     * @param task job to run
+     * @param priority one of the PRIORITY_ constants or any other int, higher runs first
+     */
+    public void submit(Runnable task, int priority) {
+        if (task == null) {
+            throw new IllegalArgumentException("task cannot be null");
+        }
+        stats.onQueued();
+        executor.execute(new PrioritizedTask(task, priority, sequence.getAndIncrement()));
+    }
+
+    /**
+     * @param priority priority given to every job passed to the returned executor
+     * @return an {@link Executor} view of this scheduler
+     */
+    public Executor executor(final int priority) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                submit(command, priority);
+            }
+        };
+    }
+
+    public SchedulerStats getStats() {
+        return stats;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getRunningCount() {
+        return executor.getActiveCount();
+    }
+
+    private class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+        private final Runnable task;
+        private final int priority;
+        private final long sequenceNumber;
+        private final long queuedAt;
+
+        PrioritizedTask(Runnable task, int priority, long sequenceNumber) {
+            this.task = task;
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+            this.queuedAt = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            stats.onStarted(startedAt - queuedAt);
+            try {
+                task.run();
+            } finally {
+                stats.onFinished(System.nanoTime() - startedAt);
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return sequenceNumber < other.sequenceNumber ? -1 : (sequenceNumber == other.sequenceNumber ? 0 : 1);
+        }
+    }
+
+    private static class SchedulerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "FFmpegScheduler #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import android.content.Context;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
@@ -17,34 +16,6 @@ public class FileUtils {
 
     static final String ffmpegFileName = "ffmpeg";
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
-    private static final int EOF = -1;
-
-    static boolean copyBinaryFromAssetsToData(Context context, String fileNameFromAssets, String outputFileName) {
-		
-		// create files directory under /data/data/package name
-		File filesDirectory = getFilesDirectory(context);
-		
-		InputStream is;
-		try {
-			is = context.getAssets().open(fileNameFromAssets);
-			// copy ffmpeg file from assets to files dir
-			final FileOutputStream os = new FileOutputStream(new File(filesDirectory, outputFileName));
-			byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-			
-			int n;
-			while(EOF != (n = is.read(buffer))) {
-				os.write(buffer, 0, n);
-			}
-
-            Util.close(os);
-            Util.close(is);
-			
-			return true;
-		} catch (IOException e) {
-			Log.e("issue in coping binary from assets to data. ", e);
-		}
-        return false;
-	}
 
 	static File getFilesDirectory(Context context) {
 		// creates files directory under data/data/package name
@@ -52,17 +23,29 @@ public class FileUtils {
 	}
 
     static String getFFmpeg(Context context) {
-        return getFilesDirectory(context).getAbsolutePath() + File.separator + FileUtils.ffmpegFileName;
+        return getFFmpegVariant(context, BinaryVariant.FULL);
+    }
+
+    /**
+     * @return installed binary of the variant: ffmpeg for the full build, ffmpeg-NAME for the others
+     */
+    static String getFFmpegVariant(Context context, String variant) {
+        String fileName = BinaryVariant.FULL.equals(variant) ? ffmpegFileName : ffmpegFileName + "-" + variant;
+        return getFilesDirectory(context).getAbsolutePath() + File.separator + fileName;
     }
 
     public static String getFFmpeg(Context context, Map<String,String> environmentVars) {
+        return getFFmpeg(context, environmentVars, BinaryVariant.FULL);
+    }
+
+    static String getFFmpeg(Context context, Map<String,String> environmentVars, String variant) {
         String ffmpegCommand = "";
         if (environmentVars != null) {
             for (Map.Entry<String, String> var : environmentVars.entrySet()) {
                 ffmpegCommand += var.getKey()+"="+var.getValue()+" ";
             }
         }
-        ffmpegCommand += getFFmpeg(context);
+        ffmpegCommand += getFFmpegVariant(context, variant);
         return ffmpegCommand;
     }
 
@@ -0,0 +1,127 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.List;
+
+/**
+ * Runs a local FFmpeg binary on a plain JVM, without an Android device: server-side conversions,
+ * batch workers and load tests. Callbacks run on the scheduler threads unless an executor is given.
+ * <p>
+ * Binary variants and environment variables are not supported, every command runs the given binary.
+ */
+@SuppressWarnings("unused")
+public class HostExecutionEngine implements ExecutionEngine {
+
+    private final String ffmpegPath;
+    private final FFmpegScheduler scheduler;
+    private final ThreadBudget threadBudget;
+    private final JobRegistry jobRegistry = new JobRegistry();
+    private long timeout = Long.MAX_VALUE;
+    private long stallTimeout = Long.MAX_VALUE;
+
+    /**
+     * @param ffmpegPath FFmpeg binary, e.g. /usr/bin/ffmpeg or just ffmpeg to look it up in the PATH
+     */
+    public HostExecutionEngine(String ffmpegPath) {
+        this(ffmpegPath, FFmpegScheduler.defaultConcurrency());
+    }
+
+    /**
+     * @param ffmpegPath FFmpeg binary, e.g. /usr/bin/ffmpeg or just ffmpeg to look it up in the PATH
+     * @param maxConcurrency maximum number of FFmpeg processes running at the same time
+     */
+    public HostExecutionEngine(String ffmpegPath, int maxConcurrency) {
+        this.ffmpegPath = ffmpegPath;
+        this.scheduler = new FFmpegScheduler(maxConcurrency);
+        this.threadBudget = new ThreadBudget(scheduler);
+    }
+
+    /**
+     * Timeout for each FFmpeg process, none by default
+     * @param timeout in milliseconds
+     */
+    public HostExecutionEngine setTimeout(long timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Kills processes printing nothing for this long, none by default
+     * @param stallTimeout in milliseconds
+     */
+    public HostExecutionEngine setStallTimeout(long stallTimeout) {
+        this.stallTimeout = stallTimeout;
+        return this;
+    }
+
+    /**
+     * Prints the library log on stderr
+     */
+    public HostExecutionEngine setDebug(boolean debug) {
+        Log.setDEBUG(debug);
+        return this;
+    }
+
+    @Override
+    public ConversionJob execute(String[] cmd, ExecuteOptions options, FFmpegExecuteResponseHandler ffmpegExecuteResponseHandler) {
+        if (cmd.length == 0) {
+            throw new IllegalArgumentException("shell command cannot be empty");
+        }
+        if (!options.hasCallbackExecutor()) {
+            // there is no main thread to post to, the caller's options are left untouched
+            options = options.copy().setCallbackExecutor(CallbackExecutors.direct());
+        }
+        String[] command = new String[cmd.length + 1];
+        command[0] = ffmpegPath;
+        System.arraycopy(cmd, 0, command, 1, cmd.length);
+        ConversionJob job = new ConversionJob(options.getTag(), command);
+        FFmpegExecuteTask ffmpegExecuteTask = new FFmpegExecuteTask(command, timeout, job, options, ffmpegExecuteResponseHandler);
+        ffmpegExecuteTask.setThreadBudget(threadBudget);
+        ffmpegExecuteTask.setDefaultStallTimeout(stallTimeout);
+        job.attach(jobRegistry);
+        jobRegistry.add(job);
+        ffmpegExecuteTask.onQueued();
+        scheduler.submit(ffmpegExecuteTask, options.getPriority());
+        return job;
+    }
+
+    @Override
+    public String probe(String inputPath) {
+        // without output file FFmpeg prints the input header and exits with an error
+        return new ShellCommand().runWaitForOutput(new String[] { ffmpegPath, "-hide_banner", "-i", inputPath }).output;
+    }
+
+    @Override
+    public boolean isBinaryVariantInstalled(String name) {
+        return BinaryVariant.FULL.equals(name);
+    }
+
+    @Override
+    public int cancelAll(String tag) {
+        return jobRegistry.cancelAll(tag);
+    }
+
+    /**
+     * Kills every queued or running FFmpeg process
+     * @return number of cancelled jobs
+     */
+    public int cancelAll() {
+        return jobRegistry.cancelAll();
+    }
+
+    /**
+     * @return every queued or running job
+     */
+    public List<ConversionJob> getJobs() {
+        return jobRegistry.getJobs();
+    }
+
+    @Override
+    public FFmpegScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public ThreadBudget getThreadBudget() {
+        return threadBudget;
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handle of a conversion made of several FFmpeg jobs, or done without FFmpeg.
+ * Cancelling the group cancels every step, and cancelling a step, e.g. through a tag, cancels the group.
+ * Like single jobs, cancelled groups get no callback.
+ */
+@SuppressWarnings("unused")
+public class JobGroup extends ConversionJob {
+
+    private final List<ConversionJob> steps = new ArrayList<>();
+
+    public JobGroup(String tag) {
+        super(tag, new String[0]);
+    }
+
+    /**
+     * Adds a step, cancelled right away if the group is already finished
+     */
+    public void add(ConversionJob step) {
+        synchronized (steps) {
+            if (!isFinished()) {
+                steps.add(step);
+                step.setGroup(this);
+                if (step.getState() != JobState.CANCELLED) {
+                    return;
+                }
+            }
+        }
+        step.cancel();
+        if (step.getState() == JobState.CANCELLED) {
+            cancel();
+        }
+    }
+
+    /**
+     * Marks the group as running
+     * @return false if the group was cancelled while queued
+     */
+    public boolean start() {
+        return onStarted(null);
+    }
+
+    /**
+     * Marks the group as finished, the steps still running are cancelled
+     * @return false if the group was already finished, e.g. cancelled, and its callback must not be called
+     */
+    public boolean finish(boolean success) {
+        synchronized (this) {
+            if (isFinished()) {
+                return false;
+            }
+            onFinished(success);
+        }
+        cancelSteps();
+        return true;
+    }
+
+    @Override
+    public boolean cancel() {
+        if (!super.cancel()) {
+            return false;
+        }
+        cancelSteps();
+        onCancelled();
+        return true;
+    }
+
+    /**
+     * Called once when the group is cancelled, e.g. to remove temporary files
+     */
+    protected void onCancelled() {
+    }
+
+    public List<ConversionJob> getSteps() {
+        synchronized (steps) {
+            return new ArrayList<>(steps);
+        }
+    }
+
+    private void cancelSteps() {
+        for (ConversionJob step : getSteps()) {
+            step.cancel();
+        }
+    }
+}
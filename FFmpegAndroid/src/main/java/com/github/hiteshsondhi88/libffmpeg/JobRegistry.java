@@ -0,0 +1,62 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every queued or running {@link ConversionJob}. Jobs remove themselves once they finish.
+ */
+class JobRegistry {
+
+    private final ConcurrentHashMap<Long, ConversionJob> jobs = new ConcurrentHashMap<>();
+
+    void add(ConversionJob job) {
+        jobs.put(job.getId(), job);
+    }
+
+    void remove(ConversionJob job) {
+        jobs.remove(job.getId());
+    }
+
+    List<ConversionJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    List<ConversionJob> getJobs(String tag) {
+        List<ConversionJob> tagged = new ArrayList<>();
+        for (ConversionJob job : jobs.values()) {
+            if (tag == null ? job.getTag() == null : tag.equals(job.getTag())) {
+                tagged.add(job);
+            }
+        }
+        return tagged;
+    }
+
+    boolean hasRunningJobs() {
+        for (ConversionJob job : jobs.values()) {
+            if (job.isRunning()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int cancelAll() {
+        return cancel(getJobs());
+    }
+
+    int cancelAll(String tag) {
+        return cancel(getJobs(tag));
+    }
+
+    private static int cancel(List<ConversionJob> toCancel) {
+        int cancelled = 0;
+        for (ConversionJob job : toCancel) {
+            if (job.cancel()) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+}
@@ -5,6 +5,8 @@ class Log {
 
     private static String TAG = FFmpeg.class.getSimpleName();
     private static boolean DEBUG = false;
+    // android.util.Log is missing on plain JVMs, see HostExecutionEngine
+    private static final boolean ANDROID = "Dalvik".equals(System.getProperty("java.vm.name"));
 
     static void setDEBUG(boolean DEBUG) {
         Log.DEBUG = DEBUG;
@@ -16,44 +18,78 @@ class Log {
 
     static void d(Object obj) {
         if (DEBUG) {
-            android.util.Log.d(TAG, obj != null ? obj.toString() : null+"");
+            if (ANDROID) {
+                android.util.Log.d(TAG, obj != null ? obj.toString() : null+"");
+            } else {
+                print("D", obj, null);
+            }
         }
     }
 
     static void e(Object obj) {
         if (DEBUG) {
-            android.util.Log.e(TAG, obj != null ? obj.toString() : null+"");
+            if (ANDROID) {
+                android.util.Log.e(TAG, obj != null ? obj.toString() : null+"");
+            } else {
+                print("E", obj, null);
+            }
         }
     }
 
     static void w(Object obj) {
         if (DEBUG) {
-            android.util.Log.w(TAG, obj != null ? obj.toString() : null+"");
+            if (ANDROID) {
+                android.util.Log.w(TAG, obj != null ? obj.toString() : null+"");
+            } else {
+                print("W", obj, null);
+            }
         }
     }
 
     static void i(Object obj) {
         if (DEBUG) {
-            android.util.Log.i(TAG, obj != null ? obj.toString() : null+"");
+            if (ANDROID) {
+                android.util.Log.i(TAG, obj != null ? obj.toString() : null+"");
+            } else {
+                print("I", obj, null);
+            }
         }
     }
 
     static void v(Object obj) {
         if (DEBUG) {
-            android.util.Log.v(TAG, obj != null ? obj.toString() : null+"");
+            if (ANDROID) {
+                android.util.Log.v(TAG, obj != null ? obj.toString() : null+"");
+            } else {
+                print("V", obj, null);
+            }
         }
     }
 
     static void e(Object obj, Throwable throwable) {
         if (DEBUG) {
-            android.util.Log.e(TAG, obj != null ? obj.toString() : null+"", throwable);
+            if (ANDROID) {
+                android.util.Log.e(TAG, obj != null ? obj.toString() : null+"", throwable);
+            } else {
+                print("E", obj, throwable);
+            }
         }
     }
 
     static void e(Throwable throwable) {
         if (DEBUG) {
-            android.util.Log.e(TAG, "", throwable);
+            if (ANDROID) {
+                android.util.Log.e(TAG, "", throwable);
+            } else {
+                print("E", "", throwable);
+            }
         }
     }
 
+    private static void print(String level, Object obj, Throwable throwable) {
+        System.err.println(level + "/" + TAG + ": " + obj);
+        if (throwable != null) {
+            throwable.printStackTrace();
+        }
+    }
 }
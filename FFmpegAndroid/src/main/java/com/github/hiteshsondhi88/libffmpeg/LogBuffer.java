@@ -0,0 +1,90 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+/**
+ * Line oriented ring buffer keeping only the last lines of a process output,
+ * so the memory used by a job does not grow with the length of the encode.
+ */
+class LogBuffer {
+
+    static final int DEFAULT_MAX_LINES = 500;
+    static final int DEFAULT_MAX_CHARS = 64 * 1024;
+
+    private final String[] lines;
+    private final int maxChars;
+    private int head;
+    private int size;
+    private int chars;
+    private long droppedLines;
+
+    LogBuffer() {
+        this(DEFAULT_MAX_LINES, DEFAULT_MAX_CHARS);
+    }
+
+    LogBuffer(int maxLines, int maxChars) {
+        if (maxLines < 1 || maxChars < 1) {
+            throw new IllegalArgumentException("log buffer limits must be positive");
+        }
+        this.lines = new String[maxLines];
+        this.maxChars = maxChars;
+    }
+
+    synchronized void append(String line) {
+        if (line.length() > maxChars) {
+            line = line.substring(line.length() - maxChars);
+        }
+        while (size == lines.length || (size > 0 && chars + line.length() > maxChars)) {
+            dropOldest();
+        }
+        lines[(head + size) % lines.length] = line;
+        size++;
+        chars += line.length();
+    }
+
+    /**
+     * Appends every line of a multi-line text
+     */
+    synchronized void appendAll(String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) != -1) {
+            append(text.substring(start, end));
+            start = end + 1;
+        }
+        if (start < text.length()) {
+            append(text.substring(start));
+        }
+    }
+
+    synchronized int getLineCount() {
+        return size;
+    }
+
+    synchronized long getDroppedLineCount() {
+        return droppedLines;
+    }
+
+    /**
+     * @return the retained lines, preceded by a marker when older lines have been dropped
+     */
+    synchronized String getSummary() {
+        StringBuilder sb = new StringBuilder(chars + size + 40);
+        if (droppedLines > 0) {
+            sb.append("[... ").append(droppedLines).append(" earlier lines dropped ...]\n");
+        }
+        for (int i = 0; i < size; i++) {
+            sb.append(lines[(head + i) % lines.length]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void dropOldest() {
+        chars -= lines[head].length();
+        lines[head] = null;
+        head = (head + 1) % lines.length;
+        size--;
+        droppedLines++;
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Streams every output line of a job to a file. Writing errors disable the sink instead of failing the job.
+ */
+class LogFileSink implements Closeable {
+
+    private Writer writer;
+
+    LogFileSink(File file) {
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        } catch (IOException e) {
+            Log.e("unable to open log file " + file, e);
+        }
+    }
+
+    synchronized void write(String line) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            Log.e("unable to write log file, disabling it", e);
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Do nothing
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Follows a running process without polling: stdout and stderr are drained by dedicated reader threads,
+ * the calling thread blocks in {@link Process#waitFor()} and the deadline and stall timeout are enforced by the
+ * {@link ProcessWatchdog}. Every output line counts as progress.
+ */
+class ProcessMonitor {
+
+    interface LineListener {
+        void onLine(String line);
+    }
+
+    /**
+     * Once the process exited, how long to wait for the readers to reach the end of the streams
+     */
+    private static final long READER_JOIN_TIMEOUT = 5 * 1000;
+
+    private static final ExecutorService readers = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "FFmpeg reader #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Process process;
+    private final long timeout;
+    private final long stallTimeout;
+    private final LineListener stderrListener;
+    private final LineListener stdoutListener;
+    private final CountDownLatch readersDone;
+    private volatile ProcessWatchdog.Reason killReason;
+    private ProcessWatchdog.Watch watch;
+
+    /**
+     * @param timeout in milliseconds, Long.MAX_VALUE for none
+     * @param stderrListener receives every stderr line, may be null
+     * @param stdoutListener receives every stdout line, null leaves stdout to the caller (e.g. binary pipe output)
+     */
+    ProcessMonitor(Process process, long timeout, LineListener stderrListener, LineListener stdoutListener) {
+        this(process, timeout, Long.MAX_VALUE, stderrListener, stdoutListener);
+    }
+
+    /**
+     * @param timeout in milliseconds, Long.MAX_VALUE for none
+     * @param stallTimeout longest time without output in milliseconds, Long.MAX_VALUE for none
+     * @param stderrListener receives every stderr line, may be null
+     * @param stdoutListener receives every stdout line, null leaves stdout to the caller (e.g. binary pipe output)
+     */
+    ProcessMonitor(Process process, long timeout, long stallTimeout, LineListener stderrListener, LineListener stdoutListener) {
+        this.process = process;
+        this.timeout = timeout;
+        this.stallTimeout = stallTimeout;
+        this.stderrListener = stderrListener;
+        this.stdoutListener = stdoutListener;
+        this.readersDone = new CountDownLatch(stdoutListener != null ? 2 : 1);
+    }
+
+    /**
+     * Blocks until the process exits, without consuming CPU
+     * @return exit value of the process
+     * @throws TimeoutException if the watchdog killed the process, its message tells why
+     * @throws InterruptedException if the calling thread is interrupted, the process is left to the caller
+     */
+    int waitFor() throws TimeoutException, InterruptedException {
+        watch = ProcessWatchdog.getInstance().watch(process, timeout, stallTimeout, new ProcessWatchdog.Listener() {
+            @Override
+            public void onKill(ProcessWatchdog.Reason reason) {
+                killReason = reason;
+            }
+        });
+        try {
+            startReader(process.getErrorStream(), stderrListener);
+            if (stdoutListener != null) {
+                startReader(process.getInputStream(), stdoutListener);
+            }
+            int exitValue = process.waitFor();
+            ProcessWatchdog.Reason reason = killReason;
+            if (reason != null) {
+                // the output of a killed process is not worth waiting for
+                throw new TimeoutException(reason == ProcessWatchdog.Reason.TIMEOUT
+                        ? "FFmpeg timed out after " + timeout + " ms"
+                        : "FFmpeg stalled, no output for " + stallTimeout + " ms");
+            }
+            readersDone.await(READER_JOIN_TIMEOUT, TimeUnit.MILLISECONDS);
+            return exitValue;
+        } finally {
+            watch.cancel();
+        }
+    }
+
+    boolean isTimedOut() {
+        return killReason != null;
+    }
+
+    /**
+     * @return why the watchdog killed the process, null if it did not
+     */
+    ProcessWatchdog.Reason getKillReason() {
+        return killReason;
+    }
+
+    private void startReader(final InputStream stream, final LineListener listener) {
+        readers.execute(new Runnable() {
+            @Override
+            public void run() {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        watch.onActivity();
+                        if (listener != null) {
+                            listener.onLine(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    // stream closed because the process has been destroyed
+                    Log.d("FFmpeg output stream closed: " + e.getMessage());
+                } finally {
+                    Util.close(stream);
+                    readersDone.countDown();
+                }
+            }
+        });
+    }
+}
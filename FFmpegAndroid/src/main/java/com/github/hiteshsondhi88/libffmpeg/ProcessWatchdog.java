@@ -0,0 +1,177 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single timer thread shared by every running process, killing the ones that exceed their deadline
+ * or stop printing anything for longer than their stall timeout.
+ * <p>
+ * While processes are watched, one periodic check looks at all of them. A process past its limits is asked
+ * to stop with {@link Process#destroy()} (SIGTERM) so FFmpeg can close its output, and killed with
+ * {@link Process#destroyForcibly()} (SIGKILL) if it is still alive after the grace period.
+ */
+class ProcessWatchdog {
+
+    enum Reason {
+        TIMEOUT,
+        STALLED
+    }
+
+    interface Listener {
+        /**
+         * Called on the watchdog thread right before the process is asked to stop
+         */
+        void onKill(Reason reason);
+    }
+
+    static final long CHECK_INTERVAL = 250;
+    static final long KILL_GRACE_PERIOD = 5 * 1000;
+
+    private static final ProcessWatchdog instance = new ProcessWatchdog(CHECK_INTERVAL, KILL_GRACE_PERIOD);
+
+    private final long checkInterval;
+    private final long killGracePeriod;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Set<Watch> watches = new LinkedHashSet<>();
+    private ScheduledFuture<?> check;
+
+    private final Runnable checkAll = new Runnable() {
+        @Override
+        public void run() {
+            checkAll();
+        }
+    };
+
+    ProcessWatchdog(long checkInterval, long killGracePeriod) {
+        this.checkInterval = checkInterval;
+        this.killGracePeriod = killGracePeriod;
+        timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FFmpeg watchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    static ProcessWatchdog getInstance() {
+        return instance;
+    }
+
+    /**
+     * Watches the process until the returned watch is cancelled
+     * @param timeoutMillis wall-clock limit, Long.MAX_VALUE for none
+     * @param stallTimeoutMillis longest time without {@link Watch#onActivity()}, Long.MAX_VALUE for none
+     * @param listener told why the process is killed
+     */
+    Watch watch(Process process, long timeoutMillis, long stallTimeoutMillis, Listener listener) {
+        Watch watch = new Watch(process, timeoutMillis, stallTimeoutMillis, listener);
+        if (timeoutMillis == Long.MAX_VALUE && stallTimeoutMillis == Long.MAX_VALUE) {
+            return watch;
+        }
+        synchronized (watches) {
+            watches.add(watch);
+            if (check == null) {
+                check = timer.scheduleWithFixedDelay(checkAll, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+        return watch;
+    }
+
+    /**
+     * @return number of processes being watched
+     */
+    int getWatchCount() {
+        synchronized (watches) {
+            return watches.size();
+        }
+    }
+
+    private void remove(Watch watch) {
+        synchronized (watches) {
+            if (watches.remove(watch) && watches.isEmpty() && check != null) {
+                check.cancel(false);
+                check = null;
+            }
+        }
+    }
+
+    private void checkAll() {
+        List<Watch> current;
+        synchronized (watches) {
+            current = new ArrayList<>(watches);
+        }
+        long now = System.nanoTime();
+        for (Watch watch : current) {
+            watch.check(now);
+        }
+    }
+
+    class Watch {
+
+        private final Process process;
+        private final long deadline;
+        private final long stallTimeoutNanos;
+        private final Listener listener;
+        private volatile long lastActivity = System.nanoTime();
+        private boolean destroyed;
+        private long destroyedAt;
+        private boolean forced;
+
+        private Watch(Process process, long timeoutMillis, long stallTimeoutMillis, Listener listener) {
+            long now = System.nanoTime();
+            this.process = process;
+            this.deadline = timeoutMillis == Long.MAX_VALUE ? Long.MAX_VALUE : now + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            this.stallTimeoutNanos = stallTimeoutMillis == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis);
+            this.listener = listener;
+        }
+
+        /**
+         * Tells the watchdog the process made progress, e.g. printed a line
+         */
+        void onActivity() {
+            lastActivity = System.nanoTime();
+        }
+
+        void cancel() {
+            remove(this);
+        }
+
+        private void check(long now) {
+            if (destroyed) {
+                if (Util.isProcessCompleted(process)) {
+                    remove(this);
+                } else if (!forced && now - destroyedAt >= TimeUnit.MILLISECONDS.toNanos(killGracePeriod)) {
+                    Log.d("FFmpeg process ignored SIGTERM, killing it");
+                    forced = true;
+                    process.destroyForcibly();
+                }
+                return;
+            }
+            Reason reason = null;
+            if (deadline != Long.MAX_VALUE && now - deadline >= 0) {
+                reason = Reason.TIMEOUT;
+            } else if (stallTimeoutNanos != Long.MAX_VALUE && now - lastActivity >= stallTimeoutNanos) {
+                reason = Reason.STALLED;
+            }
+            if (reason != null) {
+                Log.d("FFmpeg process " + (reason == Reason.TIMEOUT ? "exceeded its deadline" : "stalled") + ", stopping it");
+                if (listener != null) {
+                    listener.onKill(reason);
+                }
+                destroyed = true;
+                destroyedAt = now;
+                Util.destroyProcess(process);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+/**
+ * Progress of a running FFmpeg command, built from its statistics output.
+ * Values FFmpeg did not report are -1.
+ */
+@SuppressWarnings("unused")
+public class ProgressEvent {
+
+    private final long frame;
+    private final double fps;
+    private final long timeMillis;
+    private final double speed;
+    private final double bitrateKbps;
+    private final long sizeKb;
+    private final long durationMillis;
+    private final long etaMillis;
+
+    ProgressEvent(long frame, double fps, long timeMillis, double speed, double bitrateKbps, long sizeKb,
+                  long durationMillis, long etaMillis) {
+        this.frame = frame;
+        this.fps = fps;
+        this.timeMillis = timeMillis;
+        this.speed = speed;
+        this.bitrateKbps = bitrateKbps;
+        this.sizeKb = sizeKb;
+        this.durationMillis = durationMillis;
+        this.etaMillis = etaMillis;
+    }
+
+    /**
+     * @return number of encoded video frames, -1 for audio only outputs
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    public double getFps() {
+        return fps;
+    }
+
+    /**
+     * @return position reached in the output, in milliseconds
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return encoding speed relative to realtime, 2.0 means twice as fast as playback
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    public double getBitrateKbps() {
+        return bitrateKbps;
+    }
+
+    public long getSizeKb() {
+        return sizeKb;
+    }
+
+    /**
+     * @return duration of the input in milliseconds, -1 if unknown
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return completion between 0 and 100, -1 if the input duration is unknown
+     */
+    public float getPercent() {
+        if (durationMillis <= 0 || timeMillis < 0) {
+            return -1;
+        }
+        return Math.min(100f, timeMillis * 100f / durationMillis);
+    }
+
+    /**
+     * @return estimated remaining time in milliseconds, -1 if unknown
+     */
+    public long getEtaMillis() {
+        return etaMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ProgressEvent{time=" + timeMillis + "ms, duration=" + durationMillis + "ms, percent=" + getPercent()
+                + ", frame=" + frame + ", fps=" + fps + ", speed=" + speed + "x, bitrate=" + bitrateKbps
+                + "kbps, size=" + sizeKb + "kB, eta=" + etaMillis + "ms}";
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+public interface ProgressListener {
+
+    /**
+     * on Progress, coalesced to at most one call per {@link ExecuteOptions#setProgressInterval(long)}
+     * @param event typed progress of the FFmpeg command
+     */
+    public void onProgress(ProgressEvent event);
+
+}
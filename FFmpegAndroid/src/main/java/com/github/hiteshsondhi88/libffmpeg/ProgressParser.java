@@ -0,0 +1,182 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+/**
+ * Parses FFmpeg statistics without regular expressions nor substrings, as it runs for every output line.
+ * Understands both the stderr status line ({@code frame= 12 fps=25 ... time=00:00:01.20 bitrate= 64.0kbits/s speed=1.1x})
+ * and the {@code -progress pipe:} stream (one key=value per line, ending with {@code progress=continue|end}).
+ * It also remembers the first input {@code Duration:} printed in the FFmpeg header.
+ */
+class ProgressParser {
+
+    private static final String DURATION = "Duration:";
+
+    long frame = -1;
+    double fps = -1;
+    long timeMillis = -1;
+    double speed = -1;
+    double bitrateKbps = -1;
+    long sizeKb = -1;
+    long durationMillis = -1;
+
+    /**
+     * @return true if the line completed a progress update
+     */
+    boolean parse(String line) {
+        int length = line.length();
+        int start = skipSpaces(line, 0, length);
+        if (durationMillis < 0 && line.startsWith(DURATION, start)) {
+            int valueStart = skipSpaces(line, start + DURATION.length(), length);
+            durationMillis = parseTime(line, valueStart, tokenEnd(line, valueStart, length));
+            return false;
+        }
+
+        int pairs = 0;
+        boolean progressKey = false;
+        int position = start;
+        while (position < length) {
+            int equals = line.indexOf('=', position);
+            if (equals <= position) {
+                break;
+            }
+            int keyStart = position;
+            int keyEnd = equals;
+            int valueStart = skipSpaces(line, equals + 1, length);
+            int valueEnd = tokenEnd(line, valueStart, length);
+            if (!isKey(line, keyStart, keyEnd)) {
+                // not a statistics line, e.g. an error message containing '='
+                return false;
+            }
+            readPair(line, keyStart, keyEnd, valueStart, valueEnd);
+            progressKey = matches(line, keyStart, keyEnd, "progress");
+            pairs++;
+            position = skipSpaces(line, valueEnd, length);
+        }
+        // a status line carries every value at once, the progress stream ends each block with progress=
+        return (pairs > 1 && timeMillis >= 0) || progressKey;
+    }
+
+    private void readPair(String line, int keyStart, int keyEnd, int valueStart, int valueEnd) {
+        if (matches(line, keyStart, keyEnd, "frame")) {
+            frame = (long) parseNumber(line, valueStart, valueEnd);
+        } else if (matches(line, keyStart, keyEnd, "fps")) {
+            fps = parseNumber(line, valueStart, valueEnd);
+        } else if (matches(line, keyStart, keyEnd, "time") || matches(line, keyStart, keyEnd, "out_time")) {
+            timeMillis = parseTime(line, valueStart, valueEnd);
+        } else if (matches(line, keyStart, keyEnd, "out_time_us")) {
+            double micros = parseNumber(line, valueStart, valueEnd);
+            timeMillis = micros < 0 ? -1 : (long) (micros / 1000);
+        } else if (matches(line, keyStart, keyEnd, "speed")) {
+            speed = parseNumber(line, valueStart, valueEnd);
+        } else if (matches(line, keyStart, keyEnd, "bitrate")) {
+            bitrateKbps = parseNumber(line, valueStart, valueEnd);
+        } else if (matches(line, keyStart, keyEnd, "size") || matches(line, keyStart, keyEnd, "Lsize")) {
+            sizeKb = (long) parseNumber(line, valueStart, valueEnd);
+        } else if (matches(line, keyStart, keyEnd, "total_size")) {
+            double bytes = parseNumber(line, valueStart, valueEnd);
+            sizeKb = bytes < 0 ? -1 : (long) (bytes / 1024);
+        }
+    }
+
+    private static boolean isKey(String line, int keyStart, int keyEnd) {
+        for (int i = keyStart; i < keyEnd; i++) {
+            char c = line.charAt(i);
+            if (!(c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String line, int keyStart, int keyEnd, String key) {
+        return keyEnd - keyStart == key.length() && line.regionMatches(keyStart, key, 0, key.length());
+    }
+
+    private static int skipSpaces(String line, int position, int length) {
+        while (position < length && line.charAt(position) == ' ') {
+            position++;
+        }
+        return position;
+    }
+
+    private static int tokenEnd(String line, int position, int length) {
+        while (position < length) {
+            char c = line.charAt(position);
+            if (c == ' ' || c == ',' || c == '\t') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Parses the leading decimal number of a value such as {@code 203.6kbits/s} or {@code 1.02x}
+     * @return the number, -1 when the value is not a number (e.g. N/A)
+     */
+    static double parseNumber(String line, int start, int end) {
+        boolean negative = false;
+        if (start < end && line.charAt(start) == '-') {
+            negative = true;
+            start++;
+        }
+        long integerPart = 0;
+        long fraction = 0;
+        long divisor = 1;
+        boolean digits = false;
+        boolean inFraction = false;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (inFraction) {
+                    if (divisor < 1000000000L) {
+                        fraction = fraction * 10 + (c - '0');
+                        divisor *= 10;
+                    }
+                } else {
+                    integerPart = integerPart * 10 + (c - '0');
+                }
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else {
+                break;
+            }
+        }
+        if (!digits) {
+            return -1;
+        }
+        double value = integerPart + (double) fraction / divisor;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses {@code HH:MM:SS.xx}
+     * @return milliseconds, -1 when the value is not a time (e.g. N/A)
+     */
+    static long parseTime(String line, int start, int end) {
+        if (start < end && line.charAt(start) == '-') {
+            return -1;
+        }
+        long millis = 0;
+        int fields = 0;
+        int position = start;
+        while (position < end) {
+            int fieldEnd = position;
+            while (fieldEnd < end && line.charAt(fieldEnd) != ':') {
+                fieldEnd++;
+            }
+            double value = parseNumber(line, position, fieldEnd);
+            if (value < 0) {
+                return -1;
+            }
+            if (fieldEnd < end) {
+                millis = (millis + (long) value) * 60;
+            } else {
+                millis = millis * 1000 + Math.round(value * 1000);
+            }
+            fields++;
+            position = fieldEnd + 1;
+        }
+        return fields == 3 ? millis : -1;
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+/**
+ * Turns the output lines of one job into {@link ProgressEvent}s, at most one per interval.
+ */
+class ProgressTracker {
+
+    static final long DEFAULT_INTERVAL = 250;
+
+    private final ProgressParser parser = new ProgressParser();
+    private final long interval;
+    private final long startTime;
+    private long lastEventTime;
+    private boolean pending;
+
+    /**
+     * @param interval minimum time between two events in milliseconds
+     * @param durationHint duration of the input in milliseconds if already probed, -1 to read it from the FFmpeg header
+     */
+    ProgressTracker(long interval, long durationHint) {
+        this.interval = interval;
+        this.startTime = System.currentTimeMillis();
+        this.lastEventTime = startTime - interval;
+        if (durationHint > 0) {
+            parser.durationMillis = durationHint;
+        }
+    }
+
+    /**
+     * @return an event when the line completed an update and the interval elapsed, null otherwise
+     */
+    synchronized ProgressEvent onLine(String line) {
+        if (!parser.parse(line)) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastEventTime < interval) {
+            pending = true;
+            return null;
+        }
+        lastEventTime = now;
+        pending = false;
+        return buildEvent(now);
+    }
+
+    /**
+     * @return the last update swallowed by the throttling, null if the last update was already delivered
+     */
+    synchronized ProgressEvent flush() {
+        if (!pending) {
+            return null;
+        }
+        pending = false;
+        return buildEvent(System.currentTimeMillis());
+    }
+
+    synchronized long getDurationMillis() {
+        return parser.durationMillis;
+    }
+
+    private ProgressEvent buildEvent(long now) {
+        long duration = parser.durationMillis;
+        long time = parser.timeMillis;
+        long eta = -1;
+        if (duration > 0 && time >= 0) {
+            long remaining = Math.max(0, duration - time);
+            if (parser.speed > 0) {
+                eta = (long) (remaining / parser.speed);
+            } else if (time > 0) {
+                eta = (now - startTime) * remaining / time;
+            }
+        }
+        return new ProgressEvent(parser.frame, parser.fps, time, parser.speed, parser.bitrateKbps, parser.sizeKb, duration, eta);
+    }
+}
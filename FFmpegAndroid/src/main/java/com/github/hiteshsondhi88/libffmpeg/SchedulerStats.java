@@ -0,0 +1,93 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue-wait and run-time counters of a {@link FFmpegScheduler}. All times are in milliseconds.
+ */
+@SuppressWarnings("unused")
+public class SchedulerStats {
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    void onQueued() {
+        submitted.incrementAndGet();
+    }
+
+    void onStarted(long queueWaitNanos) {
+        started.incrementAndGet();
+        totalQueueWaitNanos.addAndGet(queueWaitNanos);
+        updateMax(maxQueueWaitNanos, queueWaitNanos);
+    }
+
+    void onFinished(long runNanos) {
+        completed.incrementAndGet();
+        totalRunNanos.addAndGet(runNanos);
+        updateMax(maxRunNanos, runNanos);
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getAverageQueueWait() {
+        long count = started.get();
+        return count == 0 ? 0 : toMillis(totalQueueWaitNanos.get() / count);
+    }
+
+    public long getMaxQueueWait() {
+        return toMillis(maxQueueWaitNanos.get());
+    }
+
+    public long getAverageRunTime() {
+        long count = completed.get();
+        return count == 0 ? 0 : toMillis(totalRunNanos.get() / count);
+    }
+
+    public long getMaxRunTime() {
+        return toMillis(maxRunNanos.get());
+    }
+
+    public long getTotalRunTime() {
+        return toMillis(totalRunNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulerStats{submitted=" + getSubmittedCount()
+                + ", started=" + getStartedCount()
+                + ", completed=" + getCompletedCount()
+                + ", avgQueueWait=" + getAverageQueueWait()
+                + "ms, maxQueueWait=" + getMaxQueueWait()
+                + "ms, avgRunTime=" + getAverageRunTime()
+                + "ms, maxRunTime=" + getMaxRunTime() + "ms}";
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+}
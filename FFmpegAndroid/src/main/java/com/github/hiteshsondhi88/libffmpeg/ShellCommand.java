@@ -1,6 +1,8 @@
 package com.github.hiteshsondhi88.libffmpeg;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 
 class ShellCommand {
 
@@ -38,4 +40,29 @@ class ShellCommand {
         return new CommandResult(CommandResult.success(exitValue), output);
     }
 
+    /**
+     * Runs a command with stderr merged into stdout, keeping the line breaks of the output
+     */
+    CommandResult runWaitForOutput(String[] s) {
+        Process process = null;
+        Integer exitValue = null;
+        StringBuilder output = new StringBuilder();
+        try {
+            process = new ProcessBuilder(s).redirectErrorStream(true).start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append('\n');
+            }
+            exitValue = process.waitFor();
+        } catch (IOException e) {
+            Log.e("Exception while trying to run: " + s[0], e);
+        } catch (InterruptedException e) {
+            Log.e("Interrupt exception", e);
+        } finally {
+            Util.destroyProcess(process);
+        }
+        return new CommandResult(CommandResult.success(exitValue), output.toString());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process start-up latency of one {@link BinaryVariant}. All times are in milliseconds.
+ * <p>
+ * The spawn time is how long starting the process took, the first output time how long until
+ * FFmpeg printed its first line, which includes loading and paging in the binary.
+ */
+@SuppressWarnings("unused")
+public class SpawnStats {
+
+    private final String variant;
+    private final AtomicLong spawned = new AtomicLong();
+    private final AtomicLong totalSpawnNanos = new AtomicLong();
+    private final AtomicLong maxSpawnNanos = new AtomicLong();
+    private final AtomicLong firstOutputs = new AtomicLong();
+    private final AtomicLong totalFirstOutputNanos = new AtomicLong();
+    private final AtomicLong maxFirstOutputNanos = new AtomicLong();
+
+    SpawnStats(String variant) {
+        this.variant = variant;
+    }
+
+    void onSpawned(long spawnNanos) {
+        spawned.incrementAndGet();
+        totalSpawnNanos.addAndGet(spawnNanos);
+        updateMax(maxSpawnNanos, spawnNanos);
+    }
+
+    void onFirstOutput(long firstOutputNanos) {
+        firstOutputs.incrementAndGet();
+        totalFirstOutputNanos.addAndGet(firstOutputNanos);
+        updateMax(maxFirstOutputNanos, firstOutputNanos);
+    }
+
+    public String getVariant() {
+        return variant;
+    }
+
+    public long getSpawnCount() {
+        return spawned.get();
+    }
+
+    public long getAverageSpawnTime() {
+        long count = spawned.get();
+        return count == 0 ? 0 : toMillis(totalSpawnNanos.get() / count);
+    }
+
+    public long getMaxSpawnTime() {
+        return toMillis(maxSpawnNanos.get());
+    }
+
+    public long getAverageFirstOutputTime() {
+        long count = firstOutputs.get();
+        return count == 0 ? 0 : toMillis(totalFirstOutputNanos.get() / count);
+    }
+
+    public long getMaxFirstOutputTime() {
+        return toMillis(maxFirstOutputNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "SpawnStats{variant=" + variant
+                + ", spawned=" + getSpawnCount()
+                + ", avgSpawnTime=" + getAverageSpawnTime()
+                + "ms, maxSpawnTime=" + getMaxSpawnTime()
+                + "ms, avgFirstOutputTime=" + getAverageFirstOutputTime()
+                + "ms, maxFirstOutputTime=" + getMaxFirstOutputTime() + "ms}";
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies a channel into another on a dedicated thread, e.g. a caller stream to FFmpeg stdin.
+ * Writes block while the other side does not read, so a slow reader slows the writer down instead of filling memory.
+ */
+class StreamPump {
+
+    private static final ExecutorService pumps = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "FFmpeg pump #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final ReadableByteChannel source;
+    private final WritableByteChannel target;
+    private final boolean ownsSource;
+    private final boolean ownsTarget;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile IOException readError;
+    private volatile IOException writeError;
+    private volatile long transferred;
+    // thread running the pump, interrupted by stop()
+    private Thread thread;
+
+    /**
+     * Owned channels are closed when the pump stops: closing FFmpeg stdin signals the end of input,
+     * closing FFmpeg stdout after a write error stops it instead of leaving it blocked on a full pipe.
+     * @param ownsSource closes the source when the pump stops
+     * @param ownsTarget closes the target when the pump stops
+     */
+    StreamPump(ReadableByteChannel source, WritableByteChannel target, boolean ownsSource, boolean ownsTarget) {
+        this.source = source;
+        this.target = target;
+        this.ownsSource = ownsSource;
+        this.ownsTarget = ownsTarget;
+    }
+
+    StreamPump start() {
+        pumps.execute(new Runnable() {
+            @Override
+            public void run() {
+                pump();
+            }
+        });
+        return this;
+    }
+
+    private void pump() {
+        synchronized (this) {
+            thread = Thread.currentThread();
+        }
+        BufferPool pool = BufferPool.getInstance();
+        ByteBuffer buffer = pool.acquire();
+        try {
+            while (true) {
+                buffer.clear();
+                int read;
+                try {
+                    read = source.read(buffer);
+                } catch (IOException e) {
+                    readError = e;
+                    return;
+                }
+                if (read == -1) {
+                    return;
+                }
+                buffer.flip();
+                try {
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                } catch (IOException e) {
+                    writeError = e;
+                    return;
+                }
+                transferred += read;
+            }
+        } finally {
+            pool.release(buffer);
+            if (ownsSource) {
+                Util.close(source);
+            }
+            if (ownsTarget) {
+                Util.close(target);
+            }
+            synchronized (this) {
+                // the pool thread must not be interrupted once it runs something else
+                thread = null;
+                Thread.interrupted();
+            }
+            done.countDown();
+        }
+    }
+
+    /**
+     * Stops a pump blocked on either side: the source is closed if owned, and the thread interrupted,
+     * which ends a write blocked in a channel waiting for its reader
+     */
+    void stop() {
+        if (ownsSource) {
+            Util.close(source);
+        }
+        synchronized (this) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return true if the pump finished within the timeout
+     */
+    boolean await(long timeoutMillis) throws InterruptedException {
+        return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    IOException getReadError() {
+        return readError;
+    }
+
+    IOException getWriteError() {
+        return writeError;
+    }
+
+    long getTransferred() {
+        return transferred;
+    }
+}
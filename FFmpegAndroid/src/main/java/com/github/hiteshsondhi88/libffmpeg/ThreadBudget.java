@@ -0,0 +1,132 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shares a number of CPU threads between the FFmpeg processes, which otherwise each start one thread per core.
+ * A starting job gets its fair share of the budget for the jobs expected to run with it, capped by the threads
+ * not used by the running jobs, and passes it to FFmpeg with -threads. The count of a process cannot change once
+ * started, jobs finishing give their threads back to the next ones.
+ */
+@SuppressWarnings("unused")
+public class ThreadBudget {
+
+    // options followed by no value
+    private static final Set<String> FLAGS = new HashSet<>(Arrays.asList("-y", "-n", "-vn", "-an", "-sn", "-dn",
+            "-hide_banner", "-nostdin", "-stdin", "-nostats", "-stats", "-shortest", "-copyts", "-start_at_zero",
+            "-re", "-accurate_seek", "-noaccurate_seek", "-ignore_unknown", "-benchmark", "-xerror", "-report",
+            "-autorotate", "-noautorotate", "-bitexact", "-copyinkf", "-vstats"));
+    // options followed by a value, looked up without their stream specifier, e.g. -c for -c:a
+    private static final Set<String> VALUE_OPTIONS = new HashSet<>(Arrays.asList("-f", "-c", "-codec", "-acodec",
+            "-vcodec", "-b", "-ab", "-ar", "-ac", "-af", "-vf", "-filter", "-filter_complex", "-map", "-map_metadata",
+            "-map_chapters", "-metadata", "-ss", "-t", "-to", "-sseof", "-itsoffset", "-q", "-qscale", "-aq", "-r",
+            "-s", "-aspect", "-pix_fmt", "-sample_fmt", "-channel_layout", "-frames", "-vframes", "-aframes", "-fs",
+            "-preset", "-crf", "-tune", "-profile", "-level", "-g", "-maxrate", "-minrate", "-bufsize", "-movflags",
+            "-flush_packets", "-threads", "-filter_threads", "-filter_complex_threads", "-loglevel", "-v",
+            "-progress", "-disposition", "-tag", "-bsf", "-strict", "-vsync", "-safe", "-compression_level",
+            "-segment_time", "-reset_timestamps", "-max_muxing_queue_size", "-analyzeduration", "-probesize"));
+
+    private final FFmpegScheduler scheduler;
+    private int totalThreads;
+    private int threadsInUse;
+
+    public ThreadBudget(FFmpegScheduler scheduler) {
+        this(scheduler, FFmpegScheduler.defaultConcurrency());
+    }
+
+    public ThreadBudget(FFmpegScheduler scheduler, int totalThreads) {
+        this.scheduler = scheduler;
+        setTotalThreads(totalThreads);
+    }
+
+    /**
+     * @param totalThreads threads shared by all the running jobs, 0 lets each FFmpeg process choose
+     */
+    public synchronized void setTotalThreads(int totalThreads) {
+        if (totalThreads < 0) {
+            throw new IllegalArgumentException("totalThreads cannot be negative");
+        }
+        this.totalThreads = totalThreads;
+    }
+
+    public synchronized int getTotalThreads() {
+        return totalThreads;
+    }
+
+    public synchronized int getThreadsInUse() {
+        return threadsInUse;
+    }
+
+    /**
+     * Called by a job about to start its process, from a scheduler thread
+     * @return threads given to the job, 0 if the budget is disabled
+     */
+    int acquire() {
+        // the calling job is already counted as running
+        int expected = Math.min(scheduler.getMaxConcurrency(), scheduler.getRunningCount() + scheduler.getQueuedCount());
+        return acquire(expected);
+    }
+
+    synchronized int acquire(int expectedConcurrency) {
+        if (totalThreads == 0) {
+            return 0;
+        }
+        int share = Math.max(1, totalThreads / Math.max(1, expectedConcurrency));
+        int threads = Math.max(1, Math.min(share, totalThreads - threadsInUse));
+        threadsInUse += threads;
+        return threads;
+    }
+
+    /**
+     * -threads is an output option, it is given before every output of the command.
+     * Commands with an option missing from the tables are not parsed, -threads is then given once before the last
+     * argument: guessing whether such an option takes a value could turn an input or a value into an output.
+     * @param cmd FFmpeg binary followed by its arguments
+     * @return the command passing the threads to each output
+     */
+    static String[] withThreads(String[] cmd, int threads) {
+        List<String> command = new ArrayList<>(cmd.length + 4);
+        command.add(cmd[0]);
+        boolean output = false;
+        for (int i = 1; i < cmd.length; i++) {
+            String argument = cmd[i];
+            if (argument.length() > 1 && argument.charAt(0) == '-') {
+                int specifier = argument.indexOf(':');
+                String option = (specifier > 0) ? argument.substring(0, specifier) : argument;
+                command.add(argument);
+                if ("-i".equals(argument) || VALUE_OPTIONS.contains(option)) {
+                    if (++i < cmd.length) {
+                        command.add(cmd[i]);
+                    }
+                } else if (!FLAGS.contains(argument)) {
+                    return withThreadsBeforeLast(cmd, threads);
+                }
+                continue;
+            }
+            // a file, pipe:1 or - for stdout
+            command.add("-threads");
+            command.add(String.valueOf(threads));
+            command.add(argument);
+            output = true;
+        }
+        if (!output) {
+            return withThreadsBeforeLast(cmd, threads);
+        }
+        return command.toArray(new String[0]);
+    }
+
+    private static String[] withThreadsBeforeLast(String[] cmd, int threads) {
+        List<String> command = new ArrayList<>(Arrays.asList(cmd));
+        command.add(cmd.length - 1, "-threads");
+        command.add(cmd.length, String.valueOf(threads));
+        return command.toArray(new String[0]);
+    }
+
+    synchronized void release(int threads) {
+        threadsInUse = Math.max(0, threadsInUse - threads);
+    }
+}
@@ -5,6 +5,7 @@ import android.content.pm.ApplicationInfo;
 import android.os.AsyncTask;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -37,6 +38,16 @@ class Util {
         }
     }
 
+    static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Do nothing
+            }
+        }
+    }
+
     static String convertInputStreamToString(InputStream inputStream) {
         try {
             BufferedReader r = new BufferedReader(new InputStreamReader(inputStream));
@@ -0,0 +1,63 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class AbiSelectorTest extends TestCase {
+
+    private final List<BinaryVariant> variants = new ArrayList<>(BinaryVariant.defaults());
+
+    public void testPrefers64BitAbisReportedAfterA32BitOne() {
+        AbiSelector selector = new AbiSelector(new String[] {"armeabi-v7a", "armeabi", "arm64-v8a"}, features());
+
+        assertEquals(Arrays.asList("arm64-v8a", "armeabi-v7a", "armeabi"), selector.getAbis());
+        assertEquals("arm64-v8a", selector.select(variants, BinaryVariant.FULL).getAbi());
+    }
+
+    public void testFallsBackToTheNextSupportedAbi() {
+        AbiSelector selector = new AbiSelector(new String[] {"mips", "x86"}, features());
+
+        assertEquals("x86", selector.select(variants, BinaryVariant.FULL).getAbi());
+    }
+
+    public void testReturnsNullWithoutMatchingVariant() {
+        assertNull(new AbiSelector(new String[] {"mips"}, features()).select(variants, BinaryVariant.FULL));
+        assertNull(new AbiSelector(null, features()).select(variants, BinaryVariant.FULL));
+    }
+
+    public void testPicksTheMostOptimizedVariantTheCpuCanRun() {
+        BinaryVariant neon = new BinaryVariant(BinaryVariant.FULL, "armeabi-v7a", "armeabi-v7a-neon/ffmpeg", null, "neon");
+        variants.add(neon);
+
+        assertSame(neon, new AbiSelector(new String[] {"armeabi-v7a"}, features("neon", "vfpv3")).select(variants, BinaryVariant.FULL));
+        assertEquals("armeabi-v7a/ffmpeg", new AbiSelector(new String[] {"armeabi-v7a"}, features("vfpv3"))
+                .select(variants, BinaryVariant.FULL).getAssetPath());
+    }
+
+    public void testSelectsByName() {
+        BinaryVariant audio = new BinaryVariant("audio", "x86", "x86-audio/ffmpeg", null);
+        variants.add(audio);
+        AbiSelector selector = new AbiSelector(new String[] {"x86_64", "x86"}, features());
+
+        assertSame(audio, selector.select(variants, "audio"));
+        assertEquals("x86_64", selector.select(variants, BinaryVariant.FULL).getAbi());
+    }
+
+    public void testParsesArmAndX86CpuInfo() {
+        assertEquals(features("half", "thumb", "neon", "vfpv4"), ArmArchHelper.parseCpuFeatures(
+                "processor\t: 0\nBogoMIPS\t: 38.40\nFeatures\t: half thumb NEON vfpv4\nCPU implementer\t: 0x41\n"));
+        assertEquals(features("sse4_1", "avx2"), ArmArchHelper.parseCpuFeatures(
+                "processor\t: 0\nflags\t\t: sse4_1 avx2\n"));
+        assertEquals(Collections.<String>emptySet(), ArmArchHelper.parseCpuFeatures("processor\t: 0\n"));
+    }
+
+    private static Set<String> features(String... features) {
+        return new HashSet<>(Arrays.asList(features));
+    }
+}
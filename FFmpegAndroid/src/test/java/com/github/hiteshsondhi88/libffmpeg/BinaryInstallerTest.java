@@ -0,0 +1,108 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+public class BinaryInstallerTest extends TestCase {
+
+    private File directory;
+    private File binary;
+    private byte[] shipped;
+    private String shippedSha1;
+    private int opened;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("installer", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        binary = new File(directory, "ffmpeg");
+        shipped = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(shipped);
+        File reference = new File(directory, "reference");
+        write(reference, shipped);
+        shippedSha1 = BinaryInstaller.sha1(reference);
+        assertTrue(reference.delete());
+    }
+
+    public void testCopiesAndStampsAMissingBinary() throws Exception {
+        BinaryInstaller installer = installer(shippedSha1);
+
+        assertTrue(installer.install());
+
+        assertEquals(1, opened);
+        assertTrue(binary.canExecute());
+        assertTrue(Arrays.equals(shipped, read(binary)));
+        assertTrue(installer.getStampFile().isFile());
+        assertFalse(new File(directory, "ffmpeg.tmp").exists());
+    }
+
+    public void testTrustsTheStampWhileTheBinaryIsUnchanged() throws Exception {
+        assertTrue(installer(shippedSha1).install());
+        opened = 0;
+
+        assertTrue(installer(shippedSha1).install());
+
+        assertEquals(0, opened);
+    }
+
+    public void testReinstallsAModifiedBinary() throws Exception {
+        assertTrue(installer(shippedSha1).install());
+        write(binary, new byte[] {1, 2, 3});
+        opened = 0;
+
+        assertTrue(installer(shippedSha1).install());
+
+        assertEquals(1, opened);
+        assertTrue(Arrays.equals(shipped, read(binary)));
+    }
+
+    public void testVerifiesAnUnstampedBinaryWithoutCopying() throws Exception {
+        write(binary, shipped);
+
+        BinaryInstaller installer = installer(shippedSha1);
+        assertTrue(installer.install());
+
+        assertEquals(0, opened);
+        assertTrue(installer.getStampFile().isFile());
+    }
+
+    public void testRejectsACopyWithTheWrongHash() throws Exception {
+        write(binary, new byte[] {1, 2, 3});
+
+        assertFalse(installer("0000000000000000000000000000000000000000").install());
+
+        assertTrue(Arrays.equals(new byte[] {1, 2, 3}, read(binary)));
+        assertFalse(new File(directory, "ffmpeg.tmp").exists());
+    }
+
+    private BinaryInstaller installer(String expectedSha1) {
+        return new BinaryInstaller(binary, expectedSha1, new BinaryInstaller.Source() {
+            @Override
+            public InputStream open() throws IOException {
+                opened++;
+                return new ByteArrayInputStream(shipped);
+            }
+        });
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content);
+        } finally {
+            os.close();
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        return Files.readAllBytes(file.toPath());
+    }
+}
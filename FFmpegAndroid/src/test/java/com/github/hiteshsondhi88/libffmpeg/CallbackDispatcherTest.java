@@ -0,0 +1,78 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CallbackDispatcherTest extends TestCase {
+
+    public void testBatchesCallbacksOfManyJobsIntoOneHopPerFrame() throws Exception {
+        final AtomicInteger hops = new AtomicInteger();
+        final CountDownLatch delivered = new CountDownLatch(300);
+        Executor countingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                hops.incrementAndGet();
+                command.run();
+            }
+        };
+        CallbackDispatcher dispatcher = new CallbackDispatcher(100);
+
+        for (int line = 0; line < 100; line++) {
+            for (int job = 0; job < 3; job++) {
+                dispatcher.post(countingExecutor, new Runnable() {
+                    @Override
+                    public void run() {
+                        delivered.countDown();
+                    }
+                });
+            }
+        }
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertTrue("used " + hops.get() + " hops", hops.get() <= 2);
+    }
+
+    public void testKeepsCallbackOrder() throws Exception {
+        final List<Integer> order = new ArrayList<>();
+        final CountDownLatch delivered = new CountDownLatch(50);
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        CallbackDispatcher dispatcher = new CallbackDispatcher(5);
+        for (int i = 0; i < 50; i++) {
+            final int value = i;
+            dispatcher.post(executor, new Runnable() {
+                @Override
+                public void run() {
+                    order.add(value);
+                    delivered.countDown();
+                }
+            });
+        }
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    public void testDirectExecutorRunsImmediately() throws Exception {
+        final Thread caller = Thread.currentThread();
+        final boolean[] ranOnCaller = {false};
+        new CallbackDispatcher(1000).post(CallbackExecutors.direct(), new Runnable() {
+            @Override
+            public void run() {
+                ranOnCaller[0] = Thread.currentThread() == caller;
+            }
+        });
+        assertTrue(ranOnCaller[0]);
+    }
+}
@@ -0,0 +1,331 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import com.github.hiteshsondhi88.libffmpeg.utils.StubFFmpeg;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class FFmpegExecuteTaskTest extends TestCase {
+
+    public void testRunsStubAndDeliversCallbacksOnTheDirectExecutor() throws Exception {
+        File ffmpeg = StubFFmpeg.create(
+                "echo '  Duration: 00:00:10.00, start: 0.000000, bitrate: 128 kb/s' 1>&2\n"
+                        + "echo 'size=      64kB time=00:00:05.00 bitrate= 128.0kbits/s speed=10.0x' 1>&2\n"
+                        + "echo 'size=     128kB time=00:00:10.00 bitrate= 128.0kbits/s speed=10.0x' 1>&2\n"
+                        + "exit 0");
+        final List<String> calls = new ArrayList<>();
+        final List<ProgressEvent> events = new ArrayList<>();
+        ExecuteOptions options = new ExecuteOptions()
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setProgressInterval(0)
+                .setProgressListener(new ProgressListener() {
+                    @Override
+                    public void onProgress(ProgressEvent event) {
+                        events.add(event);
+                    }
+                });
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath()});
+        FFmpegExecuteTask task = new FFmpegExecuteTask(job.getCmd(), Long.MAX_VALUE, job, options, new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onStart() {
+                calls.add("start");
+            }
+
+            @Override
+            public void onSuccess(String message) {
+                calls.add("success");
+            }
+
+            @Override
+            public void onFailure(String message) {
+                calls.add("failure");
+            }
+
+            @Override
+            public void onFinish() {
+                calls.add("finish");
+            }
+        });
+
+        task.onQueued();
+        task.run();
+
+        assertEquals("[start, success, finish]", calls.toString());
+        assertEquals(JobState.SUCCEEDED, job.getState());
+        assertEquals(Integer.valueOf(0), job.getExitCode());
+        assertEquals(2, events.size());
+        assertEquals(50f, events.get(0).getPercent(), 0.01);
+        assertEquals(100f, events.get(1).getPercent(), 0.01);
+    }
+
+    public void testSuccessActionRunsBeforeTheHandler() throws Exception {
+        File ffmpeg = StubFFmpeg.create("exit 0");
+        final List<String> calls = new ArrayList<>();
+        ExecuteOptions options = new ExecuteOptions()
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setSuccessAction(new Runnable() {
+                    @Override
+                    public void run() {
+                        calls.add("action");
+                        throw new IllegalStateException("Disk full");
+                    }
+                });
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath()});
+        new FFmpegExecuteTask(job.getCmd(), Long.MAX_VALUE, job, options, new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onSuccess(String message) {
+                calls.add("success");
+            }
+
+            @Override
+            public void onFailure(String message) {
+                calls.add("failure " + message.contains("Disk full"));
+            }
+        }).run();
+
+        assertEquals("[action, failure true]", calls.toString());
+        assertEquals(JobState.FAILED, job.getState());
+    }
+
+    public void testPreparerReplacesTheArgumentsBeforeStarting() throws Exception {
+        File ffmpeg = StubFFmpeg.create("echo \"$@\" 1>&2\nexit 0");
+        final List<String> messages = new ArrayList<>();
+        ExecuteOptions options = new ExecuteOptions()
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setCommandPreparer(new CommandPreparer() {
+                    @Override
+                    public String[] prepare(String[] args) {
+                        assertEquals("[-i, in.aac, out.m4a]", Arrays.toString(args));
+                        return new String[] {"-i", "in.aac", "-c", "copy", "out.m4a"};
+                    }
+                });
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath(), "-i", "in.aac", "out.m4a"});
+        FFmpegExecuteTask task = new FFmpegExecuteTask(job.getCmd(), Long.MAX_VALUE, job, options, new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onSuccess(String message) {
+                messages.add(message.trim());
+            }
+        });
+
+        task.run();
+
+        assertEquals("[-i in.aac -c copy out.m4a]", messages.toString());
+        assertEquals(6, job.getCmd().length);
+    }
+
+    public void testPipesInputAndOutputThroughTheProcess() throws Exception {
+        File ffmpeg = StubFFmpeg.create("exec cat");
+        byte[] content = new byte[5 * 1024 * 1024];
+        new Random(1).nextBytes(content);
+        ByteArrayOutputStream converted = new ByteArrayOutputStream();
+        final List<String> calls = new ArrayList<>();
+        ExecuteOptions options = new ExecuteOptions()
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setInput(Channels.newChannel(new ByteArrayInputStream(content)))
+                .setOutput(Channels.newChannel(converted));
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath()});
+        FFmpegExecuteTask task = new FFmpegExecuteTask(job.getCmd(), 30 * 1000, job, options, new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onSuccess(String message) {
+                calls.add("success");
+            }
+
+            @Override
+            public void onFailure(String message) {
+                calls.add("failure");
+            }
+        });
+
+        task.run();
+
+        assertEquals("[success]", calls.toString());
+        assertTrue(Arrays.equals(content, converted.toByteArray()));
+        assertTrue(BufferPool.getInstance().getPooledCount() >= 2);
+    }
+
+    public void testFailsWhenTheOutputCannotBeWritten() throws Exception {
+        File ffmpeg = StubFFmpeg.create("exec head -c 10000000 /dev/zero");
+        final List<String> calls = new ArrayList<>();
+        ExecuteOptions options = new ExecuteOptions()
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setOutput(Channels.newChannel(new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("disk full");
+                    }
+                }));
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath()});
+        new FFmpegExecuteTask(job.getCmd(), 30 * 1000, job, options, new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onSuccess(String message) {
+                calls.add("success");
+            }
+
+            @Override
+            public void onFailure(String message) {
+                calls.add("failure");
+            }
+        }).run();
+
+        assertEquals("[failure]", calls.toString());
+    }
+
+    public void testWaitsForASlowOutputConsumer() throws Exception {
+        File ffmpeg = StubFFmpeg.create("exec head -c 1000 /dev/zero");
+        final List<String> calls = new ArrayList<>();
+        final ByteArrayOutputStream converted = new ByteArrayOutputStream();
+        ExecuteOptions options = new ExecuteOptions()
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setOutput(Channels.newChannel(new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        converted.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        try {
+                            // still consuming well after FFmpeg exited
+                            Thread.sleep(1500);
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        converted.write(b, off, len);
+                    }
+                }));
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath()});
+        new FFmpegExecuteTask(job.getCmd(), Long.MAX_VALUE, job, options, new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onSuccess(String message) {
+                calls.add("success");
+            }
+
+            @Override
+            public void onFailure(String message) {
+                calls.add("failure");
+            }
+        }).run();
+
+        assertEquals("[success]", calls.toString());
+        assertEquals(1000, converted.size());
+    }
+
+    public void testStopsABlockedOutputConsumerBeforeFailing() throws Exception {
+        File ffmpeg = StubFFmpeg.create("exec head -c 1000 /dev/zero");
+        final List<String> calls = new ArrayList<>();
+        ExecuteOptions options = new ExecuteOptions()
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setTimeout(1000)
+                .setOutput(Channels.newChannel(new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        try {
+                            Thread.sleep(Long.MAX_VALUE);
+                        } catch (InterruptedException e) {
+                            calls.add("interrupted");
+                            throw new IOException(e);
+                        }
+                    }
+                }));
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath()});
+        new FFmpegExecuteTask(job.getCmd(), Long.MAX_VALUE, job, options, new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onSuccess(String message) {
+                calls.add("success");
+            }
+
+            @Override
+            public void onFailure(String message) {
+                calls.add("failure");
+            }
+        }).run();
+
+        // the consumer is not written to once the job failed
+        assertEquals("[interrupted, failure]", calls.toString());
+    }
+
+    public void testAddsThreadsFromTheBudgetBeforeTheOutput() throws Exception {
+        File ffmpeg = StubFFmpeg.create("echo \"$@\" 1>&2\nexit 0");
+        final List<String> messages = new ArrayList<>();
+        ThreadBudget budget = new ThreadBudget(new FFmpegScheduler(2), 3);
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath(), "-i", "in.mov", "out.mp4"});
+        FFmpegExecuteTask task = new FFmpegExecuteTask(job.getCmd(), Long.MAX_VALUE, job,
+                new ExecuteOptions().setCallbackExecutor(CallbackExecutors.direct()), new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onSuccess(String message) {
+                messages.add(message.trim());
+            }
+        });
+        task.setThreadBudget(budget);
+
+        task.run();
+
+        assertEquals("[-i in.mov -threads 3 out.mp4]", messages.toString());
+        assertEquals(0, budget.getThreadsInUse());
+    }
+
+    public void testAddsThreadsBeforeEachOutput() throws Exception {
+        File ffmpeg = StubFFmpeg.create("echo \"$@\" 1>&2\nexit 0");
+        final List<String> messages = new ArrayList<>();
+        ThreadBudget budget = new ThreadBudget(new FFmpegScheduler(2), 2);
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath(), "-i", "in.mov",
+                "-vn", "out.m4a", "-an", "-c:v", "copy", "out.mp4"});
+        FFmpegExecuteTask task = new FFmpegExecuteTask(job.getCmd(), Long.MAX_VALUE, job,
+                new ExecuteOptions().setCallbackExecutor(CallbackExecutors.direct()), new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onSuccess(String message) {
+                messages.add(message.trim());
+            }
+        });
+        task.setThreadBudget(budget);
+
+        task.run();
+
+        assertEquals("[-i in.mov -vn -threads 2 out.m4a -an -c:v copy -threads 2 out.mp4]", messages.toString());
+    }
+
+    public void testRecordsTheSpawnLatency() throws Exception {
+        File ffmpeg = StubFFmpeg.create("echo 'ffmpeg version stub' 1>&2\necho 'second line' 1>&2\nexit 0");
+        SpawnStats stats = new SpawnStats(BinaryVariant.AUDIO);
+        for (int i = 0; i < 2; i++) {
+            ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath()});
+            FFmpegExecuteTask task = new FFmpegExecuteTask(job.getCmd(), Long.MAX_VALUE, job,
+                    new ExecuteOptions().setCallbackExecutor(CallbackExecutors.direct()), null);
+            task.setSpawnStats(stats);
+            task.run();
+        }
+
+        assertEquals(2, stats.getSpawnCount());
+        assertTrue(stats.getMaxFirstOutputTime() >= stats.getAverageFirstOutputTime());
+        assertTrue(stats.toString().contains("variant=audio, spawned=2"));
+    }
+
+    public void testReportsAStallThroughTheFailureCallback() throws Exception {
+        File ffmpeg = StubFFmpeg.create("echo 'ffmpeg stub' 1>&2\nexec sleep 30");
+        final List<String> failures = new ArrayList<>();
+        ConversionJob job = new ConversionJob(null, new String[] {ffmpeg.getAbsolutePath()});
+        FFmpegExecuteTask task = new FFmpegExecuteTask(job.getCmd(), Long.MAX_VALUE, job,
+                new ExecuteOptions().setCallbackExecutor(CallbackExecutors.direct()).setStallTimeout(500),
+                new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onFailure(String message) {
+                failures.add(message);
+            }
+        });
+
+        task.run();
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0), failures.get(0).endsWith("FFmpeg stalled, no output for 500 ms\n"));
+    }
+}
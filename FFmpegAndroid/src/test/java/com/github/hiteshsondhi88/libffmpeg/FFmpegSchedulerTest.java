@@ -0,0 +1,123 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import com.github.hiteshsondhi88.libffmpeg.utils.StubFFmpeg;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FFmpegSchedulerTest extends TestCase {
+
+    public void testRunsAtMostMaxConcurrencyProcesses() throws Exception {
+        final File ffmpeg = StubFFmpeg.sleeping(0.2);
+        FFmpegScheduler scheduler = new FFmpegScheduler(2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger succeeded = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(6);
+
+        for (int i = 0; i < 6; i++) {
+            scheduler.submit(new Runnable() {
+                @Override
+                public void run() {
+                    int now = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), now));
+                    }
+                    if (new ShellCommand().runWaitFor(new String[] {ffmpeg.getAbsolutePath()}).success) {
+                        succeeded.incrementAndGet();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            }, FFmpegScheduler.PRIORITY_NORMAL);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(6, succeeded.get());
+        assertEquals(2, maxRunning.get());
+    }
+
+    public void testStartsQueuedJobsByPriority() throws Exception {
+        FFmpegScheduler scheduler = new FFmpegScheduler(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+
+        scheduler.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, FFmpegScheduler.PRIORITY_NORMAL);
+
+        int[] priorities = {FFmpegScheduler.PRIORITY_LOW, FFmpegScheduler.PRIORITY_HIGH, FFmpegScheduler.PRIORITY_NORMAL, FFmpegScheduler.PRIORITY_HIGH};
+        for (final int priority : priorities) {
+            scheduler.submit(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(priority);
+                    done.countDown();
+                }
+            }, priority);
+        }
+        blocker.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(4, order.size());
+        assertEquals(FFmpegScheduler.PRIORITY_HIGH, (int) order.get(0));
+        assertEquals(FFmpegScheduler.PRIORITY_HIGH, (int) order.get(1));
+        assertEquals(FFmpegScheduler.PRIORITY_NORMAL, (int) order.get(2));
+        assertEquals(FFmpegScheduler.PRIORITY_LOW, (int) order.get(3));
+    }
+
+    public void testCollectsQueueWaitAndRunTime() throws Exception {
+        final File ffmpeg = StubFFmpeg.sleeping(0.1);
+        FFmpegScheduler scheduler = new FFmpegScheduler(1);
+        final CountDownLatch done = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.submit(new Runnable() {
+                @Override
+                public void run() {
+                    new ShellCommand().runWaitFor(new String[] {ffmpeg.getAbsolutePath()});
+                    done.countDown();
+                }
+            }, FFmpegScheduler.PRIORITY_NORMAL);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        SchedulerStats stats = scheduler.getStats();
+        assertEquals(3, stats.getSubmittedCount());
+        assertEquals(3, stats.getCompletedCount());
+        assertTrue(stats.getAverageRunTime() >= 100);
+        // the third job waited for the two before it
+        assertTrue(stats.getMaxQueueWait() >= 200);
+    }
+
+    public void testChangesMaxConcurrency() throws Exception {
+        FFmpegScheduler scheduler = new FFmpegScheduler(4);
+        scheduler.setMaxConcurrency(1);
+        assertEquals(1, scheduler.getMaxConcurrency());
+        scheduler.setMaxConcurrency(8);
+        assertEquals(8, scheduler.getMaxConcurrency());
+        try {
+            scheduler.setMaxConcurrency(0);
+            fail("concurrency of 0 accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
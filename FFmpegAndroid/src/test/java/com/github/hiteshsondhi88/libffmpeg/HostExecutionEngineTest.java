@@ -0,0 +1,31 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import com.github.hiteshsondhi88.libffmpeg.utils.StubFFmpeg;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class HostExecutionEngineTest extends TestCase {
+
+    public void testLeavesTheCallerOptionsUntouched() throws Exception {
+        File ffmpeg = StubFFmpeg.create("exit 0");
+        HostExecutionEngine engine = new HostExecutionEngine(ffmpeg.getAbsolutePath(), 1);
+        ExecuteOptions options = new ExecuteOptions().setTag("host");
+        final CountDownLatch done = new CountDownLatch(1);
+
+        ConversionJob job = engine.execute(new String[] {"-version"}, options, new ExecuteBinaryResponseHandler() {
+            @Override
+            public void onFinish() {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals("host", job.getTag());
+        // the same options still post to the main thread on Android
+        assertFalse(options.hasCallbackExecutor());
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import junit.framework.TestCase;
+
+public class JobRegistryTest extends TestCase {
+
+    private JobRegistry registry;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        registry = new JobRegistry();
+    }
+
+    public void testCancelAllWithTagLeavesOtherJobsRunning() throws Exception {
+        ConversionJob background1 = newJob("background");
+        ConversionJob background2 = newJob("background");
+        ConversionJob foreground = newJob("foreground");
+        Process process = new ProcessBuilder("sleep", "10").start();
+        assertTrue(background1.onStarted(process));
+
+        assertEquals(2, registry.cancelAll("background"));
+
+        assertEquals(JobState.CANCELLED, background1.getState());
+        assertEquals(JobState.CANCELLED, background2.getState());
+        assertEquals(JobState.QUEUED, foreground.getState());
+        assertEquals(1, registry.getJobs().size());
+        // the running process has been killed with its job
+        process.waitFor();
+    }
+
+    public void testFinishedJobsLeaveTheRegistry() throws Exception {
+        ConversionJob job = newJob(null);
+        assertTrue(job.onStarted(null));
+        assertTrue(registry.hasRunningJobs());
+        job.onExit(0);
+        job.onFinished(true);
+
+        assertEquals(JobState.SUCCEEDED, job.getState());
+        assertEquals(Integer.valueOf(0), job.getExitCode());
+        assertTrue(job.getEndTime() >= job.getStartTime());
+        assertFalse(registry.hasRunningJobs());
+        assertEquals(0, registry.getJobs().size());
+        // cancelling a finished job does nothing
+        assertFalse(job.cancel());
+    }
+
+    public void testCancelledJobDoesNotStart() throws Exception {
+        ConversionJob job = newJob(null);
+        assertTrue(job.cancel());
+        assertFalse(job.onStarted(null));
+        job.onFinished(false);
+        assertEquals(JobState.CANCELLED, job.getState());
+    }
+
+    public void testCancellingAStepCancelsItsGroup() throws Exception {
+        JobGroup group = new JobGroup("chunks");
+        assertTrue(group.start());
+        ConversionJob first = newJob("chunks");
+        ConversionJob second = newJob("chunks");
+        group.add(first);
+        group.add(second);
+
+        // the first step cancels the group, which cancels the second one
+        assertTrue(registry.cancelAll("chunks") >= 1);
+
+        assertEquals(JobState.CANCELLED, group.getState());
+        assertEquals(JobState.CANCELLED, second.getState());
+        // a step added once the group is over does not run
+        ConversionJob late = newJob("chunks");
+        group.add(late);
+        assertEquals(JobState.CANCELLED, late.getState());
+    }
+
+    public void testFinishedGroupCancelsItsRemainingSteps() throws Exception {
+        JobGroup group = new JobGroup(null);
+        assertTrue(group.start());
+        ConversionJob done = newJob(null);
+        ConversionJob running = newJob(null);
+        group.add(done);
+        group.add(running);
+        done.onFinished(true);
+
+        assertTrue(group.finish(false));
+        assertFalse(group.finish(true));
+        assertEquals(JobState.FAILED, group.getState());
+        assertEquals(JobState.SUCCEEDED, done.getState());
+        assertEquals(JobState.CANCELLED, running.getState());
+        assertFalse(group.cancel());
+    }
+
+    private ConversionJob newJob(String tag) {
+        ConversionJob job = new ConversionJob(tag, new String[] {"ffmpeg"});
+        job.attach(registry);
+        registry.add(job);
+        return job;
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import junit.framework.TestCase;
+
+public class LogBufferTest extends TestCase {
+
+    public void testKeepsOnlyTheLastLines() throws Exception {
+        LogBuffer buffer = new LogBuffer(3, 1024);
+        for (int i = 1; i <= 5; i++) {
+            buffer.append("line " + i);
+        }
+        assertEquals(3, buffer.getLineCount());
+        assertEquals(2, buffer.getDroppedLineCount());
+        assertEquals("[... 2 earlier lines dropped ...]\nline 3\nline 4\nline 5\n", buffer.getSummary());
+    }
+
+    public void testBoundsTheNumberOfCharacters() throws Exception {
+        LogBuffer buffer = new LogBuffer(100, 10);
+        buffer.append("12345");
+        buffer.append("67890");
+        buffer.append("abc");
+        assertEquals(2, buffer.getLineCount());
+        assertTrue(buffer.getSummary().endsWith("67890\nabc\n"));
+
+        // a single line longer than the limit keeps its end
+        buffer.append("0123456789ABCDEF");
+        assertEquals(1, buffer.getLineCount());
+        assertTrue(buffer.getSummary().endsWith("6789ABCDEF\n"));
+    }
+
+    public void testMemoryStaysBoundedForLongEncodes() throws Exception {
+        LogBuffer buffer = new LogBuffer(LogBuffer.DEFAULT_MAX_LINES, LogBuffer.DEFAULT_MAX_CHARS);
+        String line = "frame= 1234 fps= 30 q=28.0 size=    1024kB time=00:00:41.20 bitrate= 203.6kbits/s speed=1.0x";
+        for (int i = 0; i < 200000; i++) {
+            buffer.append(line);
+        }
+        assertTrue(buffer.getSummary().length() <= LogBuffer.DEFAULT_MAX_CHARS + LogBuffer.DEFAULT_MAX_LINES + 64);
+    }
+
+    public void testAppendAllSplitsLines() throws Exception {
+        LogBuffer buffer = new LogBuffer();
+        buffer.appendAll("a\nb\nc");
+        buffer.appendAll(null);
+        assertEquals(3, buffer.getLineCount());
+        assertEquals("a\nb\nc\n", buffer.getSummary());
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import com.github.hiteshsondhi88.libffmpeg.utils.StubFFmpeg;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+public class ProcessMonitorTest extends TestCase {
+
+    public void testWaitingForASilentProcessUsesNoCpu() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        File ffmpeg = StubFFmpeg.sleeping(1);
+        Process process = new ShellCommand().run(new String[] {ffmpeg.getAbsolutePath()});
+
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        int exitValue = new ProcessMonitor(process, Long.MAX_VALUE, null, null).waitFor();
+        long cpuUsed = threads.getCurrentThreadCpuTime() - cpuBefore;
+
+        assertEquals(0, exitValue);
+        // a busy-wait loop would burn the whole second
+        assertTrue("waiting thread used " + cpuUsed + "ns of CPU", cpuUsed < 50 * 1000 * 1000L);
+    }
+
+    public void testKillsASilentProcessAtItsDeadline() throws Exception {
+        File ffmpeg = StubFFmpeg.create("exec sleep 30");
+        Process process = new ShellCommand().run(new String[] {ffmpeg.getAbsolutePath()});
+
+        long start = System.currentTimeMillis();
+        try {
+            new ProcessMonitor(process, 500, null, null).waitFor();
+            fail("timeout not enforced");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue("killed after " + elapsed + "ms", elapsed >= 500 && elapsed < 1500);
+        assertTrue(Util.isProcessCompleted(process));
+    }
+
+    public void testKillsAProcessThatStopsPrinting() throws Exception {
+        // prints for a second, then hangs
+        File ffmpeg = StubFFmpeg.create("for i in 1 2 3 4 5; do echo frame $i 1>&2; sleep 0.2; done\nexec sleep 30");
+        Process process = new ShellCommand().run(new String[] {ffmpeg.getAbsolutePath()});
+
+        long start = System.currentTimeMillis();
+        ProcessMonitor monitor = new ProcessMonitor(process, Long.MAX_VALUE, 600, null, null);
+        try {
+            monitor.waitFor();
+            fail("stall not detected");
+        } catch (TimeoutException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("stalled"));
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(ProcessWatchdog.Reason.STALLED, monitor.getKillReason());
+        assertTrue("killed after " + elapsed + "ms", elapsed >= 1400 && elapsed < 3000);
+    }
+
+    public void testEscalatesToSigkillWhenSigtermIsIgnored() throws Exception {
+        File ffmpeg = StubFFmpeg.create("trap '' TERM\nwhile true; do sleep 0.1; done");
+        Process process = new ShellCommand().run(new String[] {ffmpeg.getAbsolutePath()});
+        ProcessWatchdog watchdog = new ProcessWatchdog(50, 300);
+        final List<ProcessWatchdog.Reason> reasons = Collections.synchronizedList(new ArrayList<ProcessWatchdog.Reason>());
+
+        long start = System.currentTimeMillis();
+        ProcessWatchdog.Watch watch = watchdog.watch(process, 200, Long.MAX_VALUE, new ProcessWatchdog.Listener() {
+            @Override
+            public void onKill(ProcessWatchdog.Reason reason) {
+                reasons.add(reason);
+            }
+        });
+        process.waitFor();
+        long elapsed = System.currentTimeMillis() - start;
+        watch.cancel();
+
+        assertEquals(Collections.singletonList(ProcessWatchdog.Reason.TIMEOUT), reasons);
+        // SIGTERM at 200ms is ignored, SIGKILL follows the 300ms grace period
+        assertTrue("killed after " + elapsed + "ms", elapsed >= 500 && elapsed < 2000);
+        assertEquals(0, watchdog.getWatchCount());
+    }
+
+    public void testDeliversStdoutAndStderrLines() throws Exception {
+        File ffmpeg = StubFFmpeg.create("echo err1 1>&2\necho out1\necho err2 1>&2\nexit 3");
+        Process process = new ShellCommand().run(new String[] {ffmpeg.getAbsolutePath()});
+        final List<String> stderr = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> stdout = Collections.synchronizedList(new ArrayList<String>());
+
+        int exitValue = new ProcessMonitor(process, 10 * 1000, new ProcessMonitor.LineListener() {
+            @Override
+            public void onLine(String line) {
+                stderr.add(line);
+            }
+        }, new ProcessMonitor.LineListener() {
+            @Override
+            public void onLine(String line) {
+                stdout.add(line);
+            }
+        }).waitFor();
+
+        assertEquals(3, exitValue);
+        assertEquals("[err1, err2]", stderr.toString());
+        assertEquals("[out1]", stdout.toString());
+    }
+}
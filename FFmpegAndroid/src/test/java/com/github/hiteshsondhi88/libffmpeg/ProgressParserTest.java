@@ -0,0 +1,72 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import junit.framework.TestCase;
+
+public class ProgressParserTest extends TestCase {
+
+    public void testParsesVideoStatusLine() throws Exception {
+        ProgressParser parser = new ProgressParser();
+        assertFalse(parser.parse("  Duration: 00:02:00.00, start: 0.000000, bitrate: 1205 kb/s"));
+        assertTrue(parser.parse("frame=  123 fps= 30 q=28.0 size=    1024kB time=00:00:41.20 bitrate= 203.6kbits/s speed=1.02x"));
+
+        assertEquals(120000, parser.durationMillis);
+        assertEquals(123, parser.frame);
+        assertEquals(30.0, parser.fps, 0.001);
+        assertEquals(1024, parser.sizeKb);
+        assertEquals(41200, parser.timeMillis);
+        assertEquals(203.6, parser.bitrateKbps, 0.001);
+        assertEquals(1.02, parser.speed, 0.001);
+    }
+
+    public void testParsesAudioStatusLine() throws Exception {
+        ProgressParser parser = new ProgressParser();
+        assertTrue(parser.parse("size=     512kB time=01:00:32.70 bitrate= 128.0kbits/s speed=65.4x"));
+        assertEquals(-1, parser.frame);
+        assertEquals(3632700, parser.timeMillis);
+        assertEquals(65.4, parser.speed, 0.001);
+    }
+
+    public void testParsesProgressStream() throws Exception {
+        ProgressParser parser = new ProgressParser();
+        assertFalse(parser.parse("frame=50"));
+        assertFalse(parser.parse("fps=25.00"));
+        assertFalse(parser.parse("bitrate=N/A"));
+        assertFalse(parser.parse("total_size=2048"));
+        assertFalse(parser.parse("out_time_us=2000000"));
+        assertFalse(parser.parse("speed=2.5x"));
+        assertTrue(parser.parse("progress=continue"));
+
+        assertEquals(50, parser.frame);
+        assertEquals(-1.0, parser.bitrateKbps, 0.001);
+        assertEquals(2, parser.sizeKb);
+        assertEquals(2000, parser.timeMillis);
+        assertEquals(2.5, parser.speed, 0.001);
+    }
+
+    public void testIgnoresOtherLines() throws Exception {
+        ProgressParser parser = new ProgressParser();
+        assertFalse(parser.parse("Stream mapping:"));
+        assertFalse(parser.parse("[mp3 @ 0x1234] Estimating duration from bitrate, this may be inaccurate"));
+        assertFalse(parser.parse("Unrecognized option 'x=y z=w'"));
+        assertFalse(parser.parse("  Duration: N/A, bitrate: N/A"));
+        assertFalse(parser.parse(""));
+        assertEquals(-1, parser.timeMillis);
+        assertEquals(-1, parser.durationMillis);
+    }
+
+    public void testTrackerComputesPercentAndEtaAndThrottles() throws Exception {
+        ProgressTracker tracker = new ProgressTracker(10000, 100000);
+        ProgressEvent event = tracker.onLine("size=     512kB time=00:00:25.00 bitrate= 128.0kbits/s speed=5.0x");
+
+        assertNotNull(event);
+        assertEquals(25f, event.getPercent(), 0.01);
+        assertEquals(15000, event.getEtaMillis());
+
+        // coalesced until the interval elapses, then available through flush
+        assertNull(tracker.onLine("size=     612kB time=00:00:50.00 bitrate= 128.0kbits/s speed=5.0x"));
+        ProgressEvent last = tracker.flush();
+        assertNotNull(last);
+        assertEquals(50f, last.getPercent(), 0.01);
+        assertNull(tracker.flush());
+    }
+}
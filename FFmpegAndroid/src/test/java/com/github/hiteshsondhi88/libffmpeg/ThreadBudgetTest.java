@@ -0,0 +1,63 @@
+package com.github.hiteshsondhi88.libffmpeg;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class ThreadBudgetTest extends TestCase {
+
+    public void testSharesTheBudgetBetweenConcurrentJobs() throws Exception {
+        ThreadBudget budget = new ThreadBudget(new FFmpegScheduler(4), 8);
+
+        assertEquals(2, budget.acquire(4));
+        assertEquals(2, budget.acquire(4));
+        assertEquals(2, budget.acquire(4));
+        assertEquals(2, budget.acquire(4));
+        assertEquals(8, budget.getThreadsInUse());
+        // oversubscribed: still one thread, never zero
+        assertEquals(1, budget.acquire(4));
+        budget.release(1);
+        budget.release(2);
+        budget.release(2);
+        budget.release(2);
+        assertEquals(2, budget.getThreadsInUse());
+    }
+
+    public void testJobsOnlyGetTheThreadsLeft() throws Exception {
+        ThreadBudget budget = new ThreadBudget(new FFmpegScheduler(4), 8);
+
+        assertEquals(8, budget.acquire(1));
+        // started while the first job uses the whole budget
+        assertEquals(1, budget.acquire(2));
+        budget.release(8);
+        assertEquals(4, budget.acquire(2));
+    }
+
+    public void testDisabledBudget() throws Exception {
+        ThreadBudget budget = new ThreadBudget(new FFmpegScheduler(4), 0);
+        assertEquals(0, budget.acquire(2));
+        assertEquals(0, budget.getThreadsInUse());
+    }
+
+    public void testPassesTheThreadsToEveryOutput() throws Exception {
+        String[] cmd = {"ffmpeg", "-y", "-i", "in.mov", "-map", "0:a", "-vn", "out.m4a", "-map", "0:v", "-an", "-", "pipe:1"};
+
+        assertEquals(Arrays.asList("ffmpeg", "-y", "-i", "in.mov", "-map", "0:a", "-vn", "-threads", "2", "out.m4a",
+                "-map", "0:v", "-an", "-threads", "2", "-", "-threads", "2", "pipe:1"),
+                Arrays.asList(ThreadBudget.withThreads(cmd, 2)));
+        assertEquals(Arrays.asList("ffmpeg", "-i", "in.mov", "-threads", "3", "out.mp4"),
+                Arrays.asList(ThreadBudget.withThreads(new String[] {"ffmpeg", "-i", "in.mov", "out.mp4"}, 3)));
+    }
+
+    public void testUnknownOptionsFallBackToTheLastArgument() throws Exception {
+        // whether -foo takes a value is unknown, in.mp4 must not be taken for an output
+        assertEquals(Arrays.asList("ffmpeg", "-foo", "-i", "in.mp4", "-threads", "2", "out.mp4"),
+                Arrays.asList(ThreadBudget.withThreads(new String[] {"ffmpeg", "-foo", "-i", "in.mp4", "out.mp4"}, 2)));
+        assertEquals(Arrays.asList("ffmpeg", "-noautorotate", "-i", "in.mp4", "-threads", "2", "out.mp4"),
+                Arrays.asList(ThreadBudget.withThreads(new String[] {"ffmpeg", "-noautorotate", "-i", "in.mp4", "out.mp4"}, 2)));
+        assertEquals(Arrays.asList("ffmpeg", "-i", "in.mp4", "-c:a", "aac", "-metadata:s:a:0", "language=eng",
+                "-threads", "2", "out.mp4"),
+                Arrays.asList(ThreadBudget.withThreads(new String[] {"ffmpeg", "-i", "in.mp4", "-c:a", "aac",
+                        "-metadata:s:a:0", "language=eng", "out.mp4"}, 2)));
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.hiteshsondhi88.libffmpeg.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes small shell scripts standing in for the ffmpeg binary, so jobs can run on a plain Linux JVM
+ */
+public class StubFFmpeg {
+
+    public static File create(String body) throws IOException {
+        File script = File.createTempFile("ffmpeg-stub", ".sh");
+        script.deleteOnExit();
+        FileOutputStream os = new FileOutputStream(script);
+        try {
+            os.write(("#!/bin/sh\n" + body + "\n").getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+        if (!script.setExecutable(true)) {
+            throw new IOException("could not make " + script + " executable");
+        }
+        return script;
+    }
+
+    public static File sleeping(double seconds) throws IOException {
+        return create("echo \"ffmpeg stub\" 1>&2\nsleep " + seconds + "\nexit 0");
+    }
+
+}
@@ -3,20 +3,53 @@ package com.vitale.androidaudioconverter;
 import android.content.Context;
 import android.provider.MediaStore;
 
+import com.github.hiteshsondhi88.libffmpeg.BinaryVariant;
+import com.github.hiteshsondhi88.libffmpeg.CommandPreparer;
+import com.github.hiteshsondhi88.libffmpeg.CallbackExecutors;
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteOptions;
+import com.github.hiteshsondhi88.libffmpeg.ExecutionEngine;
 import com.github.hiteshsondhi88.libffmpeg.FFmpeg;
 import com.github.hiteshsondhi88.libffmpeg.FFmpegExecuteResponseHandler;
 import com.github.hiteshsondhi88.libffmpeg.FFmpegLoadBinaryResponseHandler;
+import com.github.hiteshsondhi88.libffmpeg.FFmpegScheduler;
+import com.github.hiteshsondhi88.libffmpeg.JobGroup;
+import com.github.hiteshsondhi88.libffmpeg.ProgressEvent;
+import com.github.hiteshsondhi88.libffmpeg.ProgressListener;
+import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegCommandAlreadyRunningException;
+import com.vitale.androidaudioconverter.cache.ConversionCache;
 import com.vitale.androidaudioconverter.callback.IConvertCallback;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
 import com.vitale.androidaudioconverter.callback.ILoadCallback;
+import com.vitale.androidaudioconverter.callback.IProgressCallback;
 import com.vitale.androidaudioconverter.model.AudioFormat;
+import com.vitale.androidaudioconverter.model.AudioOutput;
+import com.vitale.androidaudioconverter.model.AudioProfile;
+import com.vitale.androidaudioconverter.model.ConversionPath;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+import com.vitale.androidaudioconverter.model.MediaInfo;
 import com.vitale.androidaudioconverter.model.VideoEncoder;
 import com.vitale.androidaudioconverter.model.VideoFormat;
+import com.vitale.androidaudioconverter.probe.ContainerSupport;
+import com.vitale.androidaudioconverter.probe.MediaProbe;
+import com.vitale.androidaudioconverter.wav.WavEditor;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
 
 import static com.vitale.androidaudioconverter.model.VideoEncoder.ENCODER_H264;
 import static com.vitale.androidaudioconverter.model.VideoEncoder.ENCODER_MPEG4;
@@ -26,8 +59,10 @@ public class AndroidAudioConverter {
     private static boolean loaded;
 
     private Context context;
+    private ExecutionEngine engine;
     private File audioFile;
     private AudioFormat format = null;
+    private AudioProfile audioProfile;
     private VideoFormat videoFormat = null;
     private String videoArtist;
     private String videoTitle;
@@ -43,10 +78,25 @@ public class AndroidAudioConverter {
 
     private String constantRateFactor;
 
-
-
-
-    private IConvertCallback callback;
+    private int priority = FFmpegScheduler.PRIORITY_NORMAL;
+    private String tag;
+    private boolean cacheEnabled;
+    private boolean forceReencode;
+    private int parallelSegments;
+    private long trimStart;
+    private long trimDuration = -1;
+    private int channels = -1;
+    private long segmentDuration = -1;
+    private List<File> concatFiles = new ArrayList<>();
+    private File outputFile;
+    private List<AudioOutput> outputs = new ArrayList<>();
+    private ReadableByteChannel inputChannel;
+    private WritableByteChannel outputChannel;
+
+    private IConvertResultCallback callback;
+    private IProgressCallback progressCallback;
+    private long progressInterval = -1;
+    private Executor callbackExecutor;
 
     private final static String  METADATA = "-metadata";
     private final static String  FILTER = "-filter:v";
@@ -56,6 +106,47 @@ public class AndroidAudioConverter {
         this.context = context;
     }
 
+    /**
+     * @return a converter with the same options, to convert another file
+     */
+    AndroidAudioConverter copy() {
+        AndroidAudioConverter copy = new AndroidAudioConverter(context);
+        copy.engine = engine;
+        copy.audioFile = audioFile;
+        copy.format = format;
+        copy.audioProfile = audioProfile;
+        copy.videoFormat = videoFormat;
+        copy.videoArtist = videoArtist;
+        copy.videoTitle = videoTitle;
+        copy.videoAlbum = videoAlbum;
+        copy.videoDescription = videoDescription;
+        copy.videoScaleWithFixedWidth = videoScaleWithFixedWidth;
+        copy.videoScaleWithFixedHeight = videoScaleWithFixedHeight;
+        copy.videoFramerate = videoFramerate;
+        copy.videoBitrateBitPerSec = videoBitrateBitPerSec;
+        copy.selectEncoder = selectEncoder;
+        copy.encoderOption = encoderOption;
+        copy.constantRateFactor = constantRateFactor;
+        copy.priority = priority;
+        copy.tag = tag;
+        copy.cacheEnabled = cacheEnabled;
+        copy.forceReencode = forceReencode;
+        copy.parallelSegments = parallelSegments;
+        copy.trimStart = trimStart;
+        copy.trimDuration = trimDuration;
+        copy.channels = channels;
+        copy.segmentDuration = segmentDuration;
+        copy.concatFiles = new ArrayList<>(concatFiles);
+        copy.outputFile = outputFile;
+        copy.outputs = new ArrayList<>(outputs);
+        // streams can only be read or written once, they are not copied
+        copy.callback = callback;
+        copy.progressCallback = progressCallback;
+        copy.progressInterval = progressInterval;
+        copy.callbackExecutor = callbackExecutor;
+        return copy;
+    }
+
     public static boolean isLoaded(){
         return loaded;
     }
@@ -90,10 +181,65 @@ public class AndroidAudioConverter {
         }
     }
 
+    /**
+     * Limits how many conversions run at the same time, defaults to the number of cores
+     */
+    public static void setMaxConcurrentConversions(Context context, int maxConcurrency) {
+        FFmpeg.getInstance(context).setMaxConcurrency(maxConcurrency);
+    }
+
+    /**
+     * Number of threads shared by the running conversions, each one gets -threads with its share
+     * instead of starting one thread per core. Defaults to the number of cores.
+     * @param totalThreads 0 lets each FFmpeg process choose
+     */
+    public static void setThreadBudget(Context context, int totalThreads) {
+        FFmpeg.getInstance(context).getThreadBudget().setTotalThreads(totalThreads);
+    }
+
+    /**
+     * Cancels every queued or running conversion started with the given tag
+     * @return number of cancelled conversions
+     */
+    public static int cancelAll(Context context, String tag) {
+        return FFmpeg.getInstance(context).cancelAll(tag);
+    }
+
+    /**
+     * Cache of conversion outputs used by the conversions with {@link #setCacheEnabled(boolean)},
+     * to bound its size or read its hit and miss counts
+     */
+    public static ConversionCache getCache(Context context) {
+        return ConversionCache.getInstance(context);
+    }
+
     public static AndroidAudioConverter with(Context context) {
         return new AndroidAudioConverter(context);
     }
 
+    /**
+     * Converter running its commands on the given engine, e.g. a {@link com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine}
+     * outside Android. Without context the conversion cache is disabled, and callbacks run on the FFmpeg threads
+     * unless {@link #setCallbackExecutor(Executor)} is used.
+     */
+    public static AndroidAudioConverter withEngine(ExecutionEngine engine) {
+        AndroidAudioConverter converter = new AndroidAudioConverter(null);
+        converter.engine = engine;
+        converter.callbackExecutor = CallbackExecutors.direct();
+        return converter;
+    }
+
+    /**
+     * @return the engine given to {@link #withEngine(ExecutionEngine)}, or the FFmpeg binary of the device
+     */
+    private ExecutionEngine engine() {
+        return engine != null ? engine : FFmpeg.getInstance(context);
+    }
+
+    private MediaProbe probe() {
+        return engine != null ? MediaProbe.getInstance(engine) : MediaProbe.getInstance(context);
+    }
+
     public AndroidAudioConverter setFile(File originalFile) {
         this.audioFile = originalFile;
         return this;
@@ -104,6 +250,15 @@ public class AndroidAudioConverter {
         return this;
     }
 
+    /**
+     * Encoding parameters of the audio output instead of the FFmpeg defaults of the format,
+     * e.g. {@link AudioProfile#voice()}. {@link #setChannels(int)} takes precedence.
+     */
+    public AndroidAudioConverter setAudioProfile(AudioProfile audioProfile) {
+        this.audioProfile = audioProfile;
+        return this;
+    }
+
     public AndroidAudioConverter setVideoFormat(VideoFormat videoFormat) {
         this.videoFormat = videoFormat;
         return this;
@@ -167,33 +322,594 @@ public class AndroidAudioConverter {
     }
 
 
-    public AndroidAudioConverter setCallback(IConvertCallback callback) {
+    /**
+     * Queue priority of this conversion, see {@link FFmpegScheduler#PRIORITY_NORMAL}
+     */
+    public AndroidAudioConverter setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Tag used to find or cancel this conversion later, see {@link #cancelAll(Context, String)}
+     */
+    public AndroidAudioConverter setTag(String tag) {
+        this.tag = tag;
+        return this;
+    }
+
+    /**
+     * Reuses the output of a previous conversion of the same content with the same options.
+     * The input is hashed and a hit is copied on a scheduler thread, the callback gets it on its executor.
+     */
+    public AndroidAudioConverter setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+        return this;
+    }
+
+    /**
+     * File to write, defaults to the input file with the extension of the format
+     * (and a -CONV suffix for videos) in the same directory
+     */
+    public AndroidAudioConverter setOutputFile(File outputFile) {
+        this.outputFile = outputFile;
+        return this;
+    }
+
+    /**
+     * Reads the input from a stream instead of {@link #setFile(File)}, without a temporary file.
+     * The format must be detectable from the content: MP4 files with their index at the end cannot be streamed.
+     * The stream is not closed.
+     */
+    public AndroidAudioConverter setInput(InputStream input) {
+        return setInput(Channels.newChannel(input));
+    }
+
+    public AndroidAudioConverter setInput(ReadableByteChannel input) {
+        this.inputChannel = input;
+        return this;
+    }
+
+    /**
+     * Writes the output to a stream instead of a file, the callback gets a null file.
+     * AVI cannot be streamed, MP4 based formats are written fragmented. The stream is not closed.
+     */
+    public AndroidAudioConverter setOutput(OutputStream output) {
+        return setOutput(Channels.newChannel(output));
+    }
+
+    public AndroidAudioConverter setOutput(WritableByteChannel output) {
+        this.outputChannel = output;
+        return this;
+    }
+
+    /**
+     * Encodes a file as several segments in parallel and joins them.
+     * Videos are cut at keyframes and their audio is encoded separately in one piece.
+     * Audio files are cut in silences, chunks are at least 30 seconds long, this helps MP3 and AAC
+     * whose encoders only use one core. No progress is reported in this mode,
+     * the job returned by {@link #convert()} is a {@link JobGroup} cancelling every process.
+     * @param segments number of segments, 0 or 1 encodes the file in one process
+     */
+    public AndroidAudioConverter setParallelSegments(int segments) {
+        this.parallelSegments = segments;
+        return this;
+    }
+
+    /**
+     * Adds an output to a conversion writing several audio files in one FFmpeg run, the input is only decoded once.
+     * Replaces {@link #setFormat(AudioFormat)} and {@link #setVideoFormat(VideoFormat)}, video streams are dropped.
+     */
+    public AndroidAudioConverter addOutput(AudioOutput output) {
+        this.outputs.add(output);
+        return this;
+    }
+
+    /**
+     * Keeps part of the input, applied after {@link #addConcatFile(File)}
+     * @param startMillis start of the output
+     * @param durationMillis length of the output, -1 up to the end of the input
+     */
+    public AndroidAudioConverter setTrim(long startMillis, long durationMillis) {
+        this.trimStart = startMillis;
+        this.trimDuration = durationMillis;
+        return this;
+    }
+
+    /**
+     * Channels of the audio output, e.g. 1 to downmix stereo. Outputs added with {@link #addOutput(AudioOutput)}
+     * have their own channels.
+     */
+    public AndroidAudioConverter setChannels(int channels) {
+        this.channels = channels;
+        return this;
+    }
+
+    /**
+     * Joins another file after the input, audio formats and files only
+     */
+    public AndroidAudioConverter addConcatFile(File file) {
+        concatFiles.add(file);
+        return this;
+    }
+
+    /**
+     * Splits the audio output in consecutive files of this length, named like the output followed by -000, -001...
+     * All of them are in the result of the conversion.
+     * @param segmentMillis length of each file, -1 writes a single file
+     */
+    public AndroidAudioConverter setSegmentDuration(long segmentMillis) {
+        this.segmentDuration = segmentMillis;
+        return this;
+    }
+
+    /**
+     * Always decodes and encodes the input, even when its streams could be copied into the target container
+     */
+    public AndroidAudioConverter setForceReencode(boolean forceReencode) {
+        this.forceReencode = forceReencode;
+        return this;
+    }
+
+    public AndroidAudioConverter setCallback(final IConvertCallback callback) {
+        this.callback = new IConvertResultCallback() {
+            @Override
+            public void onSuccess(ConversionResult result) {
+                if (result.getFiles().isEmpty()) {
+                    // output written to a stream
+                    callback.onSuccess(null);
+                }
+                // once per output
+                for (File file : result.getFiles()) {
+                    callback.onSuccess(file);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                callback.onFailure(error);
+            }
+        };
+        return this;
+    }
+
+    /**
+     * Callback also told how the output was produced, see {@link ConversionPath}
+     */
+    public AndroidAudioConverter setCallback(IConvertResultCallback callback) {
         this.callback = callback;
         return this;
     }
 
-    public void convert() {
-        if(!isLoaded()){
+    public AndroidAudioConverter setProgressCallback(IProgressCallback progressCallback) {
+        this.progressCallback = progressCallback;
+        return this;
+    }
+
+    /**
+     * Executor on which the callbacks are called, defaults to the main thread.
+     * Use {@link com.github.hiteshsondhi88.libffmpeg.CallbackExecutors#direct()} for headless conversions.
+     */
+    public AndroidAudioConverter setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    /**
+     * Minimum time between two progress callbacks, in milliseconds
+     */
+    public AndroidAudioConverter setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+        return this;
+    }
+
+    /**
+     * Queues the conversion. PCM WAV to WAV conversions are done in Java, see {@link ConversionPath#DIRECT}.
+     * @return handle of the conversion, a {@link JobGroup} when it takes several steps or no FFmpeg process,
+     * or null if the callback already got a failure to start
+     */
+    public ConversionJob convert() {
+        if(engine == null && !isLoaded()){
             callback.onFailure(new Exception("FFmpeg not loaded"));
-            return;
+            return null;
         }
-        if(audioFile == null || !audioFile.exists()){
-            callback.onFailure(new IOException("File not exists"));
-            return;
+        if (inputChannel == null) {
+            if(audioFile == null || !audioFile.exists()){
+                callback.onFailure(new IOException("File not exists"));
+                return null;
+            }
+            if(!audioFile.canRead()){
+                callback.onFailure(new IOException("Can't read the file. Missing permission?"));
+                return null;
+            }
         }
-        if(!audioFile.canRead()){
-            callback.onFailure(new IOException("Can't read the file. Missing permission?"));
-            return;
+
+
+        if (format == null && videoFormat == null && outputs.isEmpty()) {
+            callback.onFailure(new IOException("File audio or video not provided"));
+            return null;
+        }
+
+        if (outputChannel != null) {
+            if (!outputs.isEmpty()) {
+                callback.onFailure(new IOException("Only one output can be written to a stream"));
+                return null;
+            }
+            String extension = (format != null) ? format.getFormat() : videoFormat.getFormat();
+            if (StreamingFormats.outputOptions(extension) == null) {
+                callback.onFailure(new IOException(extension + " cannot be written to a stream"));
+                return null;
+            }
+        } else if (audioFile == null && outputFile == null && outputs.isEmpty()) {
+            callback.onFailure(new IOException("Output file not provided"));
+            return null;
+        }
+
+        if ((!concatFiles.isEmpty() || segmentDuration > 0)
+                && (format == null || !outputs.isEmpty() || inputChannel != null || outputChannel != null)) {
+            callback.onFailure(new IOException("Joining and splitting need an audio format, an input file and a single output file"));
+            return null;
+        }
+        for (File file : concatFiles) {
+            if (!file.canRead()) {
+                callback.onFailure(new IOException("Can't read " + file.getPath()));
+                return null;
+            }
+        }
+
+        final List<File> convertedFiles;
+        final List<String> ffmpegOptionList;
+        if (outputChannel != null) {
+            convertedFiles = Collections.emptyList();
+            ffmpegOptionList = buildCommand((File) null);
+        } else if (outputs.isEmpty()) {
+            convertedFiles = Collections.singletonList((outputFile != null) ? outputFile : getConvertedFile(audioFile));
+            ffmpegOptionList = buildCommand(convertedFiles.get(0));
+        } else {
+            convertedFiles = getOutputFiles();
+            ffmpegOptionList = buildCommand(convertedFiles);
+        }
+        // a plain WAV conversion still goes through FFmpeg, which writes pcm_s16le whatever the input
+        if (format == AudioFormat.WAV && hasEdits() && audioProfile == null && inputChannel == null
+                && outputChannel == null && outputs.isEmpty()) {
+            ConversionJob editJob = editInJava(convertedFiles.get(0));
+            if (editJob != null) {
+                return editJob;
+            }
+        }
+        // the slim audio build has no video codecs, video streams such as cover art are dropped
+        final boolean audioBinary = (format != null || !outputs.isEmpty())
+                && engine().isBinaryVariantInstalled(BinaryVariant.AUDIO);
+        if (audioBinary && outputs.isEmpty()) {
+            ffmpegOptionList.add(ffmpegOptionList.size() - 1, "-vn");
+        }
+        String[] cmd = ffmpegOptionList.toArray(new String[0]);
+        // both need to read the input file and the cache to write the output file
+        final boolean filesOnly = inputChannel == null && outputChannel == null;
+        final boolean remuxAllowed = !forceReencode && filesOnly && outputs.isEmpty() && isRemuxAllowed();
+
+        if (parallelSegments > 1 && filesOnly && outputs.isEmpty() && !hasEdits()) {
+            return startSegmentedConversion(convertedFiles.get(0));
+        }
+
+        // entries hold a single file made from a single input
+        if (cacheEnabled && context != null && filesOnly && outputs.isEmpty()
+                && concatFiles.isEmpty() && segmentDuration <= 0) {
+            return convertWithCache(ConversionCache.getInstance(context), cmd, ffmpegOptionList, convertedFiles.get(0),
+                    audioBinary, remuxAllowed);
+        }
+        return execute(cmd, ffmpegOptionList, convertedFiles, audioBinary, remuxAllowed, null, null, null);
+    }
+
+    /**
+     * Hashes the input and restores a hit on a scheduler thread, the conversion runs on a miss
+     * @return handle of the lookup and of the conversion
+     */
+    private ConversionJob convertWithCache(final ConversionCache cache, final String[] cmd, final List<String> ffmpegOptionList,
+                                           final File convertedFile, final boolean audioBinary, final boolean remuxAllowed) {
+        final JobGroup group = new JobGroup(tag);
+        final File input = audioFile;
+        final IConvertResultCallback callback = this.callback;
+        final Executor executor = (callbackExecutor != null) ? callbackExecutor : CallbackExecutors.mainThread();
+        engine().getScheduler().submit(new Runnable() {
+            @Override
+            public void run() {
+                if (!group.start()) {
+                    return;
+                }
+                String key = null;
+                try {
+                    List<String> keyArgs = new ArrayList<>(ffmpegOptionList);
+                    keyArgs.add(remuxAllowed ? "{remux}" : "{reencode}");
+                    key = cache.key(input, keyArgs, convertedFile);
+                } catch (IOException e) {
+                    // convert without the cache
+                }
+                if (key != null && cache.restore(key, convertedFile)) {
+                    if (group.finish(true)) {
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                callback.onSuccess(new ConversionResult(convertedFile, ConversionPath.CACHE));
+                            }
+                        });
+                    }
+                    return;
+                }
+                ConversionJob job = execute(cmd, ffmpegOptionList, Collections.singletonList(convertedFile), audioBinary,
+                        remuxAllowed, cache, key, group);
+                if (job != null) {
+                    group.add(job);
+                }
+            }
+        }, priority);
+        return group;
+    }
+
+    /**
+     * Queues the FFmpeg command
+     * @param cacheKey key under which the output is stored before the callback gets it, null to skip the cache
+     * @param group group the job is a step of, finished with the job, or null
+     */
+    private ConversionJob execute(String[] cmd, final List<String> ffmpegOptionList, final List<File> convertedFiles,
+                                  boolean audioBinary, boolean remuxAllowed, final ConversionCache cache,
+                                  final String cacheKey, final JobGroup group) {
+        final IConvertResultCallback callback = this.callback;
+        final Executor executor = (callbackExecutor != null) ? callbackExecutor : CallbackExecutors.mainThread();
+        ExecuteOptions options = new ExecuteOptions()
+                .setPriority(priority)
+                .setTag(tag)
+                .setCallbackExecutor(callbackExecutor);
+        if (progressInterval >= 0) {
+            options.setProgressInterval(progressInterval);
+        }
+        if (audioBinary) {
+            options.setBinaryVariant(BinaryVariant.AUDIO);
+        }
+        final ConversionPath[] conversionPath = {ConversionPath.TRANSCODE};
+        if (remuxAllowed) {
+            options.setCommandPreparer(new CommandPreparer() {
+                @Override
+                public String[] prepare(String[] args) {
+                    if (!canRemux()) {
+                        return args;
+                    }
+                    conversionPath[0] = ConversionPath.REMUX;
+                    // same options, streams copied as they are
+                    List<String> remuxOptionList = new ArrayList<>(ffmpegOptionList);
+                    remuxOptionList.add(remuxOptionList.size() - 1, "-c");
+                    remuxOptionList.add(remuxOptionList.size() - 1, "copy");
+                    return remuxOptionList.toArray(new String[0]);
+                }
+            });
+        }
+        if (cacheKey != null) {
+            // stored before the callback, which may move or delete the output
+            options.setSuccessAction(new Runnable() {
+                @Override
+                public void run() {
+                    cache.store(cacheKey, convertedFiles.get(0));
+                }
+            });
+        }
+        options.setInput(inputChannel).setOutput(outputChannel);
+        MediaInfo mediaInfo = probe().getCached(inputChannel == null ? audioFile : null);
+        if (mediaInfo != null) {
+            options.setDurationHint(mediaInfo.getDurationMillis());
+        }
+        if (progressCallback != null) {
+            final IProgressCallback progressCallback = this.progressCallback;
+            options.setProgressListener(new ProgressListener() {
+                @Override
+                public void onProgress(ProgressEvent event) {
+                    progressCallback.onProgress(event);
+                }
+            });
+        }
+
+        try {
+            return engine().execute(cmd, options, new FFmpegExecuteResponseHandler() {
+                        @Override
+                        public void onStart() {
+
+                        }
+
+                        @Override
+                        public void onProgress(String message) {
+
+                        }
+
+                        @Override
+                        public void onSuccess(String message) {
+                            if (group != null && !group.finish(true)) {
+                                return;
+                            }
+                            File convertedFile = convertedFiles.isEmpty() ? null : convertedFiles.get(0);
+                            List<File> files = segmentDuration > 0 ? getSegmentFiles(convertedFile) : convertedFiles;
+                            callback.onSuccess(new ConversionResult(files, conversionPath[0]));
+                        }
+
+                        @Override
+                        public void onFailure(String message) {
+                            if (group != null && !group.finish(false)) {
+                                return;
+                            }
+                            callback.onFailure(new IOException(message));
+                        }
+
+                        @Override
+                        public void onFinish() {
+
+                        }
+                    });
+        } catch (final Exception e){
+            if (group == null) {
+                callback.onFailure(e);
+            } else if (group.finish(false)) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onFailure(e);
+                    }
+                });
+            }
         }
+        return null;
+    }
 
+    /**
+     * Trims, joins, splits or downmixes PCM WAV inputs in Java on a scheduler thread.
+     * Only the headers are read on the calling thread.
+     * @return handle of the edit, null if FFmpeg is needed
+     */
+    private ConversionJob editInJava(final File convertedFile) {
+        List<File> inputs = new ArrayList<>(concatFiles.size() + 1);
+        inputs.add(audioFile);
+        inputs.addAll(concatFiles);
+        final WavEditor editor = new WavEditor(inputs)
+                .setTrim(trimStart, trimDuration)
+                .setChannels(channels)
+                .setSegmentDuration(segmentDuration);
+        try {
+            if (!editor.isSupported()) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        final IConvertResultCallback callback = this.callback;
+        final Executor executor = (callbackExecutor != null) ? callbackExecutor : CallbackExecutors.mainThread();
+        final JobGroup job = new JobGroup(tag);
+        engine().getScheduler().submit(new Runnable() {
+            @Override
+            public void run() {
+                if (!job.start()) {
+                    return;
+                }
+                try {
+                    final List<File> files = editor.write(convertedFile);
+                    if (!job.finish(true)) {
+                        return;
+                    }
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onSuccess(new ConversionResult(files, ConversionPath.DIRECT));
+                        }
+                    });
+                } catch (final IOException e) {
+                    if (!job.finish(false)) {
+                        return;
+                    }
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onFailure(e);
+                        }
+                    });
+                }
+            }
+        }, priority);
+        return job;
+    }
 
+    /**
+     * @return the files written by the segment muxer, in order
+     */
+    static List<File> getSegmentFiles(File convertedFile) {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; WavEditor.segmentFile(convertedFile, i).isFile(); i++) {
+            files.add(WavEditor.segmentFile(convertedFile, i));
+        }
+        return files;
+    }
+
+    private ConversionJob startSegmentedConversion(File convertedFile) {
+        File cacheDirectory = (context != null) ? context.getCacheDir() : new File(System.getProperty("java.io.tmpdir"));
+        File workDirectory = new File(cacheDirectory, "segments-" + UUID.randomUUID());
+        final ExecutionEngine engine = engine();
+        MultiStepConversion.Runner runner = new MultiStepConversion.Runner() {
+            @Override
+            public ConversionJob execute(String[] cmd, ExecuteOptions options, FFmpegExecuteResponseHandler handler)
+                    throws FFmpegCommandAlreadyRunningException {
+                return engine.execute(cmd, options, handler);
+            }
+        };
+        if (videoFormat != null && format == null) {
+            List<String> videoOptions = new ArrayList<>();
+            addVideoEncodingOptions(videoOptions);
+            List<String> metadataOptions = new ArrayList<>();
+            addMetadataOptions(metadataOptions);
+            return new SegmentedVideoConversion(runner, probe(), audioFile, convertedFile, workDirectory,
+                    parallelSegments, videoOptions, metadataOptions, callback, callbackExecutor, priority, tag).start();
+        } else {
+            List<String> audioOptions = new ArrayList<>();
+            if (audioProfile != null) {
+                addProfileOptions(audioOptions, audioProfile, true, Collections.<String>emptyList());
+            }
+            return new ChunkedAudioConversion(runner, audioFile, convertedFile, workDirectory, parallelSegments,
+                    audioOptions, callback, callbackExecutor, priority, tag).start();
+        }
+    }
+
+    /**
+     * Converts the given files with the options of this converter
+     * @param files inputs, output names are derived from them and made unique within the batch
+     */
+    public BatchConversion batch(final List<File> files) {
         if (format == null && videoFormat == null) {
-            callback.onFailure(new IOException("File audio or video not provided"));
-            return;
+            throw new IllegalStateException("File audio or video not provided");
         }
+        if (!outputs.isEmpty()) {
+            throw new IllegalStateException("Batches support a single output format");
+        }
+        final String extension = (format != null) ? format.getFormat() : videoFormat.getFormat();
+        return new BatchConversion(files, extension, getOutputSuffix(), new BatchConversion.ItemConverter() {
+            @Override
+            public ConversionJob convert(File input, File output, IConvertResultCallback callback, IProgressCallback progressCallback) {
+                return copy()
+                        .setFile(input)
+                        .setOutputFile(output)
+                        .setCallback(callback)
+                        .setProgressCallback(progressCallback)
+                        .convert();
+            }
+        });
+    }
 
-        final File convertedFile = (format != null) ? getConvertedFile(audioFile, format) : getConvertedFile(audioFile, videoFormat);
-        String[] cmd = null;
+    /**
+     * @return false if options need the streams to be decoded, e.g. scaling or a video encoder
+     */
+    private boolean isRemuxAllowed() {
+        if (hasEdits() || (format != null && audioProfile != null)) {
+            return false;
+        }
+        return format != null || (videoScaleWithFixedWidth == null && videoScaleWithFixedHeight == null
+                && videoFramerate == null && selectEncoder == null && videoBitrateBitPerSec == null);
+    }
+
+    /**
+     * @return true if the audio is trimmed, joined, split or downmixed
+     */
+    private boolean hasEdits() {
+        return trimStart > 0 || trimDuration >= 0 || channels > 0 || !concatFiles.isEmpty() || segmentDuration > 0;
+    }
+
+    /**
+     * Probes the input, blocking, so only called on the scheduler thread
+     */
+    private boolean canRemux() {
+        String container = (format != null) ? format.getFormat() : videoFormat.getFormat();
+        try {
+            MediaInfo mediaInfo = probe().probe(audioFile);
+            return ContainerSupport.canRemux(mediaInfo, container, format == null);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    List<String> buildCommand(File convertedFile) {
+        List<String> ffmpegOptionList = new ArrayList<>(100);
 
         /*
         * 5.4 Main options
@@ -215,87 +931,37 @@ public class AndroidAudioConverter {
         //Audio support
         if (format != null) {
 
-            cmd = new String[]{"-y", "-i", audioFile.getPath(), convertedFile.getPath()};
-
-        //Video support
-        } else if (videoFormat != null) {
-            String metadataArtist = "artist="+videoArtist;
-            String metadataAlbum = "album="+ videoAlbum;
-            String metadataTile= "title="+ videoTitle;
-            String metadataDescription = "description="+ videoDescription;
-
-            List<String> ffmpegOptionList = new ArrayList<>(100);
-
             ffmpegOptionList.add("-y");
-            ffmpegOptionList.add("-i");
-            ffmpegOptionList.add(audioFile.getPath());
-            ffmpegOptionList.add(METADATA);
-            ffmpegOptionList.add(metadataArtist);
-            ffmpegOptionList.add(METADATA);
-            ffmpegOptionList.add(metadataAlbum);
-            ffmpegOptionList.add(METADATA);
-            ffmpegOptionList.add(metadataTile);
-            ffmpegOptionList.add(METADATA);
-            ffmpegOptionList.add(metadataDescription);
-
-            if (videoScaleWithFixedWidth != null) {
-                String scaleWidth = SCALE+videoScaleWithFixedWidth + ":-2";
-
-                ffmpegOptionList.add(FILTER);
-                ffmpegOptionList.add(scaleWidth);
-            } else if (videoScaleWithFixedHeight != null) {
-
-
-                String scaleWidth = SCALE + "-2:"  +videoScaleWithFixedHeight;
-
-                ffmpegOptionList.add(FILTER);
-                ffmpegOptionList.add(scaleWidth);
-
+            addInputs(ffmpegOptionList);
+            if (audioProfile != null) {
+                // the resampling filter joins the concat filter graph
+                addProfileOptions(ffmpegOptionList, audioProfile, concatFiles.isEmpty(),
+                        channels > 0 ? Collections.singletonList("-ac") : Collections.<String>emptyList());
             }
-
-
-            if (videoFramerate != null) {
-                ffmpegOptionList.add("-r");
-                ffmpegOptionList.add(videoFramerate);
+            if (trimDuration >= 0) {
+                ffmpegOptionList.add("-t");
+                ffmpegOptionList.add(seconds(trimDuration));
             }
-
-
-            if (selectEncoder != null) {
-                ffmpegOptionList.add("-c:v");
-                ffmpegOptionList.add(selectEncoder.getEncoder());
-
-                if (encoderOption != null && selectEncoder == ENCODER_MPEG4 ) {
-                    ffmpegOptionList.add("-q:v");
-                    ffmpegOptionList.add(encoderOption);
-                }
-
-                if (encoderOption != null && selectEncoder == ENCODER_H264 ) {
-                    ffmpegOptionList.add("-preset");
-                    ffmpegOptionList.add(encoderOption);
-
-                    if (constantRateFactor != null) {
-                        ffmpegOptionList.add("-crf");
-                        ffmpegOptionList.add(constantRateFactor);
-                    }
-                }
+            if (channels > 0) {
+                ffmpegOptionList.add("-ac");
+                ffmpegOptionList.add(String.valueOf(channels));
             }
-
-            if (videoBitrateBitPerSec != null) {
-                String KiloBitRate = videoBitrateBitPerSec + "k";
-
-                ffmpegOptionList.add("-b:v");
-                ffmpegOptionList.add(KiloBitRate);
-                ffmpegOptionList.add("-maxrate");
-                ffmpegOptionList.add(KiloBitRate);
-                ffmpegOptionList.add("-bufsize");
-                ffmpegOptionList.add(KiloBitRate);
+            if (segmentDuration > 0) {
+                ffmpegOptionList.addAll(Arrays.asList("-f", "segment", "-segment_time", seconds(segmentDuration),
+                        "-reset_timestamps", "1", WavEditor.segmentPattern(convertedFile)));
+            } else {
+                addOutputPath(ffmpegOptionList, convertedFile);
             }
 
-            ffmpegOptionList.add(convertedFile.getPath());
-
-            cmd = ffmpegOptionList.toArray(new String[0]);
+        //Video support
+        } else if (videoFormat != null) {
+            ffmpegOptionList.add("-y");
+            ffmpegOptionList.add("-i");
+            ffmpegOptionList.add(getInputPath());
+            addMetadataOptions(ffmpegOptionList);
+            addVideoEncodingOptions(ffmpegOptionList);
 
-            System.out.println("FFmpeg all options : " + Arrays.toString(cmd));
+            addOutputPath(ffmpegOptionList, convertedFile);
 
             /*
             if (videoScaleWithFixedWidth == null) {
@@ -343,50 +1009,261 @@ public class AndroidAudioConverter {
 
 
         }
+        return ffmpegOptionList;
+    }
 
-        try {
-            FFmpeg.getInstance(context).execute(cmd, new FFmpegExecuteResponseHandler() {
-                        @Override
-                        public void onStart() {
+    /**
+     * @return file of each output. Default names already given to another output, or naming an input,
+     * get a -1, -2... suffix, as in {@link BatchConversion}
+     */
+    List<File> getOutputFiles() {
+        Set<String> taken = new HashSet<>();
+        if (audioFile != null) {
+            taken.add(audioFile.getAbsolutePath());
+        }
+        for (File file : concatFiles) {
+            taken.add(file.getAbsolutePath());
+        }
+        for (AudioOutput output : outputs) {
+            if (output.getFile() != null) {
+                taken.add(output.getFile().getAbsolutePath());
+            }
+        }
+        List<File> files = new ArrayList<>(outputs.size());
+        for (AudioOutput output : outputs) {
+            File file = output.getFile();
+            if (file == null) {
+                String extension = output.getFormat().getFormat();
+                file = getConvertedFile(audioFile, extension, "");
+                for (int i = 1; taken.contains(file.getAbsolutePath()); i++) {
+                    file = getConvertedFile(audioFile, extension, "-" + i);
+                }
+                taken.add(file.getAbsolutePath());
+            }
+            files.add(file);
+        }
+        return files;
+    }
 
-                        }
+    List<String> buildCommand(List<File> convertedFiles) {
+        List<String> ffmpegOptionList = new ArrayList<>(10 + 10 * outputs.size());
+        ffmpegOptionList.add("-y");
+        addInputs(ffmpegOptionList);
+
+        // options apply to the next output file
+        for (int i = 0; i < outputs.size(); i++) {
+            AudioOutput output = outputs.get(i);
+            ffmpegOptionList.add("-vn");
+            if (output.getProfile() != null) {
+                List<String> overridden = new ArrayList<>(3);
+                if (output.getBitrate() != null) {
+                    overridden.add("-b:a");
+                }
+                if (output.getSampleRate() > 0) {
+                    overridden.add("-ar");
+                }
+                if (output.getChannels() > 0) {
+                    overridden.add("-ac");
+                }
+                addProfileOptions(ffmpegOptionList, output.getProfile(), true, overridden, output.getSampleRate());
+            }
+            if (output.getBitrate() != null) {
+                ffmpegOptionList.add("-b:a");
+                ffmpegOptionList.add(output.getBitrate());
+            }
+            if (output.getSampleRate() > 0) {
+                ffmpegOptionList.add("-ar");
+                ffmpegOptionList.add(String.valueOf(output.getSampleRate()));
+            }
+            if (output.getChannels() > 0) {
+                ffmpegOptionList.add("-ac");
+                ffmpegOptionList.add(String.valueOf(output.getChannels()));
+            }
+            if (output.getDuration() != null) {
+                ffmpegOptionList.add("-t");
+                ffmpegOptionList.add(output.getDuration());
+            } else if (trimDuration >= 0) {
+                ffmpegOptionList.add("-t");
+                ffmpegOptionList.add(seconds(trimDuration));
+            }
+            ffmpegOptionList.add(convertedFiles.get(i).getPath());
+        }
+        return ffmpegOptionList;
+    }
 
-                        @Override
-                        public void onProgress(String message) {
+    private void addMetadataOptions(List<String> ffmpegOptionList) {
+        String metadataArtist = "artist="+videoArtist;
+        String metadataAlbum = "album="+ videoAlbum;
+        String metadataTile= "title="+ videoTitle;
+        String metadataDescription = "description="+ videoDescription;
+
+        ffmpegOptionList.add(METADATA);
+        ffmpegOptionList.add(metadataArtist);
+        ffmpegOptionList.add(METADATA);
+        ffmpegOptionList.add(metadataAlbum);
+        ffmpegOptionList.add(METADATA);
+        ffmpegOptionList.add(metadataTile);
+        ffmpegOptionList.add(METADATA);
+        ffmpegOptionList.add(metadataDescription);
+    }
 
-                        }
+    /**
+     * Adds the options changing the video stream: scaling, frame rate, encoder and bitrate
+     */
+    private void addVideoEncodingOptions(List<String> ffmpegOptionList) {
+        if (videoScaleWithFixedWidth != null) {
+            String scaleWidth = SCALE+videoScaleWithFixedWidth + ":-2";
 
-                        @Override
-                        public void onSuccess(String message) {
-                            callback.onSuccess(convertedFile);
-                        }
+            ffmpegOptionList.add(FILTER);
+            ffmpegOptionList.add(scaleWidth);
+        } else if (videoScaleWithFixedHeight != null) {
 
-                        @Override
-                        public void onFailure(String message) {
-                            callback.onFailure(new IOException(message));
-                        }
 
-                        @Override
-                        public void onFinish() {
+            String scaleWidth = SCALE + "-2:"  +videoScaleWithFixedHeight;
+
+            ffmpegOptionList.add(FILTER);
+            ffmpegOptionList.add(scaleWidth);
 
-                        }
-                    });
-        } catch (Exception e){
-            callback.onFailure(e);
         }
+
+
+        if (videoFramerate != null) {
+            ffmpegOptionList.add("-r");
+            ffmpegOptionList.add(videoFramerate);
+        }
+
+
+        if (selectEncoder != null) {
+            ffmpegOptionList.add("-c:v");
+            ffmpegOptionList.add(selectEncoder.getEncoder());
+
+            if (encoderOption != null && selectEncoder == ENCODER_MPEG4 ) {
+                ffmpegOptionList.add("-q:v");
+                ffmpegOptionList.add(encoderOption);
+            }
+
+            if (encoderOption != null && selectEncoder == ENCODER_H264 ) {
+                ffmpegOptionList.add("-preset");
+                ffmpegOptionList.add(encoderOption);
+
+                if (constantRateFactor != null) {
+                    ffmpegOptionList.add("-crf");
+                    ffmpegOptionList.add(constantRateFactor);
+                }
+            }
+        }
+
+        if (videoBitrateBitPerSec != null) {
+            String KiloBitRate = videoBitrateBitPerSec + "k";
+
+            ffmpegOptionList.add("-b:v");
+            ffmpegOptionList.add(KiloBitRate);
+            ffmpegOptionList.add("-maxrate");
+            ffmpegOptionList.add(KiloBitRate);
+            ffmpegOptionList.add("-bufsize");
+            ffmpegOptionList.add(KiloBitRate);
+        }
+    }
+
+    /**
+     * Adds the input and the files joined after it, trimming the start of the result
+     */
+    private void addInputs(List<String> ffmpegOptionList) {
+        if (concatFiles.isEmpty()) {
+            if (trimStart > 0) {
+                // seeking the input is accurate for audio and skips decoding the start
+                ffmpegOptionList.add("-ss");
+                ffmpegOptionList.add(seconds(trimStart));
+            }
+            ffmpegOptionList.add("-i");
+            ffmpegOptionList.add(getInputPath());
+            return;
+        }
+        ffmpegOptionList.add("-i");
+        ffmpegOptionList.add(getInputPath());
+        StringBuilder filter = new StringBuilder("[0:a]");
+        for (int i = 0; i < concatFiles.size(); i++) {
+            ffmpegOptionList.add("-i");
+            ffmpegOptionList.add(concatFiles.get(i).getPath());
+            filter.append('[').append(i + 1).append(":a]");
+        }
+        filter.append("concat=n=").append(concatFiles.size() + 1).append(":v=0:a=1");
+        if (audioProfile != null && audioProfile.getFilter() != null) {
+            filter.append(',').append(audioProfile.getFilter());
+        }
+        filter.append("[a]");
+        ffmpegOptionList.addAll(Arrays.asList("-filter_complex", filter.toString(), "-map", "[a]"));
+        if (trimStart > 0) {
+            // output option, the start of the joined audio is decoded and dropped
+            ffmpegOptionList.add("-ss");
+            ffmpegOptionList.add(seconds(trimStart));
+        }
+    }
+
+    private static void addProfileOptions(List<String> ffmpegOptionList, AudioProfile profile, boolean filter,
+                                          List<String> overridden) {
+        addProfileOptions(ffmpegOptionList, profile, filter, overridden, -1);
+    }
+
+    /**
+     * Adds the options of the profile but the overridden ones, set explicitly after it
+     * @param filter true to add the resampling filter with -af, false when it is part of a filter graph
+     * @param sampleRate rate set explicitly after the profile, the filter resamples to it, -1 for the one of the profile
+     */
+    private static void addProfileOptions(List<String> ffmpegOptionList, AudioProfile profile, boolean filter,
+                                          List<String> overridden, int sampleRate) {
+        List<String> options = profile.getOptions();
+        // options come in name and value pairs
+        for (int i = 0; i < options.size(); i += 2) {
+            if (!overridden.contains(options.get(i))) {
+                ffmpegOptionList.add(options.get(i));
+                ffmpegOptionList.add(options.get(i + 1));
+            }
+        }
+        String resampling = profile.getFilter(sampleRate > 0 ? sampleRate : profile.getSampleRate());
+        if (filter && resampling != null) {
+            ffmpegOptionList.add("-af");
+            ffmpegOptionList.add(resampling);
+        }
+    }
+
+    static String seconds(long millis) {
+        return String.format(Locale.US, "%.3f", millis / 1000.0);
+    }
+
+    private String getInputPath() {
+        return (inputChannel != null) ? "pipe:0" : audioFile.getPath();
+    }
+
+    /**
+     * Adds the output file, or the options writing to stdout when the output is a stream
+     */
+    private void addOutputPath(List<String> ffmpegOptionList, File convertedFile) {
+        if (outputChannel != null) {
+            String extension = (format != null) ? format.getFormat() : videoFormat.getFormat();
+            ffmpegOptionList.addAll(StreamingFormats.outputOptions(extension));
+            ffmpegOptionList.add("pipe:1");
+        } else {
+            ffmpegOptionList.add(convertedFile.getPath());
+        }
+    }
+
+    private File getConvertedFile(File originalFile) {
+        String extension = (format != null) ? format.getFormat() : videoFormat.getFormat();
+        return getConvertedFile(originalFile, extension, getOutputSuffix());
     }
 
-    private static File getConvertedFile(File originalFile, AudioFormat format){
-        String[] f = originalFile.getPath().split("\\.");
-        String filePath = originalFile.getPath().replace(f[f.length - 1], format.getFormat());
-        return new File(filePath);
+    private String getOutputSuffix() {
+        return (format != null) ? "" : "-CONV";
     }
 
-    private static File getConvertedFile(File originalFile, VideoFormat format){
-        String[] f = originalFile.getPath().split("\\.");
-        String filePath = originalFile.getPath().replace(f[f.length - 1], format.getFormat());
-        String suffixFileName ="-CONV";
-        filePath = filePath.replace(f[f.length - 2], f[f.length - 2] +suffixFileName);
-        return new File(filePath);
+    /**
+     * Replaces the extension of the file name only, the directories are left untouched
+     */
+    static File getConvertedFile(File originalFile, String extension, String suffix) {
+        String name = originalFile.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = (dot > 0) ? name.substring(0, dot) : name;
+        return new File(originalFile.getParentFile(), baseName + suffix + "." + extension);
     }
 }
\ No newline at end of file
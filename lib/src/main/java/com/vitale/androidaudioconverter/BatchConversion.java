@@ -0,0 +1,326 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.github.hiteshsondhi88.libffmpeg.FFmpegScheduler;
+import com.github.hiteshsondhi88.libffmpeg.ProgressEvent;
+import com.vitale.androidaudioconverter.callback.IBatchCallback;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.callback.IProgressCallback;
+import com.vitale.androidaudioconverter.model.BatchProgress;
+import com.vitale.androidaudioconverter.model.BatchResult;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts a list of files with the same options, keeping at most a given number of conversions in flight.
+ * Created by {@link AndroidAudioConverter#batch(List)}, the callback of that converter is not used.
+ * Output files are derived from the inputs in input order, so the same list always gives the same names.
+ */
+@SuppressWarnings("unused")
+public class BatchConversion {
+
+    public enum ErrorPolicy {
+        /** stop at the first failure, cancelling the conversions in flight */
+        FAIL_FAST,
+        /** convert every file, reporting failures at the end */
+        CONTINUE
+    }
+
+    interface ItemConverter {
+        /**
+         * @return handle of the conversion, null if the callback already got the result
+         */
+        ConversionJob convert(File input, File output, IConvertResultCallback callback, IProgressCallback progressCallback);
+    }
+
+    private final List<File> inputs;
+    private final String extension;
+    private final String suffix;
+    private final ItemConverter converter;
+    private int maxParallel = FFmpegScheduler.defaultConcurrency();
+    private ErrorPolicy errorPolicy = ErrorPolicy.CONTINUE;
+    private File outputDirectory;
+    private IBatchCallback callback;
+
+    private List<File> outputs;
+    private final Map<Integer, ConversionJob> running = new HashMap<>();
+    private final Map<File, ConversionResult> succeeded = new LinkedHashMap<>();
+    private final Map<File, Exception> failed = new LinkedHashMap<>();
+    private float[] itemPercent;
+    private long[] itemMediaMillis;
+    private int next;
+    private int inFlight;
+    private boolean dispatching;
+    private boolean started;
+    private boolean finished;
+    private long startTime;
+
+    BatchConversion(List<File> inputs, String extension, String suffix, ItemConverter converter) {
+        this.inputs = new ArrayList<>(inputs);
+        this.extension = extension;
+        this.suffix = suffix;
+        this.converter = converter;
+    }
+
+    /**
+     * Maximum number of conversions of this batch queued or running at the same time, defaults to the number of cores
+     */
+    public BatchConversion setMaxParallel(int maxParallel) {
+        if (maxParallel < 1) {
+            throw new IllegalArgumentException("maxParallel must be at least 1");
+        }
+        this.maxParallel = maxParallel;
+        return this;
+    }
+
+    public BatchConversion setErrorPolicy(ErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy;
+        return this;
+    }
+
+    /**
+     * Directory receiving every output, defaults to the directory of each input
+     */
+    public BatchConversion setOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+        return this;
+    }
+
+    public BatchConversion setCallback(IBatchCallback callback) {
+        this.callback = callback;
+        return this;
+    }
+
+    /**
+     * @return output file of each input, in input order
+     */
+    public synchronized List<File> getOutputFiles() {
+        if (outputs == null) {
+            outputs = outputFiles(inputs, extension, suffix, outputDirectory);
+        }
+        return Collections.unmodifiableList(outputs);
+    }
+
+    public void start() {
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("Batch already started");
+            }
+            started = true;
+            getOutputFiles();
+            itemPercent = new float[inputs.size()];
+            itemMediaMillis = new long[inputs.size()];
+            startTime = System.currentTimeMillis();
+        }
+        dispatch();
+    }
+
+    /**
+     * Stops the batch, cancelling the conversions in flight. The callback gets onFinish right away.
+     */
+    public void cancel() {
+        finish(true);
+    }
+
+    /**
+     * Starts conversions until maxParallel are in flight. Conversions may complete synchronously,
+     * e.g. from the cache, the outermost call keeps dispatching instead of recursing.
+     * The flag is cleared with the check ending the loop, a conversion finishing after it dispatches itself.
+     */
+    private void dispatch() {
+        synchronized (this) {
+            if (dispatching) {
+                return;
+            }
+            dispatching = true;
+        }
+        boolean done = false;
+        boolean exited = false;
+        try {
+            while (true) {
+                final int index;
+                synchronized (this) {
+                    if (finished || inFlight >= maxParallel || next >= inputs.size()) {
+                        dispatching = false;
+                        exited = true;
+                        done = !finished && inFlight == 0 && next >= inputs.size();
+                        break;
+                    }
+                    index = next++;
+                    inFlight++;
+                }
+                ConversionJob job = converter.convert(inputs.get(index), outputs.get(index),
+                        new ItemCallback(index), new ItemProgressCallback(index));
+                boolean cancelJob = false;
+                synchronized (this) {
+                    // a job finishing synchronously, or while starting, is already out of the batch
+                    if (job != null && itemPercent[index] < 100) {
+                        if (finished) {
+                            cancelJob = true;
+                        } else {
+                            running.put(index, job);
+                        }
+                    }
+                }
+                if (cancelJob) {
+                    job.cancel();
+                }
+            }
+        } finally {
+            if (!exited) {
+                // a conversion failed to start
+                synchronized (this) {
+                    dispatching = false;
+                }
+            }
+        }
+        if (done) {
+            finish(false);
+        }
+    }
+
+    private void onItemFinished(int index, ConversionResult result, Exception error) {
+        File input = inputs.get(index);
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            inFlight--;
+            running.remove(index);
+            itemPercent[index] = 100;
+            if (result != null) {
+                succeeded.put(input, result);
+            } else {
+                failed.put(input, error);
+            }
+        }
+        if (callback != null) {
+            if (result != null) {
+                callback.onItemSuccess(input, result);
+            } else {
+                callback.onItemFailure(input, error);
+            }
+            callback.onProgress(getProgress());
+        }
+        if (error != null && errorPolicy == ErrorPolicy.FAIL_FAST) {
+            finish(true);
+        } else {
+            dispatch();
+        }
+    }
+
+    private void finish(boolean cancelled) {
+        List<ConversionJob> jobs;
+        BatchResult result;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            jobs = new ArrayList<>(running.values());
+            running.clear();
+            List<File> skipped = new ArrayList<>();
+            for (File input : inputs) {
+                if (!succeeded.containsKey(input) && !failed.containsKey(input)) {
+                    skipped.add(input);
+                }
+            }
+            result = new BatchResult(succeeded, failed, skipped, cancelled, getProgress());
+        }
+        for (ConversionJob job : jobs) {
+            job.cancel();
+        }
+        if (callback != null) {
+            callback.onFinish(result);
+        }
+    }
+
+    public synchronized BatchProgress getProgress() {
+        float percent = 0;
+        long mediaMillis = 0;
+        if (itemPercent != null) {
+            for (int i = 0; i < itemPercent.length; i++) {
+                percent += itemPercent[i];
+                mediaMillis += itemMediaMillis[i];
+            }
+        }
+        long elapsed = started ? System.currentTimeMillis() - startTime : 0;
+        return new BatchProgress(inputs.size(), succeeded.size(), failed.size(),
+                inputs.isEmpty() ? 100 : percent / inputs.size(), elapsed, mediaMillis);
+    }
+
+    /**
+     * Output of each input: its name with the new extension, in its directory or in outputDirectory.
+     * Names already given to a previous input, or naming an input, get a -1, -2... suffix.
+     */
+    static List<File> outputFiles(List<File> inputs, String extension, String suffix, File outputDirectory) {
+        Set<String> taken = new HashSet<>();
+        for (File input : inputs) {
+            taken.add(input.getAbsolutePath());
+        }
+        List<File> outputs = new ArrayList<>(inputs.size());
+        for (File input : inputs) {
+            File directory = (outputDirectory != null) ? outputDirectory : input.getAbsoluteFile().getParentFile();
+            File output = AndroidAudioConverter.getConvertedFile(new File(directory, input.getName()), extension, suffix);
+            for (int i = 1; taken.contains(output.getAbsolutePath()); i++) {
+                output = AndroidAudioConverter.getConvertedFile(new File(directory, input.getName()), extension, suffix + "-" + i);
+            }
+            taken.add(output.getAbsolutePath());
+            outputs.add(output);
+        }
+        return outputs;
+    }
+
+    private class ItemCallback implements IConvertResultCallback {
+
+        private final int index;
+
+        ItemCallback(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onSuccess(ConversionResult result) {
+            onItemFinished(index, result, null);
+        }
+
+        @Override
+        public void onFailure(Exception error) {
+            onItemFinished(index, null, error);
+        }
+    }
+
+    private class ItemProgressCallback implements IProgressCallback {
+
+        private final int index;
+
+        ItemProgressCallback(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onProgress(ProgressEvent event) {
+            synchronized (BatchConversion.this) {
+                if (finished || itemPercent[index] >= 100) {
+                    return;
+                }
+                if (event.getPercent() >= 0) {
+                    itemPercent[index] = Math.min(99.9f, event.getPercent());
+                }
+                itemMediaMillis[index] = Math.max(itemMediaMillis[index], event.getTimeMillis());
+            }
+            if (callback != null) {
+                callback.onProgress(getProgress());
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.BinaryVariant;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteOptions;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.MediaInfo;
+import com.vitale.androidaudioconverter.probe.MediaInfoParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodes a long audio file with several processes, for encoders using a single core such as MP3 and AAC.
+ * A first pass finds the silences, the input is cut in chunks at the silences closest to an even split,
+ * the chunks are encoded by concurrent jobs of the scheduler and joined with the concat demuxer and stream copy.
+ * Each encoded chunk starts with the priming samples of the encoder, cutting in silences keeps them inaudible.
+ */
+class ChunkedAudioConversion extends MultiStepConversion {
+
+    static final String SILENCE_FILTER = "silencedetect=noise=-50dB:d=0.3";
+    /**
+     * Chunks shorter than this are not worth the start of a process
+     */
+    static final double MIN_CHUNK_SECONDS = 30;
+    /**
+     * How far a cut may move from the even split to land in a silence, as a fraction of the chunk length
+     */
+    static final double SEARCH_WINDOW = 0.25;
+
+    private static final String SILENCE_START = "silence_start: ";
+    private static final String SILENCE_END = "silence_end: ";
+
+    private final File input;
+    private final int chunks;
+    private final List<String> audioOptions;
+    private final List<String> detectionOutput = Collections.synchronizedList(new ArrayList<String>());
+    private final AtomicInteger pendingChunks = new AtomicInteger();
+
+    ChunkedAudioConversion(Runner runner, File input, File output, File workDirectory, int chunks, List<String> audioOptions,
+                           IConvertResultCallback callback, Executor callbackExecutor, int priority, String tag) {
+        super(runner, output, workDirectory, callback, callbackExecutor, priority, tag);
+        this.input = input;
+        this.chunks = chunks;
+        this.audioOptions = audioOptions;
+    }
+
+    @Override
+    ExecuteOptions newOptions() {
+        // every step drops the video streams, the slim audio build is enough
+        return super.newOptions().setBinaryVariant(BinaryVariant.AUDIO);
+    }
+
+    @Override
+    void onStart() {
+        execute(detectCommand(), newOptions(), new Step() {
+            @Override
+            public void onProgress(String message) {
+                detectionOutput.add(message);
+            }
+
+            @Override
+            void onDone() {
+                List<String> lines;
+                synchronized (detectionOutput) {
+                    lines = new ArrayList<>(detectionOutput);
+                }
+                encode(lines);
+            }
+        });
+    }
+
+    private void encode(List<String> lines) {
+        StringBuilder output = new StringBuilder();
+        for (String line : lines) {
+            output.append(line).append('\n');
+        }
+        MediaInfo mediaInfo = MediaInfoParser.parse(output.toString());
+        if (mediaInfo == null || mediaInfo.getDurationMillis() <= 0) {
+            fail(new IOException("Unable to read the duration of " + input.getPath()));
+            return;
+        }
+        double duration = mediaInfo.getDurationMillis() / 1000.0;
+        int count = (int) Math.max(1, Math.min(chunks, Math.floor(duration / MIN_CHUNK_SECONDS)));
+        List<Double> cuts = cutPoints(duration, count, parseSilences(lines));
+
+        final List<File> encoded = new ArrayList<>(cuts.size() + 1);
+        for (int i = 0; i <= cuts.size(); i++) {
+            encoded.add(new File(workDirectory, String.format(Locale.US, "chunk%03d.%s", i, extension())));
+        }
+        pendingChunks.set(encoded.size());
+        Step chunkDone = new Step() {
+            @Override
+            void onDone() {
+                if (pendingChunks.decrementAndGet() == 0) {
+                    join(encoded);
+                }
+            }
+        };
+        for (int i = 0; i < encoded.size() && !isFinished(); i++) {
+            double start = (i == 0) ? 0 : cuts.get(i - 1);
+            double end = (i == cuts.size()) ? -1 : cuts.get(i);
+            execute(encodeCommand(start, end, encoded.get(i)), newOptions(), chunkDone);
+        }
+    }
+
+    private void join(List<File> encoded) {
+        try {
+            writeConcatList(encoded, concatList());
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        execute(joinCommand(Arrays.asList("-c", "copy")), newOptions(), new Step() {
+            @Override
+            void onDone() {
+                succeed();
+            }
+        });
+    }
+
+    String[] detectCommand() {
+        return new String[] {"-i", input.getPath(), "-vn", "-af", SILENCE_FILTER, "-f", "null", "-"};
+    }
+
+    /**
+     * @param end in seconds, -1 for the end of the input
+     */
+    String[] encodeCommand(double start, double end, File chunk) {
+        List<String> cmd = new ArrayList<>(Arrays.asList("-y", "-ss", seconds(start), "-i", input.getPath()));
+        if (end >= 0) {
+            cmd.add("-t");
+            cmd.add(seconds(end - start));
+        }
+        cmd.add("-vn");
+        cmd.addAll(audioOptions);
+        cmd.add(chunk.getPath());
+        return cmd.toArray(new String[0]);
+    }
+
+    /**
+     * @return silences found by the silencedetect filter, as {start, end} in seconds
+     */
+    static List<double[]> parseSilences(List<String> lines) {
+        List<double[]> silences = new ArrayList<>();
+        double start = -1;
+        for (String line : lines) {
+            int index = line.indexOf(SILENCE_START);
+            if (index != -1) {
+                start = parseSeconds(line, index + SILENCE_START.length());
+                continue;
+            }
+            index = line.indexOf(SILENCE_END);
+            if (index != -1 && start >= 0) {
+                double end = parseSeconds(line, index + SILENCE_END.length());
+                if (end > start) {
+                    silences.add(new double[] {start, end});
+                }
+                start = -1;
+            }
+        }
+        return silences;
+    }
+
+    /**
+     * @return the times in seconds where the input is cut, in increasing order: the middle of the silence
+     * closest to each even split within the search window, or the even split when there is none
+     */
+    static List<Double> cutPoints(double duration, int chunks, List<double[]> silences) {
+        List<Double> cuts = new ArrayList<>();
+        double chunkLength = duration / chunks;
+        double previous = 0;
+        for (int k = 1; k < chunks; k++) {
+            double target = k * chunkLength;
+            double cut = target;
+            double bestDistance = SEARCH_WINDOW * chunkLength;
+            for (double[] silence : silences) {
+                double middle = (silence[0] + silence[1]) / 2;
+                double distance = Math.abs(middle - target);
+                if (distance <= bestDistance && middle > previous) {
+                    bestDistance = distance;
+                    cut = middle;
+                }
+            }
+            cuts.add(cut);
+            previous = cut;
+        }
+        return cuts;
+    }
+
+    private static double parseSeconds(String line, int from) {
+        int end = from;
+        while (end < line.length() && (Character.isDigit(line.charAt(end)) || line.charAt(end) == '.' || line.charAt(end) == '-')) {
+            end++;
+        }
+        try {
+            return Double.parseDouble(line.substring(from, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String seconds(double seconds) {
+        return String.format(Locale.US, "%.6f", seconds);
+    }
+}
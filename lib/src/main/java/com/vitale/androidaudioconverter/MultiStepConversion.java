@@ -0,0 +1,208 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.CallbackExecutors;
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteBinaryResponseHandler;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteOptions;
+import com.github.hiteshsondhi88.libffmpeg.FFmpegExecuteResponseHandler;
+import com.github.hiteshsondhi88.libffmpeg.JobGroup;
+import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegCommandAlreadyRunningException;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.ConversionPath;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conversion made of several FFmpeg jobs chained on the scheduler threads, working in a temporary directory.
+ * The first failing step cancels the other jobs, the work directory is removed in every case.
+ * The {@link JobGroup} returned by {@link #start()} cancels every step.
+ */
+abstract class MultiStepConversion {
+
+    interface Runner {
+        ConversionJob execute(String[] cmd, ExecuteOptions options, FFmpegExecuteResponseHandler handler)
+                throws FFmpegCommandAlreadyRunningException;
+    }
+
+    private final Runner runner;
+    final File output;
+    final File workDirectory;
+    private final IConvertResultCallback callback;
+    private final Executor callbackExecutor;
+    private final int priority;
+    private final String tag;
+
+    private final JobGroup group;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    MultiStepConversion(Runner runner, File output, File workDirectory, IConvertResultCallback callback,
+                        Executor callbackExecutor, int priority, String tag) {
+        this.runner = runner;
+        this.output = output;
+        this.workDirectory = workDirectory;
+        this.callback = callback;
+        this.callbackExecutor = (callbackExecutor != null) ? callbackExecutor : CallbackExecutors.mainThread();
+        this.priority = priority;
+        this.tag = tag;
+        this.group = new JobGroup(tag) {
+            @Override
+            protected void onCancelled() {
+                // cancelled conversions get no callback
+                if (finished.compareAndSet(false, true)) {
+                    deleteWorkDirectory();
+                }
+            }
+        };
+    }
+
+    /**
+     * @return handle cancelling every step
+     */
+    ConversionJob start() {
+        group.start();
+        if (!workDirectory.isDirectory() && !workDirectory.mkdirs()) {
+            fail(new IOException("Unable to create " + workDirectory));
+            return group;
+        }
+        onStart();
+        return group;
+    }
+
+    /**
+     * Queues the first step
+     */
+    abstract void onStart();
+
+    boolean isFinished() {
+        return finished.get();
+    }
+
+    void succeed() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        group.finish(true);
+        deleteWorkDirectory();
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSuccess(new ConversionResult(output, ConversionPath.TRANSCODE));
+            }
+        });
+    }
+
+    void fail(final Exception error) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        // cancels the other steps
+        group.finish(false);
+        deleteWorkDirectory();
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFailure(error);
+            }
+        });
+    }
+
+    void execute(String[] cmd, ExecuteOptions options, Step step) {
+        try {
+            ConversionJob job = runner.execute(cmd, options, step);
+            if (job != null) {
+                group.add(job);
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    ExecuteOptions newOptions() {
+        // steps chain on the scheduler threads, only the final result goes to the callback executor
+        return new ExecuteOptions()
+                .setPriority(priority)
+                .setTag(tag)
+                .setCallbackExecutor(CallbackExecutors.direct());
+    }
+
+    /**
+     * @return extension of the output, also used for the intermediate files
+     */
+    String extension() {
+        String name = output.getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    File concatList() {
+        return new File(workDirectory, "segments.txt");
+    }
+
+    /**
+     * Joins files with the concat demuxer and stream copy
+     * @param extraOptions options added after the concat input, e.g. other inputs, mappings, metadata
+     */
+    String[] joinCommand(List<String> extraOptions) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add("-y");
+        cmd.add("-f");
+        cmd.add("concat");
+        cmd.add("-safe");
+        cmd.add("0");
+        cmd.add("-i");
+        cmd.add(concatList().getPath());
+        cmd.addAll(extraOptions);
+        cmd.add(output.getPath());
+        return cmd.toArray(new String[0]);
+    }
+
+    static void writeConcatList(List<File> files, File list) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(list), "UTF-8");
+        try {
+            for (File file : files) {
+                // single quotes are escaped by closing the quote, adding an escaped quote and reopening it
+                writer.write("file '" + file.getAbsolutePath().replace("'", "'\\''") + "'\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void deleteWorkDirectory() {
+        File[] files = workDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        workDirectory.delete();
+    }
+
+    /**
+     * Step of the conversion, failing the whole conversion when its job fails
+     */
+    abstract class Step extends ExecuteBinaryResponseHandler {
+
+        abstract void onDone();
+
+        @Override
+        public void onSuccess(String message) {
+            if (!isFinished()) {
+                onDone();
+            }
+        }
+
+        @Override
+        public void onFailure(String message) {
+            fail(new IOException(message));
+        }
+    }
+}
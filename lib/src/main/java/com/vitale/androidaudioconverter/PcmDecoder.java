@@ -0,0 +1,190 @@
+package com.vitale.androidaudioconverter;
+
+import android.content.Context;
+
+import com.github.hiteshsondhi88.libffmpeg.BinaryVariant;
+import com.github.hiteshsondhi88.libffmpeg.CallbackExecutors;
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteOptions;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteBinaryResponseHandler;
+import com.github.hiteshsondhi88.libffmpeg.ExecutionEngine;
+import com.github.hiteshsondhi88.libffmpeg.FFmpeg;
+import com.github.hiteshsondhi88.libffmpeg.FFmpegScheduler;
+import com.vitale.androidaudioconverter.callback.IPcmCallback;
+import com.vitale.androidaudioconverter.model.PcmFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes the audio of a file to raw samples handed to Java code, e.g. voice activity detection,
+ * without writing an intermediate WAV file. FFmpeg writes the samples to its stdout, they are cut into
+ * fixed-size {@link PcmFrame}s taken from a small pool, and decoding waits while every frame is with the callback.
+ */
+@SuppressWarnings("unused")
+public class PcmDecoder {
+
+    public static final int DEFAULT_SAMPLE_RATE = 16000;
+    public static final int DEFAULT_FRAME_LENGTH = 1024;
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+
+    private final Context context;
+    private ExecutionEngine engine;
+    private File file;
+    private PcmFormat format = PcmFormat.S16LE;
+    private int sampleRate = DEFAULT_SAMPLE_RATE;
+    private int channels = 1;
+    private int frameLength = DEFAULT_FRAME_LENGTH;
+    private int bufferCount = DEFAULT_BUFFER_COUNT;
+    private int priority = FFmpegScheduler.PRIORITY_NORMAL;
+    private String tag;
+    private IPcmCallback callback;
+
+    private PcmDecoder(Context context) {
+        this.context = context;
+    }
+
+    public static PcmDecoder with(Context context) {
+        return new PcmDecoder(context);
+    }
+
+    /**
+     * Decoder running FFmpeg on the given engine, e.g. a {@link com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine}
+     */
+    public static PcmDecoder withEngine(ExecutionEngine engine) {
+        PcmDecoder decoder = new PcmDecoder(null);
+        decoder.engine = engine;
+        return decoder;
+    }
+
+    private ExecutionEngine engine() {
+        return engine != null ? engine : FFmpeg.getInstance(context);
+    }
+
+    public PcmDecoder setFile(File file) {
+        this.file = file;
+        return this;
+    }
+
+    /**
+     * Sample format, 16 bits integers by default
+     */
+    public PcmDecoder setFormat(PcmFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * @param sampleRate in Hz, the input is resampled, 16 kHz by default
+     */
+    public PcmDecoder setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    /**
+     * @param channels channels of the samples, the input is downmixed or upmixed, mono by default
+     */
+    public PcmDecoder setChannels(int channels) {
+        this.channels = channels;
+        return this;
+    }
+
+    /**
+     * @param frameLength sample frames per {@link PcmFrame}, one sample of every channel each
+     */
+    public PcmDecoder setFrameLength(int frameLength) {
+        this.frameLength = frameLength;
+        return this;
+    }
+
+    /**
+     * Frames in the pool: more smooth out a callback of irregular speed, fewer bound the memory used
+     */
+    public PcmDecoder setBufferCount(int bufferCount) {
+        this.bufferCount = bufferCount;
+        return this;
+    }
+
+    /**
+     * @param priority one of the {@link FFmpegScheduler} priorities
+     */
+    public PcmDecoder setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Tag of the job, to cancel it with {@link AndroidAudioConverter#cancelAll(Context, String)}
+     */
+    public PcmDecoder setTag(String tag) {
+        this.tag = tag;
+        return this;
+    }
+
+    public PcmDecoder setCallback(IPcmCallback callback) {
+        this.callback = callback;
+        return this;
+    }
+
+    /**
+     * Queues the decoding
+     * @return handle of the FFmpeg job, or null if the callback already got a failure to start
+     */
+    public ConversionJob decode() {
+        if (callback == null) {
+            throw new IllegalStateException("Callback not provided");
+        }
+        if (frameLength <= 0 || bufferCount <= 0 || sampleRate <= 0 || channels <= 0) {
+            throw new IllegalStateException("Frame length, buffer count, sample rate and channels must be positive");
+        }
+        if (engine == null && !AndroidAudioConverter.isLoaded()) {
+            callback.onFailure(new Exception("FFmpeg not loaded"));
+            return null;
+        }
+        if (file == null || !file.canRead()) {
+            callback.onFailure(new IOException("File not exists or can't be read"));
+            return null;
+        }
+
+        final PcmSink sink = new PcmSink(format, sampleRate, channels, frameLength, bufferCount, callback);
+        ExecuteOptions options = new ExecuteOptions()
+                .setPriority(priority)
+                .setTag(tag)
+                // the sink hands the frames to its own thread
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setOutput(sink);
+        if (engine().isBinaryVariantInstalled(BinaryVariant.AUDIO)) {
+            options.setBinaryVariant(BinaryVariant.AUDIO);
+        }
+        sink.start();
+        try {
+            ConversionJob job = engine().execute(buildCommand(), options, new ExecuteBinaryResponseHandler() {
+                @Override
+                public void onSuccess(String message) {
+                    sink.finish(null);
+                }
+
+                @Override
+                public void onFailure(String message) {
+                    sink.finish(new IOException(message));
+                }
+            });
+            sink.setJob(job);
+            return job;
+        } catch (Exception e) {
+            sink.finish(e);
+            return null;
+        }
+    }
+
+    String[] buildCommand() {
+        List<String> cmd = new ArrayList<>(Arrays.asList("-i", file.getPath(), "-vn",
+                "-f", format.getFormat(), "-c:a", format.getCodec(),
+                "-ar", String.valueOf(sampleRate), "-ac", String.valueOf(channels), "pipe:1"));
+        return cmd.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,271 @@
+package com.vitale.androidaudioconverter;
+
+import android.content.Context;
+
+import com.github.hiteshsondhi88.libffmpeg.BinaryVariant;
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteBinaryResponseHandler;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteOptions;
+import com.github.hiteshsondhi88.libffmpeg.ExecutionEngine;
+import com.github.hiteshsondhi88.libffmpeg.FFmpeg;
+import com.github.hiteshsondhi88.libffmpeg.FFmpegScheduler;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.AudioFormat;
+import com.vitale.androidaudioconverter.model.AudioProfile;
+import com.vitale.androidaudioconverter.model.ConversionPath;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+import com.vitale.androidaudioconverter.model.PcmFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Encodes audio while it is recorded: the samples written to the {@link PcmEncoderSession} are piped to a FFmpeg
+ * process reading raw PCM on stdin, which writes each encoded packet as soon as it is ready.
+ * The output file is complete as soon as the session is finished, with no WAV file and no conversion afterwards.
+ */
+@SuppressWarnings("unused")
+public class PcmEncoder {
+
+    public static final int DEFAULT_SAMPLE_RATE = 44100;
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+    public static final int DEFAULT_CHUNK_COUNT = 32;
+
+    private final Context context;
+    private ExecutionEngine engine;
+    private AudioFormat format;
+    private AudioProfile audioProfile;
+    private PcmFormat pcmFormat = PcmFormat.S16LE;
+    private int sampleRate = DEFAULT_SAMPLE_RATE;
+    private int channels = 1;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int chunkCount = DEFAULT_CHUNK_COUNT;
+    private File outputFile;
+    private WritableByteChannel outputChannel;
+    private int priority = FFmpegScheduler.PRIORITY_HIGH;
+    private String tag;
+    private Executor callbackExecutor;
+    private IConvertResultCallback callback;
+
+    private PcmEncoder(Context context) {
+        this.context = context;
+    }
+
+    public static PcmEncoder with(Context context) {
+        return new PcmEncoder(context);
+    }
+
+    /**
+     * Encoder running FFmpeg on the given engine, e.g. a {@link com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine}
+     */
+    public static PcmEncoder withEngine(ExecutionEngine engine) {
+        PcmEncoder encoder = new PcmEncoder(null);
+        encoder.engine = engine;
+        return encoder;
+    }
+
+    private ExecutionEngine engine() {
+        return engine != null ? engine : FFmpeg.getInstance(context);
+    }
+
+    public PcmEncoder setFormat(AudioFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Codec, bitrate and resampling of the output, see {@link AudioProfile#voice()}
+     */
+    public PcmEncoder setAudioProfile(AudioProfile audioProfile) {
+        this.audioProfile = audioProfile;
+        return this;
+    }
+
+    /**
+     * Format of the written samples, 16 bits integers by default
+     */
+    public PcmEncoder setPcmFormat(PcmFormat pcmFormat) {
+        this.pcmFormat = pcmFormat;
+        return this;
+    }
+
+    /**
+     * @param sampleRate of the written samples, in Hz
+     */
+    public PcmEncoder setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    /**
+     * @param channels of the written samples, interleaved
+     */
+    public PcmEncoder setChannels(int channels) {
+        this.channels = channels;
+        return this;
+    }
+
+    /**
+     * Bounds the samples waiting for FFmpeg to chunkCount chunks of chunkSize bytes,
+     * about 3 seconds of 44.1 kHz mono by default. Writes block beyond that.
+     */
+    public PcmEncoder setBuffering(int chunkSize, int chunkCount) {
+        this.chunkSize = chunkSize;
+        this.chunkCount = chunkCount;
+        return this;
+    }
+
+    public PcmEncoder setOutputFile(File outputFile) {
+        this.outputFile = outputFile;
+        return this;
+    }
+
+    /**
+     * Writes the encoded audio to a stream instead of a file, e.g. an upload, the callback gets no file.
+     * M4A is written fragmented. The stream is not closed.
+     */
+    public PcmEncoder setOutput(OutputStream output) {
+        return setOutput(Channels.newChannel(output));
+    }
+
+    public PcmEncoder setOutput(WritableByteChannel output) {
+        this.outputChannel = output;
+        return this;
+    }
+
+    /**
+     * @param priority one of the {@link FFmpegScheduler} priorities, high by default since writes block while the session is queued
+     */
+    public PcmEncoder setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Tag of the job, to cancel it with {@link AndroidAudioConverter#cancelAll(Context, String)}
+     */
+    public PcmEncoder setTag(String tag) {
+        this.tag = tag;
+        return this;
+    }
+
+    /**
+     * Executor on which the callback is called, defaults to the main thread
+     */
+    public PcmEncoder setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    /**
+     * Gets the output once the session is finished, or why encoding failed
+     */
+    public PcmEncoder setCallback(IConvertResultCallback callback) {
+        this.callback = callback;
+        return this;
+    }
+
+    /**
+     * Queues the FFmpeg process, samples can be written right away
+     * @return the session to write the samples to, or null if the callback already got a failure to start
+     */
+    public PcmEncoderSession start() {
+        if (callback == null) {
+            throw new IllegalStateException("Callback not provided");
+        }
+        if (chunkSize <= 0 || chunkCount <= 0 || sampleRate <= 0 || channels <= 0) {
+            throw new IllegalStateException("Buffering, sample rate and channels must be positive");
+        }
+        if (engine == null && !AndroidAudioConverter.isLoaded()) {
+            callback.onFailure(new Exception("FFmpeg not loaded"));
+            return null;
+        }
+        if (format == null) {
+            callback.onFailure(new IOException("File audio not provided"));
+            return null;
+        }
+        if (outputChannel != null) {
+            if (StreamingFormats.outputOptions(format.getFormat()) == null) {
+                callback.onFailure(new IOException(format.getFormat() + " cannot be written to a stream"));
+                return null;
+            }
+        } else if (outputFile == null) {
+            callback.onFailure(new IOException("Output file not provided"));
+            return null;
+        }
+
+        final PcmSource source = new PcmSource(chunkSize, chunkCount);
+        final PcmEncoderSession session = new PcmEncoderSession(source, pcmFormat, sampleRate, channels);
+        ExecuteOptions options = new ExecuteOptions()
+                .setPriority(priority)
+                .setTag(tag)
+                .setCallbackExecutor(callbackExecutor)
+                // FFmpeg prints nothing while recording is paused, and a recording has no expected length
+                .setTimeout(Long.MAX_VALUE)
+                .setStallTimeout(Long.MAX_VALUE)
+                .setInput(source)
+                .setOutput(outputChannel);
+        if (engine().isBinaryVariantInstalled(BinaryVariant.AUDIO)) {
+            options.setBinaryVariant(BinaryVariant.AUDIO);
+        }
+        final List<File> files = outputFile != null ? Collections.singletonList(outputFile) : Collections.<File>emptyList();
+        try {
+            ConversionJob job = engine().execute(buildCommand(), options, new ExecuteBinaryResponseHandler() {
+                @Override
+                public void onSuccess(String message) {
+                    source.stop();
+                    callback.onSuccess(new ConversionResult(files, ConversionPath.TRANSCODE));
+                }
+
+                @Override
+                public void onFailure(String message) {
+                    source.stop();
+                    callback.onFailure(new IOException(message));
+                }
+            });
+            session.setJob(job);
+            return session;
+        } catch (Exception e) {
+            source.stop();
+            callback.onFailure(e);
+            return null;
+        }
+    }
+
+    String[] buildCommand() {
+        List<String> cmd = new ArrayList<>();
+        cmd.add("-y");
+        cmd.add("-f");
+        cmd.add(pcmFormat.getFormat());
+        cmd.add("-ar");
+        cmd.add(String.valueOf(sampleRate));
+        cmd.add("-ac");
+        cmd.add(String.valueOf(channels));
+        cmd.add("-i");
+        cmd.add("pipe:0");
+        if (audioProfile != null) {
+            cmd.addAll(audioProfile.getOptions());
+            if (audioProfile.getFilter() != null) {
+                cmd.add("-af");
+                cmd.add(audioProfile.getFilter());
+            }
+        }
+        // writes every packet once encoded instead of filling the output buffer first
+        cmd.add("-flush_packets");
+        cmd.add("1");
+        if (outputChannel != null) {
+            cmd.addAll(StreamingFormats.outputOptions(format.getFormat()));
+            cmd.add("pipe:1");
+        } else {
+            cmd.add(outputFile.getPath());
+        }
+        return cmd.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,130 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.vitale.androidaudioconverter.model.PcmFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Live encoding started by {@link PcmEncoder#start()}. Samples are written from one thread, e.g. the one reading an
+ * AudioRecord, and reach FFmpeg as soon as each write returns. Writes block while FFmpeg is behind
+ * by more than the chunk pool, and fail once FFmpeg exited or the session was cancelled.
+ */
+@SuppressWarnings("unused")
+public final class PcmEncoderSession implements WritableByteChannel {
+
+    private final PcmSource source;
+    private final PcmFormat format;
+    private final int sampleRate;
+    private final int channels;
+    private ConversionJob job;
+    // little endian copy of short and float samples
+    private ByteBuffer scratch;
+
+    PcmEncoderSession(PcmSource source, PcmFormat format, int sampleRate, int channels) {
+        this.source = source;
+        this.format = format;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    void setJob(ConversionJob job) {
+        this.job = job;
+        source.setJob(job);
+    }
+
+    /**
+     * @param src interleaved samples in the format given to {@link PcmEncoder#setPcmFormat(PcmFormat)}, little endian
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        return source.write(src);
+    }
+
+    public void write(byte[] data, int offset, int length) throws IOException {
+        source.write(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Writes 16 bits samples, e.g. read by AudioRecord with ENCODING_PCM_16BIT
+     */
+    public void write(short[] samples, int offset, int length) throws IOException {
+        if (format != PcmFormat.S16LE) {
+            throw new IllegalStateException("The session encodes " + format + " samples");
+        }
+        ByteBuffer buffer = scratch(length * 2);
+        buffer.asShortBuffer().put(samples, offset, length);
+        buffer.limit(length * 2);
+        source.write(buffer);
+    }
+
+    /**
+     * Writes float samples, e.g. read by AudioRecord with ENCODING_PCM_FLOAT
+     */
+    public void write(float[] samples, int offset, int length) throws IOException {
+        if (format != PcmFormat.F32LE) {
+            throw new IllegalStateException("The session encodes " + format + " samples");
+        }
+        ByteBuffer buffer = scratch(length * 4);
+        buffer.asFloatBuffer().put(samples, offset, length);
+        buffer.limit(length * 4);
+        source.write(buffer);
+    }
+
+    private ByteBuffer scratch(int size) {
+        if (scratch == null || scratch.capacity() < size) {
+            scratch = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        scratch.clear();
+        return scratch;
+    }
+
+    /**
+     * Ends the input after the last write. FFmpeg flushes the encoder and the callback gets the result,
+     * usually within the time of a few frames.
+     */
+    public void finish() {
+        source.finish();
+    }
+
+    /**
+     * Stops FFmpeg, the callback is not called. The output file is left incomplete.
+     */
+    public void cancel() {
+        if (job != null) {
+            job.cancel();
+        }
+        source.stop();
+    }
+
+    /**
+     * @return handle of the FFmpeg job, e.g. to check its state
+     */
+    public ConversionJob getJob() {
+        return job;
+    }
+
+    /**
+     * @return duration of the samples written so far, in milliseconds
+     */
+    public long getWrittenDurationMillis() {
+        long frames = source.getWritten() / (format.getBytesPerSample() * channels);
+        return frames * 1000 / sampleRate;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return source.isWritable();
+    }
+
+    /**
+     * Same as {@link #finish()}
+     */
+    @Override
+    public void close() {
+        finish();
+    }
+}
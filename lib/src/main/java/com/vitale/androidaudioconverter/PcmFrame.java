@@ -0,0 +1,130 @@
+package com.vitale.androidaudioconverter;
+
+import com.vitale.androidaudioconverter.model.PcmFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Fixed number of decoded sample frames, interleaved. Frames come from a small pool and are reused:
+ * their content is only valid during {@link com.vitale.androidaudioconverter.callback.IPcmCallback#onFrame(PcmFrame)},
+ * copy what must be kept.
+ */
+@SuppressWarnings("unused")
+public class PcmFrame {
+
+    private final PcmFormat format;
+    private final int sampleRate;
+    private final int channels;
+    private final ByteBuffer buffer;
+    private final short[] shorts;
+    private final float[] floats;
+    // views created once, asShortBuffer() and asFloatBuffer() allocate
+    private final ShortBuffer shortView;
+    private final FloatBuffer floatView;
+    private int sampleCount;
+    private long position;
+
+    /**
+     * @param length sample frames, one sample of every channel each
+     */
+    PcmFrame(PcmFormat format, int sampleRate, int channels, int length) {
+        this.format = format;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        int samples = length * channels;
+        this.buffer = ByteBuffer.allocate(samples * format.getBytesPerSample()).order(ByteOrder.LITTLE_ENDIAN);
+        if (format == PcmFormat.S16LE) {
+            shorts = new short[samples];
+            shortView = buffer.asShortBuffer();
+            floats = null;
+            floatView = null;
+        } else {
+            floats = new float[samples];
+            floatView = buffer.asFloatBuffer();
+            shorts = null;
+            shortView = null;
+        }
+    }
+
+    /**
+     * Copies the bytes written to the buffer into the sample array
+     * @param position index of the first sample frame in the stream
+     */
+    void fill(long position) {
+        this.position = position;
+        sampleCount = buffer.position() / format.getBytesPerSample();
+        buffer.flip();
+        if (shorts != null) {
+            shortView.clear();
+            shortView.get(shorts, 0, sampleCount);
+        } else {
+            floatView.clear();
+            floatView.get(floats, 0, sampleCount);
+        }
+    }
+
+    /**
+     * Makes the buffer writable again, before giving the frame back to the pool
+     */
+    void recycle() {
+        buffer.clear();
+        sampleCount = 0;
+    }
+
+    public PcmFormat getFormat() {
+        return format;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the raw little endian samples, from 0 to the limit
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the samples for {@link PcmFormat#S16LE}, valid up to {@link #getSampleCount()}, null otherwise
+     */
+    public short[] getShorts() {
+        return shorts;
+    }
+
+    /**
+     * @return the samples for {@link PcmFormat#F32LE}, valid up to {@link #getSampleCount()}, null otherwise
+     */
+    public float[] getFloats() {
+        return floats;
+    }
+
+    /**
+     * @return number of valid values in the sample array, all channels together; only the last frame is shorter
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return index of the first sample frame since the start of the stream
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return time of the first sample since the start of the stream
+     */
+    public long getTimeMillis() {
+        return position * 1000 / sampleRate;
+    }
+}
@@ -0,0 +1,204 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.github.hiteshsondhi88.libffmpeg.JobState;
+import com.vitale.androidaudioconverter.callback.IPcmCallback;
+import com.vitale.androidaudioconverter.model.PcmFormat;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output channel of a decoding FFmpeg process, cutting its stdout into frames handed to the callback on a dedicated thread.
+ * Frames come from a fixed pool: once all of them wait for the callback, writes block, the pipe fills up and FFmpeg waits,
+ * so a slow callback slows decoding down instead of buffering the stream in memory.
+ */
+class PcmSink implements WritableByteChannel {
+
+    /**
+     * Cancelled jobs get no callback, the decoder thread checks their state while waiting for frames
+     */
+    static final long CANCEL_CHECK_INTERVAL = 500;
+
+    private final int channels;
+    private final IPcmCallback callback;
+    private final BlockingQueue<PcmFrame> free;
+    private final BlockingQueue<PcmFrame> filled = new LinkedBlockingQueue<>();
+    // queued after the last frame
+    private final PcmFrame end;
+    private final Thread consumer;
+
+    // written by the pump thread only
+    private PcmFrame current;
+    private long position;
+
+    private volatile boolean open = true;
+    private volatile boolean stopped;
+    private volatile Exception decodeError;
+    private volatile ConversionJob job;
+
+    PcmSink(PcmFormat format, int sampleRate, int channels, int frameLength, int bufferCount, IPcmCallback callback) {
+        this.channels = channels;
+        this.callback = callback;
+        this.free = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(new PcmFrame(format, sampleRate, channels, frameLength));
+        }
+        this.end = new PcmFrame(format, sampleRate, channels, 0);
+        this.consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        }, "PCM decoder");
+        consumer.setDaemon(true);
+    }
+
+    void start() {
+        consumer.start();
+    }
+
+    /**
+     * The job is cancelled if the callback throws
+     */
+    void setJob(ConversionJob job) {
+        this.job = job;
+        if (stopped) {
+            job.cancel();
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        int written = src.remaining();
+        while (src.hasRemaining()) {
+            if (stopped) {
+                // stops the pump, FFmpeg then fails writing to the closed pipe
+                throw new IOException("PCM decoding stopped");
+            }
+            if (current == null) {
+                try {
+                    // blocks while every frame waits for the callback
+                    current = free.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            ByteBuffer buffer = current.getBuffer();
+            int length = Math.min(buffer.remaining(), src.remaining());
+            int limit = src.limit();
+            src.limit(src.position() + length);
+            buffer.put(src);
+            src.limit(limit);
+            if (!buffer.hasRemaining()) {
+                publish();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Delivers the last, shorter frame and ends the stream, once FFmpeg exited and its output was written
+     * @param error why decoding failed, null if it succeeded
+     */
+    void finish(Exception error) {
+        if (error == null && current != null && current.getBuffer().position() > 0) {
+            publish();
+        }
+        decodeError = error;
+        filled.add(end);
+    }
+
+    private void publish() {
+        current.fill(position);
+        position += current.getSampleCount() / channels;
+        filled.add(current);
+        current = null;
+    }
+
+    private void consume() {
+        try {
+            while (true) {
+                PcmFrame frame = filled.poll(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    ConversionJob job = this.job;
+                    if (job != null && job.getState() == JobState.CANCELLED) {
+                        // like conversions, cancelled decodings get no callback
+                        stop(null);
+                        return;
+                    }
+                    continue;
+                }
+                if (frame == end) {
+                    break;
+                }
+                try {
+                    callback.onFrame(frame);
+                } catch (RuntimeException e) {
+                    stop(frame);
+                    ConversionJob job = this.job;
+                    if (job != null) {
+                        job.cancel();
+                    }
+                    callback.onFailure(e);
+                    return;
+                }
+                frame.recycle();
+                free.add(frame);
+            }
+        } catch (InterruptedException e) {
+            stop(null);
+            return;
+        }
+        if (decodeError != null) {
+            callback.onFailure(decodeError);
+        } else {
+            callback.onSuccess();
+        }
+    }
+
+    /**
+     * Gives every frame back to the pool so a blocked write returns, it then fails
+     */
+    private void stop(PcmFrame frame) {
+        stopped = true;
+        if (frame != null) {
+            frame.recycle();
+            free.add(frame);
+        }
+        for (PcmFrame queued = filled.poll(); queued != null; queued = filled.poll()) {
+            if (queued != end) {
+                queued.recycle();
+                free.add(queued);
+            }
+        }
+    }
+
+    /**
+     * @return number of frames not held by the writer or waiting for the callback
+     */
+    int getFreeCount() {
+        return free.size();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
@@ -0,0 +1,174 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Input channel of an encoding FFmpeg process, fed with the samples given to {@link PcmEncoderSession}.
+ * Every write is handed to FFmpeg stdin as soon as it returns, in chunks taken from a fixed pool:
+ * once all of them wait for FFmpeg, writes block, so at most the pool is buffered between the recorder and the encoder.
+ */
+class PcmSource implements ReadableByteChannel {
+
+    /**
+     * Cancelled jobs get no callback, blocked reads and writes check their state this often
+     */
+    static final long CANCEL_CHECK_INTERVAL = 500;
+
+    private final BlockingQueue<ByteBuffer> free;
+    private final BlockingQueue<ByteBuffer> filled = new LinkedBlockingQueue<>();
+    // queued after the last chunk
+    private final ByteBuffer end = ByteBuffer.allocate(0);
+
+    // read by the pump thread only
+    private ByteBuffer reading;
+
+    private volatile boolean finished;
+    private volatile boolean stopped;
+    private volatile long written;
+    private volatile ConversionJob job;
+
+    PcmSource(int chunkSize, int chunkCount) {
+        this.free = new ArrayBlockingQueue<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            free.add(ByteBuffer.allocateDirect(chunkSize));
+        }
+    }
+
+    void setJob(ConversionJob job) {
+        this.job = job;
+    }
+
+    /**
+     * Queues the bytes for FFmpeg, blocks while every chunk waits for it
+     */
+    int write(ByteBuffer src) throws IOException {
+        if (finished) {
+            throw new ClosedChannelException();
+        }
+        int count = src.remaining();
+        while (src.hasRemaining()) {
+            ByteBuffer chunk = take();
+            chunk.clear();
+            int length = Math.min(chunk.remaining(), src.remaining());
+            int limit = src.limit();
+            src.limit(src.position() + length);
+            chunk.put(src);
+            src.limit(limit);
+            chunk.flip();
+            filled.add(chunk);
+        }
+        written += count;
+        return count;
+    }
+
+    private ByteBuffer take() throws IOException {
+        while (true) {
+            if (stopped) {
+                throw new IOException("PCM encoding stopped");
+            }
+            ByteBuffer chunk;
+            try {
+                chunk = free.poll(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (chunk != null) {
+                return chunk;
+            }
+            checkJob();
+        }
+    }
+
+    /**
+     * Ends the input once the queued chunks are read, FFmpeg then flushes the encoder and exits
+     */
+    void finish() {
+        if (!finished) {
+            finished = true;
+            filled.add(end);
+        }
+    }
+
+    /**
+     * Drops the queued chunks and fails the next writes, once FFmpeg exited or the job was cancelled
+     */
+    void stop() {
+        stopped = true;
+        finished = true;
+        filled.clear();
+        filled.add(end);
+    }
+
+    private void checkJob() {
+        ConversionJob job = this.job;
+        if (job != null && job.getState().isFinished()) {
+            stop();
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        while (reading == null) {
+            ByteBuffer chunk;
+            try {
+                chunk = filled.poll(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (chunk == end) {
+                return -1;
+            }
+            if (chunk == null) {
+                checkJob();
+            } else {
+                reading = chunk;
+            }
+        }
+        int length = Math.min(reading.remaining(), dst.remaining());
+        int limit = reading.limit();
+        reading.limit(reading.position() + length);
+        dst.put(reading);
+        reading.limit(limit);
+        if (!reading.hasRemaining()) {
+            free.add(reading);
+            reading = null;
+        }
+        return length;
+    }
+
+    /**
+     * @return false once the input was finished or stopped
+     */
+    boolean isWritable() {
+        return !finished;
+    }
+
+    /**
+     * @return bytes given to {@link #write(ByteBuffer)}
+     */
+    long getWritten() {
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !stopped;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
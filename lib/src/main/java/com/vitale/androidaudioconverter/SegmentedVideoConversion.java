@@ -0,0 +1,174 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.CommandPreparer;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteOptions;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.MediaInfo;
+import com.vitale.androidaudioconverter.probe.MediaProbe;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodes a video with several processes: the video stream is cut at keyframes into segments without re-encoding,
+ * the segments are encoded by concurrent jobs of the scheduler while the audio is encoded in one piece,
+ * so it has no gap at the cuts, then everything is joined with the concat demuxer and stream copy.
+ */
+class SegmentedVideoConversion extends MultiStepConversion {
+
+    static final String SEGMENT_TIME = "{segment_time}";
+    /**
+     * Used when the duration of the input cannot be read
+     */
+    static final double DEFAULT_SEGMENT_SECONDS = 60;
+
+    private final MediaProbe probe;
+    private final File input;
+    private final int segments;
+    private final List<String> videoOptions;
+    private final List<String> metadataOptions;
+
+    private final AtomicInteger pendingParts = new AtomicInteger();
+    private volatile boolean hasAudio = true;
+    private volatile List<File> encodedSegments;
+
+    SegmentedVideoConversion(Runner runner, MediaProbe probe, File input, File output, File workDirectory, int segments,
+                             List<String> videoOptions, List<String> metadataOptions, IConvertResultCallback callback,
+                             Executor callbackExecutor, int priority, String tag) {
+        super(runner, output, workDirectory, callback, callbackExecutor, priority, tag);
+        this.probe = probe;
+        this.input = input;
+        this.segments = segments;
+        this.videoOptions = videoOptions;
+        this.metadataOptions = metadataOptions;
+    }
+
+    @Override
+    void onStart() {
+        ExecuteOptions options = newOptions().setCommandPreparer(new CommandPreparer() {
+            @Override
+            public String[] prepare(String[] args) {
+                String segmentTime = String.format(Locale.US, "%.3f", segmentSeconds());
+                String[] prepared = args.clone();
+                prepared[Arrays.asList(args).indexOf(SEGMENT_TIME)] = segmentTime;
+                return prepared;
+            }
+        });
+        execute(splitCommand(), options, new Step() {
+            @Override
+            void onDone() {
+                encode();
+            }
+        });
+    }
+
+    /**
+     * Probes the input, on the scheduler thread. Without the streams of the input the join cannot be built,
+     * so a failed probe fails the conversion and cancels the split.
+     */
+    private double segmentSeconds() {
+        if (probe != null) {
+            try {
+                MediaInfo mediaInfo = probe.probe(input);
+                hasAudio = mediaInfo.getAudioStream() != null;
+                if (mediaInfo.getDurationMillis() > 0) {
+                    return mediaInfo.getDurationMillis() / 1000.0 / segments;
+                }
+            } catch (IOException e) {
+                fail(new IOException("Unable to probe " + input.getPath(), e));
+            }
+        }
+        return DEFAULT_SEGMENT_SECONDS;
+    }
+
+    private void encode() {
+        List<File> parts = listSegments();
+        if (parts.isEmpty()) {
+            fail(new IOException("Video could not be split"));
+            return;
+        }
+        List<File> encoded = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            encoded.add(new File(workDirectory, String.format(Locale.US, "enc%03d.%s", i, extension())));
+        }
+        encodedSegments = encoded;
+        pendingParts.set(parts.size() + (hasAudio ? 1 : 0));
+        Step partDone = new Step() {
+            @Override
+            void onDone() {
+                if (pendingParts.decrementAndGet() == 0) {
+                    join();
+                }
+            }
+        };
+        if (hasAudio) {
+            execute(audioCommand(), newOptions(), partDone);
+        }
+        for (int i = 0; i < parts.size() && !isFinished(); i++) {
+            execute(encodeCommand(parts.get(i), encoded.get(i)), newOptions(), partDone);
+        }
+    }
+
+    private void join() {
+        try {
+            writeConcatList(encodedSegments, concatList());
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        execute(joinCommand(), newOptions(), new Step() {
+            @Override
+            void onDone() {
+                succeed();
+            }
+        });
+    }
+
+    String[] splitCommand() {
+        return new String[] {"-y", "-i", input.getPath(), "-map", "0:v:0", "-c", "copy",
+                "-f", "segment", "-segment_time", SEGMENT_TIME, "-reset_timestamps", "1",
+                new File(workDirectory, "seg%03d.mkv").getPath()};
+    }
+
+    String[] encodeCommand(File segment, File encoded) {
+        List<String> cmd = new ArrayList<>(Arrays.asList("-y", "-i", segment.getPath(), "-an"));
+        cmd.addAll(videoOptions);
+        cmd.add(encoded.getPath());
+        return cmd.toArray(new String[0]);
+    }
+
+    String[] audioCommand() {
+        return new String[] {"-y", "-i", input.getPath(), "-vn", audioFile().getPath()};
+    }
+
+    String[] joinCommand() {
+        List<String> options = new ArrayList<>();
+        if (hasAudio) {
+            options.addAll(Arrays.asList("-i", audioFile().getPath(), "-map", "0:v", "-map", "1:a"));
+        }
+        options.addAll(Arrays.asList("-c", "copy"));
+        options.addAll(metadataOptions);
+        return joinCommand(options);
+    }
+
+    private List<File> listSegments() {
+        List<File> parts = new ArrayList<>();
+        for (int i = 0; ; i++) {
+            File part = new File(workDirectory, String.format(Locale.US, "seg%03d.mkv", i));
+            if (!part.isFile()) {
+                return parts;
+            }
+            parts.add(part);
+        }
+    }
+
+    private File audioFile() {
+        return new File(workDirectory, "audio." + extension());
+    }
+}
@@ -0,0 +1,43 @@
+package com.vitale.androidaudioconverter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FFmpeg options writing a format to "pipe:1". Without a file name FFmpeg cannot guess the muxer,
+ * and MP4 based formats must be fragmented since their index cannot be written back at the start of a pipe.
+ * AVI needs to seek to finish its header and cannot be streamed.
+ */
+final class StreamingFormats {
+
+    private static final Map<String, List<String>> OPTIONS = new HashMap<>();
+
+    static {
+        register("aac", "-f", "adts");
+        register("mp3", "-f", "mp3");
+        register("flac", "-f", "flac");
+        register("wav", "-f", "wav");
+        register("wma", "-f", "asf_stream");
+        register("m4a", "-f", "ipod", "-movflags", "frag_keyframe+empty_moov");
+        register("mp4", "-f", "mp4", "-movflags", "frag_keyframe+empty_moov");
+        register("mov", "-f", "mov", "-movflags", "frag_keyframe+empty_moov");
+    }
+
+    private StreamingFormats() {
+    }
+
+    /**
+     * @param extension extension of the format, e.g. "mp3"
+     * @return options to put before "pipe:1", null if the format cannot be streamed
+     */
+    static List<String> outputOptions(String extension) {
+        return OPTIONS.get(extension);
+    }
+
+    private static void register(String extension, String... options) {
+        OPTIONS.put(extension, Collections.unmodifiableList(Arrays.asList(options)));
+    }
+}
@@ -0,0 +1,297 @@
+package com.vitale.androidaudioconverter.cache;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in cache of conversion outputs, so converting the same content with the same options twice
+ * does not run FFmpeg again. Entries are keyed by a fingerprint of the input content plus the FFmpeg arguments,
+ * and the least recently used entries are evicted once the cache exceeds its size.
+ */
+@SuppressWarnings("unused")
+public class ConversionCache {
+
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+    static final String INPUT_PLACEHOLDER = "{input}";
+    static final String OUTPUT_PLACEHOLDER = "{output}";
+
+    /**
+     * Content hashes kept in memory, so a file is read again only once its size or modification time changed
+     */
+    private static final int FINGERPRINT_CAPACITY = 256;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private static ConversionCache instance;
+
+    private final File directory;
+    private long maxSize;
+    private long size;
+    private final LinkedHashMap<String, File> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final LinkedHashMap<String, Fingerprint> fingerprints = new LinkedHashMap<String, Fingerprint>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Fingerprint> eldest) {
+            return size() > FINGERPRINT_CAPACITY;
+        }
+    };
+
+    public ConversionCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        loadEntries();
+    }
+
+    public static synchronized ConversionCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConversionCache(new File(context.getCacheDir(), "conversion-cache"), DEFAULT_MAX_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * Key of a conversion
+     * @param input file to convert
+     * @param args FFmpeg arguments, the paths of input and output are replaced by placeholders so the key only depends on the content and the options
+     * @param output file the conversion writes
+     */
+    public String key(File input, List<String> args, File output) throws IOException {
+        MessageDigest digest = sha1();
+        digest.update(fingerprint(input).getBytes("UTF-8"));
+        for (String arg : args) {
+            String canonical = arg;
+            if (arg.equals(input.getPath())) {
+                canonical = INPUT_PLACEHOLDER;
+            } else if (arg.equals(output.getPath())) {
+                canonical = OUTPUT_PLACEHOLDER;
+            }
+            digest.update((byte) 0);
+            digest.update(canonical.getBytes("UTF-8"));
+        }
+        return toHex(digest.digest()) + extension(output);
+    }
+
+    /**
+     * Writes the cached output of a conversion to the output file
+     * @return true on a hit, false if the conversion has to run
+     */
+    public boolean restore(String key, File output) {
+        File entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null || !entry.isFile()) {
+            misses.incrementAndGet();
+            return false;
+        }
+        try {
+            copy(entry, output);
+            entry.setLastModified(System.currentTimeMillis());
+            hits.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Adds the output of a finished conversion, the copy is done when the method returns
+     */
+    public void store(String key, File output) {
+        File entry = new File(directory, key);
+        File tmp = new File(directory, key + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                return;
+            }
+            copy(output, tmp);
+            synchronized (this) {
+                if (!tmp.renameTo(entry)) {
+                    tmp.delete();
+                    return;
+                }
+                File previous = entries.put(key, entry);
+                if (previous == null) {
+                    size += entry.length();
+                }
+                evict();
+            }
+        } catch (IOException e) {
+            tmp.delete();
+        }
+    }
+
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        for (File entry : entries.values()) {
+            entry.delete();
+        }
+        entries.clear();
+        size = 0;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return hash of the content, read again only when the size or the modification time of the file changed
+     */
+    String fingerprint(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long modified = file.lastModified();
+        synchronized (fingerprints) {
+            Fingerprint fingerprint = fingerprints.get(path);
+            if (fingerprint != null && fingerprint.length == length && fingerprint.modified == modified) {
+                return fingerprint.hash;
+            }
+        }
+        String hash = hash(file);
+        synchronized (fingerprints) {
+            fingerprints.put(path, new Fingerprint(length, modified, hash));
+        }
+        return hash;
+    }
+
+    /**
+     * @return hash of the whole content, independent of path and modification time
+     */
+    static String hash(File file) throws IOException {
+        MessageDigest digest = sha1();
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            channel.close();
+        }
+        return toHex(digest.digest());
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, File>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            File eldest = iterator.next().getValue();
+            size -= eldest.length();
+            eldest.delete();
+            iterator.remove();
+        }
+    }
+
+    private synchronized void loadEntries() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // restore the recency order persisted through the modification times
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+            } else {
+                entries.put(file.getName(), file);
+                size += file.length();
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Copies in the kernel through transferTo. Hard links would be cheaper but FFmpeg truncates
+     * an existing output in place, which would corrupt the entry sharing its data
+     */
+    static void copy(File source, File target) throws IOException {
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Unable to replace " + target);
+        }
+        FileChannel in = new FileInputStream(source).getChannel();
+        try {
+            FileChannel out = new FileOutputStream(target).getChannel();
+            try {
+                long position = 0;
+                long count = in.size();
+                while (position < count) {
+                    position += in.transferTo(position, count - position, out);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class Fingerprint {
+        final long length;
+        final long modified;
+        final String hash;
+
+        Fingerprint(long length, long modified, String hash) {
+            this.length = length;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+
+    private static String extension(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot == -1 ? "" : name.substring(dot);
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        Formatter formatter = new Formatter();
+        for (byte b : bytes) {
+            formatter.format("%02x", b);
+        }
+        return formatter.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package com.vitale.androidaudioconverter.callback;
+
+import com.vitale.androidaudioconverter.model.BatchProgress;
+import com.vitale.androidaudioconverter.model.BatchResult;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+
+import java.io.File;
+
+public interface IBatchCallback {
+
+    void onProgress(BatchProgress progress);
+
+    void onItemSuccess(File input, ConversionResult result);
+
+    void onItemFailure(File input, Exception error);
+
+    /**
+     * Called once, when every file has been converted, or when the batch stopped
+     */
+    void onFinish(BatchResult result);
+
+}
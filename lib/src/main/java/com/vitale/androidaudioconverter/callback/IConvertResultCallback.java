@@ -0,0 +1,14 @@
+package com.vitale.androidaudioconverter.callback;
+
+import com.vitale.androidaudioconverter.model.ConversionResult;
+
+/**
+ * Like {@link IConvertCallback}, also telling how the output was produced
+ */
+public interface IConvertResultCallback {
+
+    void onSuccess(ConversionResult result);
+
+    void onFailure(Exception error);
+
+}
@@ -0,0 +1,23 @@
+package com.vitale.androidaudioconverter.callback;
+
+import com.vitale.androidaudioconverter.PcmFrame;
+
+/**
+ * Receives the decoded audio of a {@link com.vitale.androidaudioconverter.PcmDecoder}, every method being called
+ * in order on the decoder thread. Decoding waits while {@link #onFrame(PcmFrame)} runs.
+ */
+public interface IPcmCallback {
+
+    /**
+     * @param frame reused once the method returns
+     */
+    void onFrame(PcmFrame frame);
+
+    /**
+     * Called after the last frame
+     */
+    void onSuccess();
+
+    void onFailure(Exception error);
+
+}
@@ -0,0 +1,9 @@
+package com.vitale.androidaudioconverter.callback;
+
+import com.github.hiteshsondhi88.libffmpeg.ProgressEvent;
+
+public interface IProgressCallback {
+
+    void onProgress(ProgressEvent event);
+
+}
@@ -0,0 +1,100 @@
+package com.vitale.androidaudioconverter.model;
+
+import java.io.File;
+
+/**
+ * One of the outputs of a conversion writing several files from a single decoding of the input.
+ * Options left unset keep the FFmpeg defaults of the format.
+ */
+@SuppressWarnings("unused")
+public class AudioOutput {
+
+    private final AudioFormat format;
+    private File file;
+    private String bitrate;
+    private int sampleRate = -1;
+    private int channels = -1;
+    private String duration;
+    private AudioProfile profile;
+
+    public AudioOutput(AudioFormat format) {
+        if (format == null) {
+            throw new IllegalArgumentException("format cannot be null");
+        }
+        this.format = format;
+    }
+
+    /**
+     * File to write, defaults to the input file with the extension of the format
+     */
+    public AudioOutput setFile(File file) {
+        this.file = file;
+        return this;
+    }
+
+    /**
+     * @param bitrate FFmpeg bitrate, e.g. "192k"
+     */
+    public AudioOutput setBitrate(String bitrate) {
+        this.bitrate = bitrate;
+        return this;
+    }
+
+    /**
+     * @param sampleRate in Hz
+     */
+    public AudioOutput setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    public AudioOutput setChannels(int channels) {
+        this.channels = channels;
+        return this;
+    }
+
+    /**
+     * Limits the output to the start of the input, e.g. for previews
+     * @param duration FFmpeg duration, e.g. "30" seconds or "00:00:30.000"
+     */
+    public AudioOutput setDuration(String duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * Encoding parameters of the output, the bitrate, sample rate and channels set on the output take precedence
+     */
+    public AudioOutput setProfile(AudioProfile profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getBitrate() {
+        return bitrate;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public String getDuration() {
+        return duration;
+    }
+
+    public AudioProfile getProfile() {
+        return profile;
+    }
+}
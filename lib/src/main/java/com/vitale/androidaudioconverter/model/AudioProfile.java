@@ -0,0 +1,212 @@
+package com.vitale.androidaudioconverter.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encoding parameters of an audio output: encoder, constant bitrate or VBR quality, sample rate, channels
+ * and how carefully to resample. Options left unset keep the FFmpeg defaults of the output format.
+ * <p>
+ * The presets are a starting point, e.g. {@code AudioProfile.voice().setBitrate("24k")}.
+ */
+@SuppressWarnings("unused")
+public class AudioProfile {
+
+    /**
+     * Speed of the sample rate conversion against its accuracy
+     */
+    public enum Resampler {
+        /** short filter, audible aliasing only on music with strong high frequencies */
+        FAST("filter_size=8:phase_shift=6"),
+        /** FFmpeg defaults */
+        DEFAULT(null),
+        /** long filter and steep cutoff, for archiving */
+        PRECISE("filter_size=64:phase_shift=14:cutoff=0.98");
+
+        private final String options;
+
+        Resampler(String options) {
+            this.options = options;
+        }
+
+        /**
+         * @return options of the aresample filter, null for the defaults
+         */
+        public String getOptions() {
+            return options;
+        }
+    }
+
+    private String codec;
+    private String bitrate;
+    private int vbrQuality = -1;
+    private int compressionLevel = -1;
+    private int sampleRate = -1;
+    private int channels = -1;
+    private Resampler resampler = Resampler.DEFAULT;
+
+    /**
+     * Speech: 16 kHz mono at 32 kb/s, resampled fast
+     */
+    public static AudioProfile voice() {
+        return new AudioProfile()
+                .setSampleRate(16000)
+                .setChannels(1)
+                .setBitrate("32k")
+                .setResampler(Resampler.FAST);
+    }
+
+    /**
+     * Music for listening: 44.1 kHz stereo at 192 kb/s
+     */
+    public static AudioProfile music() {
+        return new AudioProfile()
+                .setSampleRate(44100)
+                .setChannels(2)
+                .setBitrate("192k");
+    }
+
+    /**
+     * Long term storage: sample rate and channels of the input, 320 kb/s for lossy formats, precise resampling
+     */
+    public static AudioProfile archive() {
+        return new AudioProfile()
+                .setBitrate("320k")
+                .setResampler(Resampler.PRECISE);
+    }
+
+    /**
+     * @param codec FFmpeg encoder, e.g. "libmp3lame", "aac" or "libopus", null for the default of the format
+     */
+    public AudioProfile setCodec(String codec) {
+        this.codec = codec;
+        return this;
+    }
+
+    /**
+     * Constant bitrate, ignored by lossless formats
+     * @param bitrate FFmpeg bitrate, e.g. "64k"
+     */
+    public AudioProfile setBitrate(String bitrate) {
+        this.bitrate = bitrate;
+        return this;
+    }
+
+    /**
+     * Variable bitrate instead of {@link #setBitrate(String)}, the scale depends on the encoder:
+     * 0 (best) to 9 for MP3, 1 to 5 for AAC
+     */
+    public AudioProfile setVbrQuality(int vbrQuality) {
+        this.vbrQuality = vbrQuality;
+        return this;
+    }
+
+    /**
+     * Encoder effort, faster encoding for larger files: 0 to 12 for FLAC, 0 (slowest) to 9 for MP3
+     */
+    public AudioProfile setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * @param sampleRate in Hz
+     */
+    public AudioProfile setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    public AudioProfile setChannels(int channels) {
+        this.channels = channels;
+        return this;
+    }
+
+    public AudioProfile setResampler(Resampler resampler) {
+        this.resampler = (resampler != null) ? resampler : Resampler.DEFAULT;
+        return this;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public String getBitrate() {
+        return bitrate;
+    }
+
+    public int getVbrQuality() {
+        return vbrQuality;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public Resampler getResampler() {
+        return resampler;
+    }
+
+    /**
+     * @return FFmpeg options applying the profile to the next output file, except {@link #getFilter()}
+     */
+    public List<String> getOptions() {
+        List<String> options = new ArrayList<>(12);
+        if (codec != null) {
+            options.add("-c:a");
+            options.add(codec);
+        }
+        if (vbrQuality >= 0) {
+            options.add("-q:a");
+            options.add(String.valueOf(vbrQuality));
+        } else if (bitrate != null) {
+            options.add("-b:a");
+            options.add(bitrate);
+        }
+        if (compressionLevel >= 0) {
+            options.add("-compression_level");
+            options.add(String.valueOf(compressionLevel));
+        }
+        if (sampleRate > 0) {
+            options.add("-ar");
+            options.add(String.valueOf(sampleRate));
+        }
+        if (channels > 0) {
+            options.add("-ac");
+            options.add(String.valueOf(channels));
+        }
+        return options;
+    }
+
+    /**
+     * The resampler FFmpeg inserts for -ar uses its defaults, this filter converts first with the chosen quality
+     * @return the aresample filter, null with the default resampler
+     */
+    public String getFilter() {
+        return getFilter(sampleRate);
+    }
+
+    /**
+     * @param sampleRate rate of the output when it overrides the one of the profile, in Hz
+     * @return the aresample filter converting to that rate, null with the default resampler
+     */
+    public String getFilter(int sampleRate) {
+        if (resampler.getOptions() == null) {
+            return null;
+        }
+        return "aresample=" + (sampleRate > 0 ? sampleRate + ":" : "") + resampler.getOptions();
+    }
+
+    @Override
+    public String toString() {
+        return "AudioProfile" + getOptions() + (getFilter() != null ? " " + getFilter() : "");
+    }
+}
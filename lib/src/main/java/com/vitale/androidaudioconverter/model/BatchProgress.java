@@ -0,0 +1,73 @@
+package com.vitale.androidaudioconverter.model;
+
+/**
+ * Progress of a batch of conversions
+ */
+public class BatchProgress {
+
+    private final int total;
+    private final int succeeded;
+    private final int failed;
+    private final float percent;
+    private final long elapsedMillis;
+    private final long mediaMillis;
+
+    public BatchProgress(int total, int succeeded, int failed, float percent, long elapsedMillis, long mediaMillis) {
+        this.total = total;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.percent = percent;
+        this.elapsedMillis = elapsedMillis;
+        this.mediaMillis = mediaMillis;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return 0 to 100, files in progress count for their own percent when their duration is known
+     */
+    public float getPercent() {
+        return percent;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return duration of media converted so far, in milliseconds
+     */
+    public long getMediaMillis() {
+        return mediaMillis;
+    }
+
+    /**
+     * @return finished files per second since the batch started
+     */
+    public double getFilesPerSecond() {
+        return elapsedMillis > 0 ? (succeeded + failed) * 1000.0 / elapsedMillis : 0;
+    }
+
+    /**
+     * @return seconds of media converted per second, above 1 is faster than realtime
+     */
+    public double getRealtimeFactor() {
+        return elapsedMillis > 0 ? (double) mediaMillis / elapsedMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d files, %d failed, %.1f%%, %.2f files/s, %.1fx realtime",
+                succeeded + failed, total, failed, percent, getFilesPerSecond(), getRealtimeFactor());
+    }
+}
@@ -0,0 +1,56 @@
+package com.vitale.androidaudioconverter.model;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a batch of conversions, by input file
+ */
+public class BatchResult {
+
+    private final Map<File, ConversionResult> succeeded;
+    private final Map<File, Exception> failed;
+    private final List<File> skipped;
+    private final boolean cancelled;
+    private final BatchProgress progress;
+
+    public BatchResult(Map<File, ConversionResult> succeeded, Map<File, Exception> failed, List<File> skipped,
+                       boolean cancelled, BatchProgress progress) {
+        this.succeeded = Collections.unmodifiableMap(succeeded);
+        this.failed = Collections.unmodifiableMap(failed);
+        this.skipped = Collections.unmodifiableList(skipped);
+        this.cancelled = cancelled;
+        this.progress = progress;
+    }
+
+    public Map<File, ConversionResult> getSucceeded() {
+        return succeeded;
+    }
+
+    public Map<File, Exception> getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return files not converted because the batch stopped first
+     */
+    public List<File> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return true if the batch was cancelled, or stopped by a failure with {@code FAIL_FAST}
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return final counts, throughput and realtime factor
+     */
+    public BatchProgress getProgress() {
+        return progress;
+    }
+}
@@ -0,0 +1,15 @@
+package com.vitale.androidaudioconverter.model;
+
+/**
+ * How the output of a conversion was produced
+ */
+public enum ConversionPath {
+    /** decoded and encoded again */
+    TRANSCODE,
+    /** streams copied into the target container without re-encoding */
+    REMUX,
+    /** copied from the output of a previous identical conversion */
+    CACHE,
+    /** WAV samples copied in Java without starting FFmpeg, see {@link com.vitale.androidaudioconverter.wav.WavEditor} */
+    DIRECT
+}
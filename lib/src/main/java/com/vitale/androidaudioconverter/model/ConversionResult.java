@@ -0,0 +1,46 @@
+package com.vitale.androidaudioconverter.model;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Output of a successful conversion
+ */
+public class ConversionResult {
+
+    private final List<File> files;
+    private final ConversionPath path;
+
+    public ConversionResult(File file, ConversionPath path) {
+        this(Collections.singletonList(file), path);
+    }
+
+    public ConversionResult(List<File> files, ConversionPath path) {
+        this.files = Collections.unmodifiableList(files);
+        this.path = path;
+    }
+
+    /**
+     * @return the converted file, the first one for conversions with several outputs, null when written to a stream
+     */
+    public File getFile() {
+        return files.isEmpty() ? null : files.get(0);
+    }
+
+    /**
+     * @return every converted file, in the order of the outputs
+     */
+    public List<File> getFiles() {
+        return files;
+    }
+
+    public ConversionPath getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path + " " + files;
+    }
+}
@@ -0,0 +1,147 @@
+package com.vitale.androidaudioconverter.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Description of a media file: container, duration, bitrate and streams.
+ * Values which are not known are -1 (numbers) or null (names).
+ */
+public class MediaInfo implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum StreamType {
+        AUDIO,
+        VIDEO,
+        OTHER
+    }
+
+    public static class Stream implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final StreamType type;
+        private final String codec;
+        private final int sampleRate;
+        private final int channels;
+        private final int width;
+        private final int height;
+        private final double fps;
+        private final int bitrateKbps;
+
+        public Stream(StreamType type, String codec, int sampleRate, int channels, int width, int height, double fps, int bitrateKbps) {
+            this.type = type;
+            this.codec = codec;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.width = width;
+            this.height = height;
+            this.fps = fps;
+            this.bitrateKbps = bitrateKbps;
+        }
+
+        public StreamType getType() {
+            return type;
+        }
+
+        /**
+         * @return FFmpeg codec name, e.g. aac, mp3, h264, pcm_s16le
+         */
+        public String getCodec() {
+            return codec;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public int getChannels() {
+            return channels;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public double getFps() {
+            return fps;
+        }
+
+        public int getBitrateKbps() {
+            return bitrateKbps;
+        }
+
+        @Override
+        public String toString() {
+            return type + "{codec=" + codec + ", sampleRate=" + sampleRate + ", channels=" + channels
+                    + ", size=" + width + "x" + height + ", fps=" + fps + ", bitrate=" + bitrateKbps + "kbps}";
+        }
+    }
+
+    private final String container;
+    private final long durationMillis;
+    private final int bitrateKbps;
+    private final List<Stream> streams;
+
+    public MediaInfo(String container, long durationMillis, int bitrateKbps, List<Stream> streams) {
+        this.container = container;
+        this.durationMillis = durationMillis;
+        this.bitrateKbps = bitrateKbps;
+        this.streams = Collections.unmodifiableList(new ArrayList<>(streams));
+    }
+
+    /**
+     * @return FFmpeg demuxer names, e.g. wav or mov,mp4,m4a,3gp,3g2,mj2
+     */
+    public String getContainer() {
+        return container;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public int getBitrateKbps() {
+        return bitrateKbps;
+    }
+
+    public List<Stream> getStreams() {
+        return streams;
+    }
+
+    /**
+     * @return first audio stream, null if there is none
+     */
+    public Stream getAudioStream() {
+        return getStream(StreamType.AUDIO);
+    }
+
+    /**
+     * @return first video stream, null if there is none
+     */
+    public Stream getVideoStream() {
+        return getStream(StreamType.VIDEO);
+    }
+
+    private Stream getStream(StreamType type) {
+        for (Stream stream : streams) {
+            if (stream.getType() == type) {
+                return stream;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "MediaInfo{container=" + container + ", duration=" + durationMillis + "ms, bitrate=" + bitrateKbps
+                + "kbps, streams=" + streams + "}";
+    }
+}
@@ -0,0 +1,39 @@
+package com.vitale.androidaudioconverter.model;
+
+/**
+ * Raw interleaved samples delivered by {@link com.vitale.androidaudioconverter.PcmDecoder}
+ */
+public enum PcmFormat {
+    /** signed 16 bits integers, little endian, read with {@link com.vitale.androidaudioconverter.PcmFrame#getShorts()} */
+    S16LE("s16le", "pcm_s16le", 2),
+    /** 32 bits floats between -1 and 1, little endian, read with {@link com.vitale.androidaudioconverter.PcmFrame#getFloats()} */
+    F32LE("f32le", "pcm_f32le", 4);
+
+    private final String format;
+    private final String codec;
+    private final int bytesPerSample;
+
+    PcmFormat(String format, String codec, int bytesPerSample) {
+        this.format = format;
+        this.codec = codec;
+        this.bytesPerSample = bytesPerSample;
+    }
+
+    /**
+     * @return the FFmpeg raw muxer name
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the FFmpeg encoder name
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    public int getBytesPerSample() {
+        return bytesPerSample;
+    }
+}
@@ -0,0 +1,77 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tells which codecs an output container can hold as they are,
+ * to copy the streams (remux) instead of decoding and encoding them again.
+ */
+public final class ContainerSupport {
+
+    private static final Map<String, Set<String>> AUDIO_CODECS = new HashMap<>();
+    private static final Map<String, Set<String>> VIDEO_CODECS = new HashMap<>();
+
+    private static final String[] PCM = {"pcm_u8", "pcm_s16le", "pcm_s24le", "pcm_s32le", "pcm_f32le", "pcm_alaw", "pcm_mulaw"};
+
+    static {
+        register("aac", codecs("aac"), codecs());
+        register("mp3", codecs("mp3"), codecs());
+        register("flac", codecs("flac"), codecs());
+        register("wav", codecs(PCM), codecs());
+        register("wma", codecs("wmav1", "wmav2"), codecs());
+        register("m4a", codecs("aac", "alac"), codecs("h264"));
+        register("mp4", codecs("aac", "mp3", "alac", "ac3"), codecs("h264", "hevc", "mpeg4"));
+        register("mov", codecs("aac", "mp3", "alac", "pcm_s16le", "pcm_s24le"), codecs("h264", "hevc", "mpeg4", "mjpeg", "prores"));
+        register("avi", codecs("mp3", "ac3", "pcm_s16le"), codecs("mpeg4", "h264", "mjpeg"));
+    }
+
+    private ContainerSupport() {
+    }
+
+    /**
+     * @param mediaInfo description of the input
+     * @param container extension of the output, e.g. "m4a"
+     * @param allowVideo false when the output must only hold audio
+     * @return true if every stream of the input can be copied into the container
+     */
+    public static boolean canRemux(MediaInfo mediaInfo, String container, boolean allowVideo) {
+        Set<String> audioCodecs = AUDIO_CODECS.get(container);
+        if (mediaInfo == null || audioCodecs == null || mediaInfo.getStreams().isEmpty()) {
+            return false;
+        }
+        for (MediaInfo.Stream stream : mediaInfo.getStreams()) {
+            switch (stream.getType()) {
+                case AUDIO:
+                    if (!audioCodecs.contains(stream.getCodec())) {
+                        return false;
+                    }
+                    break;
+                case VIDEO:
+                    if (!allowVideo || !VIDEO_CODECS.get(container).contains(stream.getCodec())) {
+                        return false;
+                    }
+                    break;
+                default:
+                    // subtitles and data streams may not fit, let FFmpeg pick and convert
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static void register(String container, Set<String> audioCodecs, Set<String> videoCodecs) {
+        AUDIO_CODECS.put(container, audioCodecs);
+        VIDEO_CODECS.put(container, videoCodecs);
+    }
+
+    private static Set<String> codecs(String... codecs) {
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(codecs)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+
+/**
+ * FLAC: the mandatory STREAMINFO block right after the "fLaC" marker holds everything.
+ */
+class FlacParser {
+
+    private static final int STREAMINFO = 0;
+    private static final int STREAMINFO_LENGTH = 34;
+
+    static boolean matches(ByteBuffer magic) {
+        return HeaderParser.fourCC(magic, 0).equals("fLaC");
+    }
+
+    static MediaInfo parse(FileChannel channel) throws IOException {
+        ByteBuffer block = HeaderParser.read(channel, 4, 4 + STREAMINFO_LENGTH);
+        if (block == null || (block.get(0) & 0x7F) != STREAMINFO) {
+            return null;
+        }
+        // after the block and frame sizes: 20 bits sample rate, 3 bits channels - 1,
+        // 5 bits bits per sample - 1, 36 bits total samples
+        long packed = block.getLong(4 + 10);
+        int sampleRate = (int) ((packed >>> 44) & 0xFFFFF);
+        int channels = (int) ((packed >>> 41) & 0x7) + 1;
+        long totalSamples = packed & 0xFFFFFFFFFL;
+        if (sampleRate == 0) {
+            return null;
+        }
+        // an unknown total leaves the duration to FFmpeg
+        if (totalSamples == 0) {
+            return null;
+        }
+        long duration = totalSamples * 1000 / sampleRate;
+        MediaInfo.Stream stream = new MediaInfo.Stream(MediaInfo.StreamType.AUDIO, "flac", sampleRate, channels,
+                -1, -1, -1, -1);
+        return new MediaInfo("flac", duration, HeaderParser.kbps(channel.size(), duration), Collections.singletonList(stream));
+    }
+}
@@ -0,0 +1,95 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads {@link MediaInfo} from the headers of WAV, MP4/MOV, MP3 and FLAC files without starting FFmpeg.
+ * Only the few header bytes are read with positional reads, never the media data, so probing takes
+ * microseconds instead of a process start. Anything unusual is left to FFmpeg: the parsers return null
+ * rather than guess.
+ */
+public final class HeaderParser {
+
+    private static final int MAGIC_LENGTH = 12;
+
+    private HeaderParser() {
+    }
+
+    /**
+     * @return description of the file, null if the format is not supported or the header cannot be read
+     */
+    public static MediaInfo parse(File file) {
+        FileInputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            return parse(is.getChannel());
+        } catch (IOException | RuntimeException e) {
+            // truncated or malformed header, FFmpeg will tell
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // Do nothing
+                }
+            }
+        }
+    }
+
+    static MediaInfo parse(FileChannel channel) throws IOException {
+        ByteBuffer magic = read(channel, 0, MAGIC_LENGTH);
+        if (magic == null) {
+            return null;
+        }
+        if (WavParser.matches(magic)) {
+            return WavParser.parse(channel);
+        }
+        if (FlacParser.matches(magic)) {
+            return FlacParser.parse(channel);
+        }
+        if (Mp4Parser.matches(magic)) {
+            return Mp4Parser.parse(channel);
+        }
+        if (Mp3Parser.matches(magic)) {
+            return Mp3Parser.parse(channel);
+        }
+        return null;
+    }
+
+    /**
+     * @return big endian buffer with exactly length bytes read at position, null if the file is shorter
+     */
+    static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position + length > channel.size()) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        buffer.flip();
+        return buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    static String fourCC(ByteBuffer buffer, int index) {
+        char[] chars = new char[4];
+        for (int i = 0; i < 4; i++) {
+            chars[i] = (char) (buffer.get(index + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    static int kbps(long bytes, long durationMillis) {
+        return durationMillis > 0 ? (int) (bytes * 8 / durationMillis) : -1;
+    }
+}
@@ -0,0 +1,205 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the input description printed by {@code ffmpeg -i}:
+ * <pre>
+ * Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'in.mp4':
+ *   Duration: 00:00:10.00, start: 0.000000, bitrate: 1205 kb/s
+ *     Stream #0:0(und): Video: h264 (High) (avc1 / 0x31637661), yuv420p, 1280x720, 1072 kb/s, 30 fps, 30 tbr (default)
+ *     Stream #0:1(und): Audio: aac (LC) (mp4a / 0x6134706D), 44100 Hz, stereo, fltp, 128 kb/s (default)
+ * </pre>
+ * Only the first input is read.
+ */
+public class MediaInfoParser {
+
+    private static final String INPUT = "Input #";
+    private static final String DURATION = "Duration:";
+    private static final String STREAM = "Stream #";
+
+    /**
+     * @return the parsed description, null if the output does not describe an input
+     */
+    public static MediaInfo parse(String output) {
+        if (output == null) {
+            return null;
+        }
+        String container = null;
+        long duration = -1;
+        int bitrate = -1;
+        List<MediaInfo.Stream> streams = new ArrayList<>();
+        boolean inInput = false;
+
+        for (String line : output.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith(INPUT)) {
+                if (inInput) {
+                    break;
+                }
+                inInput = true;
+                container = parseContainer(trimmed);
+            } else if (!inInput) {
+                continue;
+            } else if (trimmed.startsWith("Output #")) {
+                break;
+            } else if (trimmed.startsWith(DURATION)) {
+                for (String field : trimmed.split(",")) {
+                    field = field.trim();
+                    if (field.startsWith(DURATION)) {
+                        duration = parseTime(field.substring(DURATION.length()).trim());
+                    } else if (field.startsWith("bitrate:")) {
+                        bitrate = parseLeadingInt(field.substring("bitrate:".length()).trim());
+                    }
+                }
+            } else if (trimmed.startsWith(STREAM)) {
+                MediaInfo.Stream stream = parseStream(trimmed);
+                if (stream != null) {
+                    streams.add(stream);
+                }
+            }
+        }
+        if (!inInput) {
+            return null;
+        }
+        return new MediaInfo(container, duration, bitrate, streams);
+    }
+
+    private static String parseContainer(String line) {
+        // Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'in.mp4':
+        int start = line.indexOf(", ");
+        int end = line.lastIndexOf(", from ");
+        if (start == -1 || end <= start) {
+            return null;
+        }
+        return line.substring(start + 2, end);
+    }
+
+    private static MediaInfo.Stream parseStream(String line) {
+        int typeStart = line.indexOf(": ");
+        if (typeStart == -1) {
+            return null;
+        }
+        int typeEnd = line.indexOf(':', typeStart + 2);
+        if (typeEnd == -1) {
+            return null;
+        }
+        String typeName = line.substring(typeStart + 2, typeEnd).trim();
+        MediaInfo.StreamType type;
+        if ("Audio".equals(typeName)) {
+            type = MediaInfo.StreamType.AUDIO;
+        } else if ("Video".equals(typeName)) {
+            type = MediaInfo.StreamType.VIDEO;
+        } else {
+            type = MediaInfo.StreamType.OTHER;
+        }
+
+        String[] fields = splitFields(line.substring(typeEnd + 1));
+        String codec = fields.length > 0 ? firstWord(fields[0]) : null;
+        int sampleRate = -1;
+        int channels = -1;
+        int width = -1;
+        int height = -1;
+        double fps = -1;
+        int bitrate = -1;
+        for (int i = 1; i < fields.length; i++) {
+            String field = fields[i].trim();
+            if (field.endsWith(" Hz")) {
+                sampleRate = parseLeadingInt(field);
+            } else if (field.endsWith(" kb/s") || field.contains(" kb/s ")) {
+                bitrate = parseLeadingInt(field);
+            } else if (field.endsWith(" fps")) {
+                fps = parseLeadingDouble(field);
+            } else if (type == MediaInfo.StreamType.AUDIO && channels == -1) {
+                channels = parseChannels(field);
+            } else if (type == MediaInfo.StreamType.VIDEO && width == -1) {
+                int x = field.indexOf('x');
+                if (x > 0 && Character.isDigit(field.charAt(0)) && x + 1 < field.length() && Character.isDigit(field.charAt(x + 1))) {
+                    width = parseLeadingInt(field);
+                    height = parseLeadingInt(field.substring(x + 1));
+                }
+            }
+        }
+        return new MediaInfo.Stream(type, codec, sampleRate, channels, width, height, fps, bitrate);
+    }
+
+    /**
+     * Splits on commas which are not inside parentheses, e.g. {@code h264 (High) (avc1 / 0x31637661), yuv420p(tv, bt709), 1280x720}
+     */
+    private static String[] splitFields(String text) {
+        List<String> fields = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                fields.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        fields.add(text.substring(start));
+        return fields.toArray(new String[0]);
+    }
+
+    static int parseChannels(String field) {
+        if (field.startsWith("mono")) {
+            return 1;
+        } else if (field.startsWith("stereo")) {
+            return 2;
+        } else if (field.startsWith("quad")) {
+            return 4;
+        } else if (field.startsWith("5.1")) {
+            return 6;
+        } else if (field.startsWith("7.1")) {
+            return 8;
+        } else if (field.endsWith(" channels")) {
+            return parseLeadingInt(field);
+        }
+        return -1;
+    }
+
+    private static String firstWord(String field) {
+        field = field.trim();
+        int space = field.indexOf(' ');
+        return space == -1 ? field : field.substring(0, space);
+    }
+
+    static long parseTime(String value) {
+        String[] parts = value.split(":");
+        if (parts.length != 3) {
+            return -1;
+        }
+        try {
+            return Math.round((Integer.parseInt(parts[0]) * 3600 + Integer.parseInt(parts[1]) * 60 + Double.parseDouble(parts[2])) * 1000);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int parseLeadingInt(String value) {
+        int end = 0;
+        while (end < value.length() && Character.isDigit(value.charAt(end))) {
+            end++;
+        }
+        return end == 0 ? -1 : Integer.parseInt(value.substring(0, end));
+    }
+
+    private static double parseLeadingDouble(String value) {
+        int end = 0;
+        while (end < value.length() && (Character.isDigit(value.charAt(end)) || value.charAt(end) == '.')) {
+            end++;
+        }
+        try {
+            return end == 0 ? -1 : Double.parseDouble(value.substring(0, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
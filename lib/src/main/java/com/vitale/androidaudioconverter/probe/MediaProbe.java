@@ -0,0 +1,318 @@
+package com.vitale.androidaudioconverter.probe;
+
+import android.content.Context;
+
+import com.github.hiteshsondhi88.libffmpeg.ExecutionEngine;
+import com.github.hiteshsondhi88.libffmpeg.FFmpeg;
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads duration, codecs, resolution, sample rate and bitrate of media files without converting them.
+ * WAV, MP4/MOV, MP3 and FLAC headers are read in Java by {@link HeaderParser}, other files are probed by FFmpeg.
+ * Results are kept in a bounded LRU cache keyed by path, size and modification time,
+ * optionally persisted to disk, so probing the same file again does not fork FFmpeg.
+ * New entries are written to disk in batches, on a background thread, {@link #SAVE_DELAY} after the first of them.
+ * Probing blocks while FFmpeg runs, do not call {@link #probe(File)} from the main thread.
+ */
+@SuppressWarnings("unused")
+public class MediaProbe {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    /**
+     * Delay between a change of the cache and its write to the cache file, in milliseconds
+     */
+    public static final long SAVE_DELAY = 2000;
+
+    private static final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "MediaProbe writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    interface Prober {
+        /**
+         * @return the FFmpeg input description of the file
+         */
+        String probe(String path);
+    }
+
+    private static MediaProbe instance;
+    // probes of engines no longer used are dropped with them
+    private static final Map<ExecutionEngine, MediaProbe> engineInstances = new WeakHashMap<>();
+
+    private final Prober prober;
+    private final LinkedHashMap<String, MediaInfo> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong headerParses = new AtomicLong();
+    private volatile boolean headerParsing = true;
+    private File cacheFile;
+    // changes not written yet, and whether a write is scheduled for them, guarded by cache
+    private boolean dirty;
+    private boolean saveScheduled;
+    private final Object saveLock = new Object();
+    private final AtomicLong saves = new AtomicLong();
+    long saveDelay = SAVE_DELAY;
+
+    MediaProbe(Prober prober, final int capacity) {
+        this.prober = prober;
+        this.cache = new LinkedHashMap<String, MediaInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MediaInfo> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static synchronized MediaProbe getInstance(Context context) {
+        if (instance == null) {
+            final FFmpeg ffmpeg = FFmpeg.getInstance(context);
+            instance = new MediaProbe(new Prober() {
+                @Override
+                public String probe(String path) {
+                    return ffmpeg.probe(path);
+                }
+            }, DEFAULT_CAPACITY);
+        }
+        return instance;
+    }
+
+    /**
+     * @return the probe running the commands on the given engine, one per engine
+     */
+    public static MediaProbe getInstance(ExecutionEngine engine) {
+        synchronized (engineInstances) {
+            MediaProbe probe = engineInstances.get(engine);
+            if (probe == null) {
+                // the probe must not keep its own key reachable
+                final WeakReference<ExecutionEngine> engineReference = new WeakReference<>(engine);
+                probe = new MediaProbe(new Prober() {
+                    @Override
+                    public String probe(String path) {
+                        ExecutionEngine engine = engineReference.get();
+                        return engine != null ? engine.probe(path) : null;
+                    }
+                }, DEFAULT_CAPACITY);
+                engineInstances.put(engine, probe);
+            }
+            return probe;
+        }
+    }
+
+    /**
+     * @return description of the file, from the cache when the file did not change since it was probed
+     * @throws IOException if the file does not exist or FFmpeg cannot read it
+     */
+    public MediaInfo probe(File file) throws IOException {
+        if (!file.isFile()) {
+            throw new IOException("File not exists");
+        }
+        String key = key(file);
+        MediaInfo mediaInfo;
+        synchronized (cache) {
+            mediaInfo = cache.get(key);
+        }
+        if (mediaInfo != null) {
+            hits.incrementAndGet();
+            return mediaInfo;
+        }
+        misses.incrementAndGet();
+        if (headerParsing) {
+            mediaInfo = HeaderParser.parse(file);
+        }
+        if (mediaInfo != null) {
+            headerParses.incrementAndGet();
+        } else {
+            mediaInfo = MediaInfoParser.parse(prober.probe(file.getPath()));
+        }
+        if (mediaInfo == null) {
+            throw new IOException("Unable to read media information of " + file.getPath());
+        }
+        put(key, mediaInfo);
+        return mediaInfo;
+    }
+
+    /**
+     * @return the cached description of the file, null if it has not been probed or changed since
+     */
+    public MediaInfo getCached(File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        synchronized (cache) {
+            return cache.get(key(file));
+        }
+    }
+
+    /**
+     * Persists the cache to a file, loading the entries already saved in it
+     */
+    public void setCacheFile(File cacheFile) {
+        synchronized (cache) {
+            this.cacheFile = cacheFile;
+            load();
+        }
+    }
+
+    /**
+     * Reads supported headers in Java instead of forking FFmpeg, enabled by default.
+     * Disable it to get exactly what FFmpeg reports, e.g. its bitrate estimates.
+     */
+    public void setHeaderParsing(boolean headerParsing) {
+        this.headerParsing = headerParsing;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Writes the pending changes to the cache file now, e.g. before the app goes to the background
+     */
+    public void flush() {
+        save();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of misses answered by {@link HeaderParser} without FFmpeg
+     */
+    public long getHeaderParseCount() {
+        return headerParses.get();
+    }
+
+    static String key(File file) {
+        return file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+    }
+
+    /**
+     * @return number of writes of the cache file
+     */
+    long getSaveCount() {
+        return saves.get();
+    }
+
+    private void put(String key, MediaInfo mediaInfo) {
+        synchronized (cache) {
+            cache.put(key, mediaInfo);
+            scheduleSave();
+        }
+    }
+
+    // called holding the cache lock
+    private void scheduleSave() {
+        if (cacheFile == null) {
+            return;
+        }
+        dirty = true;
+        if (!saveScheduled) {
+            saveScheduled = true;
+            writer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    save();
+                }
+            }, saveDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return;
+        }
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            Map<String, MediaInfo> saved = (Map<String, MediaInfo>) in.readObject();
+            for (Map.Entry<String, MediaInfo> entry : saved.entrySet()) {
+                if (!cache.containsKey(entry.getKey())) {
+                    cache.put(entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // a corrupted or outdated cache is simply ignored
+            cacheFile.delete();
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the cache taken under its lock, the file itself is written outside of it
+     * so probes are not blocked by the disk
+     */
+    private void save() {
+        synchronized (saveLock) {
+            File file;
+            LinkedHashMap<String, MediaInfo> snapshot;
+            synchronized (cache) {
+                saveScheduled = false;
+                if (!dirty || cacheFile == null) {
+                    return;
+                }
+                dirty = false;
+                file = cacheFile;
+                snapshot = new LinkedHashMap<>(cache);
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            ObjectOutputStream out = null;
+            try {
+                out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+                out.writeObject(snapshot);
+                out.close();
+                out = null;
+                if (!tmp.renameTo(file)) {
+                    tmp.delete();
+                }
+                saves.incrementAndGet();
+            } catch (IOException e) {
+                tmp.delete();
+            } finally {
+                close(out);
+            }
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Do nothing
+            }
+        }
+    }
+}
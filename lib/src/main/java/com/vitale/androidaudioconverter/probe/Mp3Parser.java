@@ -0,0 +1,198 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+
+/**
+ * MPEG audio: skips the ID3v2 tag, reads the first frame header and takes the frame count from the
+ * Xing/Info or VBRI header when present. Without one the file is constant bitrate and the duration
+ * follows from the size.
+ */
+class Mp3Parser {
+
+    private static final int SCAN_LENGTH = 64 * 1024;
+    private static final int ID3_HEADER_LENGTH = 10;
+    private static final int ID3V1_LENGTH = 128;
+    private static final int VBRI_OFFSET = 4 + 32;
+
+    private static final int MPEG1 = 3;
+    private static final int LAYER1 = 3;
+    private static final int LAYER2 = 2;
+    private static final int LAYER3 = 1;
+    private static final int MODE_MONO = 3;
+
+    private static final int[][] BITRATES = {
+            // MPEG 1 layer 1, 2, 3
+            { 0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448 },
+            { 0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384 },
+            { 0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320 },
+            // MPEG 2 and 2.5 layer 1, layers 2 and 3
+            { 0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256 },
+            { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 }
+    };
+
+    private static final int[][] SAMPLE_RATES = {
+            { 11025, 12000, 8000 },
+            null,
+            { 22050, 24000, 16000 },
+            { 44100, 48000, 32000 }
+    };
+
+    static class FrameHeader {
+        final int version;
+        final int layer;
+        final int bitrate;
+        final int sampleRate;
+        final int channels;
+        final int samplesPerFrame;
+        final int length;
+
+        private FrameHeader(int version, int layer, int bitrate, int sampleRate, int channels, boolean padding) {
+            this.version = version;
+            this.layer = layer;
+            this.bitrate = bitrate;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            if (layer == LAYER1) {
+                samplesPerFrame = 384;
+                length = (12 * bitrate * 1000 / sampleRate + (padding ? 1 : 0)) * 4;
+            } else {
+                samplesPerFrame = layer == LAYER3 && version != MPEG1 ? 576 : 1152;
+                length = samplesPerFrame / 8 * bitrate * 1000 / sampleRate + (padding ? 1 : 0);
+            }
+        }
+
+        /**
+         * @return the header starting at index, null if the bytes are not a valid frame header
+         */
+        static FrameHeader read(ByteBuffer buffer, int index) {
+            if (index + 4 > buffer.limit()) {
+                return null;
+            }
+            int b1 = buffer.get(index) & 0xFF;
+            int b2 = buffer.get(index + 1) & 0xFF;
+            int b3 = buffer.get(index + 2) & 0xFF;
+            int b4 = buffer.get(index + 3) & 0xFF;
+            if (b1 != 0xFF || (b2 & 0xE0) != 0xE0) {
+                return null;
+            }
+            int version = (b2 >> 3) & 0x3;
+            int layer = (b2 >> 1) & 0x3;
+            int bitrateIndex = b3 >> 4;
+            int sampleRateIndex = (b3 >> 2) & 0x3;
+            if (version == 1 || layer == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+                return null;
+            }
+            int table = version == MPEG1 ? 3 - layer : (layer == LAYER1 ? 3 : 4);
+            int channels = (b4 >> 6) == MODE_MONO ? 1 : 2;
+            return new FrameHeader(version, layer, BITRATES[table][bitrateIndex], SAMPLE_RATES[version][sampleRateIndex],
+                    channels, ((b3 >> 1) & 0x1) != 0);
+        }
+
+        String codec() {
+            return layer == LAYER3 ? "mp3" : layer == LAYER2 ? "mp2" : "mp1";
+        }
+
+        /**
+         * @return offset of the Xing/Info header from the frame start, after the side information
+         */
+        int xingOffset() {
+            if (version == MPEG1) {
+                return 4 + (channels == 1 ? 17 : 32);
+            }
+            return 4 + (channels == 1 ? 9 : 17);
+        }
+    }
+
+    static boolean matches(ByteBuffer magic) {
+        if (HeaderParser.fourCC(magic, 0).startsWith("ID3")) {
+            return true;
+        }
+        return FrameHeader.read(magic, 0) != null;
+    }
+
+    static MediaInfo parse(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long start = 0;
+        ByteBuffer id3 = HeaderParser.read(channel, 0, ID3_HEADER_LENGTH);
+        if (id3 != null && HeaderParser.fourCC(id3, 0).startsWith("ID3")) {
+            // sync safe size, seven bits per byte, then an optional footer
+            int tagSize = ((id3.get(6) & 0x7F) << 21) | ((id3.get(7) & 0x7F) << 14)
+                    | ((id3.get(8) & 0x7F) << 7) | (id3.get(9) & 0x7F);
+            start = ID3_HEADER_LENGTH + tagSize + ((id3.get(5) & 0x10) != 0 ? ID3_HEADER_LENGTH : 0);
+        }
+        if (start >= size) {
+            return null;
+        }
+        ByteBuffer window = HeaderParser.read(channel, start, (int) Math.min(SCAN_LENGTH, size - start));
+        if (window == null) {
+            return null;
+        }
+        int index = sync(window);
+        if (index < 0) {
+            return null;
+        }
+        FrameHeader header = FrameHeader.read(window, index);
+        long frameStart = start + index;
+        long audioLength = size - frameStart;
+        ByteBuffer tail = HeaderParser.read(channel, size - ID3V1_LENGTH, 4);
+        if (tail != null && HeaderParser.fourCC(tail, 0).startsWith("TAG")) {
+            audioLength -= ID3V1_LENGTH;
+        }
+        long frames = vbrFrames(window, index, header);
+        long duration;
+        int bitrate;
+        if (frames > 0) {
+            duration = frames * header.samplesPerFrame * 1000 / header.sampleRate;
+            bitrate = HeaderParser.kbps(audioLength, duration);
+        } else {
+            bitrate = header.bitrate;
+            duration = audioLength * 8 / bitrate;
+        }
+        MediaInfo.Stream stream = new MediaInfo.Stream(MediaInfo.StreamType.AUDIO, header.codec(), header.sampleRate,
+                header.channels, -1, -1, -1, bitrate);
+        return new MediaInfo("mp3", duration, bitrate, Collections.singletonList(stream));
+    }
+
+    /**
+     * @return index of the first frame header followed by another one, -1 if none is found
+     */
+    private static int sync(ByteBuffer window) {
+        for (int i = 0; i + 4 <= window.limit(); i++) {
+            FrameHeader header = FrameHeader.read(window, i);
+            if (header == null) {
+                continue;
+            }
+            int next = i + header.length;
+            // a lone sync word can be part of the tag or of junk before the audio
+            if (next + 4 > window.limit() || FrameHeader.read(window, next) != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of frames announced by the Xing/Info or VBRI header of the first frame, -1 if none
+     */
+    private static long vbrFrames(ByteBuffer window, int index, FrameHeader header) {
+        int xing = index + header.xingOffset();
+        if (xing + 12 <= window.limit()) {
+            String tag = HeaderParser.fourCC(window, xing);
+            if (tag.equals("Xing") || tag.equals("Info")) {
+                int flags = window.getInt(xing + 4);
+                return (flags & 0x1) != 0 ? window.getInt(xing + 8) & 0xFFFFFFFFL : -1;
+            }
+        }
+        int vbri = index + VBRI_OFFSET;
+        if (vbri + 18 <= window.limit() && HeaderParser.fourCC(window, vbri).equals("VBRI")) {
+            // version, delay, quality and byte count come before the frame count
+            return window.getInt(vbri + 14) & 0xFFFFFFFFL;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,310 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ISO base media (MP4, M4A, 3GP) and QuickTime: walks the boxes of "moov" with positional reads,
+ * skipping "mdat" whatever its size. Durations come from "mvhd", codecs from the first "stsd" entry of each track.
+ */
+class Mp4Parser {
+
+    static final String CONTAINER = "mov,mp4,m4a,3gp,3g2,mj2";
+
+    private static final int MAX_BOX_HEADER = 16;
+    // audio sample entry: box header, reserved and data reference index, then the sound description
+    private static final int AUDIO_ENTRY_LENGTH = 36;
+    private static final int VISUAL_ENTRY_LENGTH = 86;
+    private static final int OBJECT_TYPE_AAC = 0x40;
+    private static final int OBJECT_TYPE_MP3 = 0x6B;
+    private static final int OBJECT_TYPE_MPEG2_MP3 = 0x69;
+
+    private static final Map<String, String> CODECS = new HashMap<>();
+
+    static {
+        CODECS.put("mp4a", "aac");
+        CODECS.put("alac", "alac");
+        CODECS.put("ac-3", "ac3");
+        CODECS.put("ec-3", "eac3");
+        CODECS.put("Opus", "opus");
+        CODECS.put("fLaC", "flac");
+        CODECS.put(".mp3", "mp3");
+        CODECS.put("samr", "amr_nb");
+        CODECS.put("sawb", "amr_wb");
+        CODECS.put("sowt", "pcm_s16le");
+        CODECS.put("twos", "pcm_s16be");
+        CODECS.put("ulaw", "pcm_mulaw");
+        CODECS.put("alaw", "pcm_alaw");
+        CODECS.put("avc1", "h264");
+        CODECS.put("avc3", "h264");
+        CODECS.put("hvc1", "hevc");
+        CODECS.put("hev1", "hevc");
+        CODECS.put("mp4v", "mpeg4");
+        CODECS.put("s263", "h263");
+        CODECS.put("vp09", "vp9");
+        CODECS.put("av01", "av1");
+        CODECS.put("jpeg", "mjpeg");
+    }
+
+    private static class Box {
+        final String type;
+        final long start;
+        final long end;
+
+        Box(String type, long start, long end) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    static boolean matches(ByteBuffer magic) {
+        String type = HeaderParser.fourCC(magic, 4);
+        return type.equals("ftyp") || type.equals("moov") || type.equals("mdat")
+                || type.equals("wide") || type.equals("free") || type.equals("skip");
+    }
+
+    static MediaInfo parse(FileChannel channel) throws IOException {
+        Box moov = find(channel, 0, channel.size(), "moov");
+        if (moov == null) {
+            return null;
+        }
+        long duration = -1;
+        List<MediaInfo.Stream> streams = new ArrayList<>();
+        for (Box box : children(channel, moov.start, moov.end)) {
+            if (box.type.equals("mvhd")) {
+                duration = movieDuration(channel, box);
+            } else if (box.type.equals("trak")) {
+                MediaInfo.Stream stream = track(channel, box);
+                if (stream != null) {
+                    streams.add(stream);
+                }
+            }
+        }
+        if (duration < 0 || streams.isEmpty()) {
+            return null;
+        }
+        return new MediaInfo(CONTAINER, duration, HeaderParser.kbps(channel.size(), duration), streams);
+    }
+
+    /**
+     * @return the boxes between start and end, their start being after the box header
+     */
+    private static List<Box> children(FileChannel channel, long start, long end) throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        long position = start;
+        while (position + 8 <= end) {
+            ByteBuffer header = HeaderParser.read(channel, position, (int) Math.min(MAX_BOX_HEADER, end - position));
+            if (header == null) {
+                break;
+            }
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int headerLength = 8;
+            if (size == 1) {
+                if (header.limit() < MAX_BOX_HEADER) {
+                    break;
+                }
+                size = header.getLong(8);
+                headerLength = MAX_BOX_HEADER;
+            } else if (size == 0) {
+                // the last box extends to the end of the file
+                size = end - position;
+            }
+            if (size < headerLength || position + size > end) {
+                break;
+            }
+            boxes.add(new Box(HeaderParser.fourCC(header, 4), position + headerLength, position + size));
+            position += size;
+        }
+        return boxes;
+    }
+
+    private static Box find(FileChannel channel, long start, long end, String type) throws IOException {
+        for (Box box : children(channel, start, end)) {
+            if (box.type.equals(type)) {
+                return box;
+            }
+        }
+        return null;
+    }
+
+    private static Box find(FileChannel channel, Box parent, String... path) throws IOException {
+        Box box = parent;
+        for (String type : path) {
+            box = find(channel, box.start, box.end, type);
+            if (box == null) {
+                return null;
+            }
+        }
+        return box;
+    }
+
+    private static long movieDuration(FileChannel channel, Box mvhd) throws IOException {
+        long[] timing = timing(channel, mvhd);
+        return timing == null || timing[0] == 0 ? -1 : timing[1] * 1000 / timing[0];
+    }
+
+    /**
+     * @return time scale and duration of a "mvhd" or "mdhd" box, which share their first fields
+     */
+    private static long[] timing(FileChannel channel, Box box) throws IOException {
+        ByteBuffer content = HeaderParser.read(channel, box.start, (int) Math.min(32, box.end - box.start));
+        if (content == null || content.limit() < 20) {
+            return null;
+        }
+        if (content.get(0) == 1) {
+            if (content.limit() < 32) {
+                return null;
+            }
+            return new long[] { content.getInt(20) & 0xFFFFFFFFL, content.getLong(24) };
+        }
+        return new long[] { content.getInt(12) & 0xFFFFFFFFL, content.getInt(16) & 0xFFFFFFFFL };
+    }
+
+    private static MediaInfo.Stream track(FileChannel channel, Box trak) throws IOException {
+        Box mdia = find(channel, trak, "mdia");
+        if (mdia == null) {
+            return null;
+        }
+        Box hdlr = find(channel, mdia, "hdlr");
+        Box mdhd = find(channel, mdia, "mdhd");
+        Box stbl = find(channel, mdia, "minf", "stbl");
+        if (hdlr == null || mdhd == null || stbl == null) {
+            return null;
+        }
+        ByteBuffer handler = HeaderParser.read(channel, hdlr.start, 12);
+        long[] timing = timing(channel, mdhd);
+        Box stsd = find(channel, stbl, "stsd");
+        if (handler == null || timing == null || stsd == null) {
+            return null;
+        }
+        String handlerType = HeaderParser.fourCC(handler, 8);
+        // version and flags, entry count, then the first sample entry
+        long entryStart = stsd.start + 8;
+        ByteBuffer entryHeader = HeaderParser.read(channel, entryStart, 8);
+        if (entryHeader == null) {
+            return null;
+        }
+        long entryEnd = Math.min(stsd.end, entryStart + (entryHeader.getInt(0) & 0xFFFFFFFFL));
+        String format = HeaderParser.fourCC(entryHeader, 4);
+        String codec = CODECS.get(format);
+        if (handlerType.equals("soun")) {
+            return audio(channel, entryStart, entryEnd, codec, timing[0]);
+        }
+        if (handlerType.equals("vide")) {
+            return video(channel, stbl, entryStart, codec, timing);
+        }
+        return new MediaInfo.Stream(MediaInfo.StreamType.OTHER, codec, -1, -1, -1, -1, -1, -1);
+    }
+
+    private static MediaInfo.Stream audio(FileChannel channel, long entryStart, long entryEnd, String codec,
+                                          long timeScale) throws IOException {
+        ByteBuffer entry = HeaderParser.read(channel, entryStart, AUDIO_ENTRY_LENGTH);
+        if (entry == null) {
+            return null;
+        }
+        int version = entry.getShort(16) & 0xFFFF;
+        int channels = entry.getShort(24) & 0xFFFF;
+        // 16.16 fixed point, too small for rates above 65535 which then show up as the track time scale
+        int sampleRate = (entry.getInt(32) >>> 16);
+        long childrenStart = entryStart + AUDIO_ENTRY_LENGTH;
+        if (version == 1) {
+            // QuickTime sound description v1 appends four 32 bits fields
+            childrenStart += 16;
+        } else if (version == 2) {
+            ByteBuffer v2 = HeaderParser.read(channel, entryStart + AUDIO_ENTRY_LENGTH, 16);
+            if (v2 == null) {
+                return null;
+            }
+            sampleRate = (int) Double.longBitsToDouble(v2.getLong(4));
+            channels = v2.getInt(12);
+            childrenStart += 36;
+        }
+        if (sampleRate == 0) {
+            sampleRate = (int) timeScale;
+        }
+        if ("aac".equals(codec)) {
+            codec = mpeg4AudioCodec(channel, childrenStart, entryEnd);
+        }
+        return new MediaInfo.Stream(MediaInfo.StreamType.AUDIO, codec, sampleRate, channels, -1, -1, -1, -1);
+    }
+
+    /**
+     * "mp4a" also carries MP3, told apart by the object type of the "esds" decoder configuration
+     */
+    private static String mpeg4AudioCodec(FileChannel channel, long start, long end) throws IOException {
+        Box esds = find(channel, start, end, "esds");
+        if (esds == null) {
+            return "aac";
+        }
+        ByteBuffer content = HeaderParser.read(channel, esds.start, (int) Math.min(64, esds.end - esds.start));
+        if (content == null) {
+            return "aac";
+        }
+        // version and flags, then the ES descriptor
+        int position = 4;
+        if (content.get(position) != 0x03) {
+            return "aac";
+        }
+        position = skipDescriptorLength(content, position + 1);
+        // ES_ID, then the flags telling which optional fields follow
+        int flags = content.get(position + 2) & 0xFF;
+        position += 3;
+        if ((flags & 0x80) != 0) {
+            position += 2;
+        }
+        if ((flags & 0x40) != 0) {
+            position += 1 + (content.get(position) & 0xFF);
+        }
+        if ((flags & 0x20) != 0) {
+            position += 2;
+        }
+        if (position >= content.limit() || content.get(position) != 0x04) {
+            return "aac";
+        }
+        position = skipDescriptorLength(content, position + 1);
+        int objectType = content.get(position) & 0xFF;
+        if (objectType == OBJECT_TYPE_MP3 || objectType == OBJECT_TYPE_MPEG2_MP3) {
+            return "mp3";
+        }
+        return objectType == OBJECT_TYPE_AAC ? "aac" : null;
+    }
+
+    private static int skipDescriptorLength(ByteBuffer buffer, int position) {
+        // up to four bytes, seven bits each, the high bit telling another one follows
+        for (int i = 0; i < 4; i++) {
+            if ((buffer.get(position++) & 0x80) == 0) {
+                break;
+            }
+        }
+        return position;
+    }
+
+    private static MediaInfo.Stream video(FileChannel channel, Box stbl, long entryStart, String codec,
+                                          long[] timing) throws IOException {
+        ByteBuffer entry = HeaderParser.read(channel, entryStart, VISUAL_ENTRY_LENGTH);
+        if (entry == null) {
+            return null;
+        }
+        int width = entry.getShort(32) & 0xFFFF;
+        int height = entry.getShort(34) & 0xFFFF;
+        double fps = -1;
+        Box stsz = find(channel, stbl, "stsz");
+        if (stsz != null && timing[1] > 0) {
+            // version and flags, sample size, sample count
+            ByteBuffer sizes = HeaderParser.read(channel, stsz.start, 12);
+            if (sizes != null) {
+                long frames = sizes.getInt(8) & 0xFFFFFFFFL;
+                fps = Math.round(frames * timing[0] * 100.0 / timing[1]) / 100.0;
+            }
+        }
+        return new MediaInfo.Stream(MediaInfo.StreamType.VIDEO, codec, -1, -1, width, height, fps, -1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.vitale.androidaudioconverter.model.MediaInfo;
+import com.vitale.androidaudioconverter.wav.WavHeader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+
+/**
+ * RIFF/WAVE: the chunks are walked by {@link WavHeader}, only the codec name is added here.
+ */
+class WavParser {
+
+    static boolean matches(ByteBuffer magic) {
+        return HeaderParser.fourCC(magic, 0).equals("RIFF") && HeaderParser.fourCC(magic, 8).equals("WAVE");
+    }
+
+    static MediaInfo parse(FileChannel channel) throws IOException {
+        WavHeader header = WavHeader.read(channel);
+        if (header == null) {
+            return null;
+        }
+        String codec = codec(header.getFormat(), header.getBitsPerSample());
+        if (codec == null || header.getChannels() == 0 || header.getSampleRate() <= 0 || header.getByteRate() == 0) {
+            return null;
+        }
+        int bitrate = (int) (header.getByteRate() * 8 / 1000);
+        MediaInfo.Stream stream = new MediaInfo.Stream(MediaInfo.StreamType.AUDIO, codec, header.getSampleRate(),
+                header.getChannels(), -1, -1, -1, bitrate);
+        return new MediaInfo("wav", header.getDurationMillis(), bitrate, Collections.singletonList(stream));
+    }
+
+    static String codec(int format, int bitsPerSample) {
+        switch (format) {
+            case WavHeader.FORMAT_PCM:
+                switch (bitsPerSample) {
+                    case 8:
+                        return "pcm_u8";
+                    case 16:
+                        return "pcm_s16le";
+                    case 24:
+                        return "pcm_s24le";
+                    case 32:
+                        return "pcm_s32le";
+                    default:
+                        return null;
+                }
+            case WavHeader.FORMAT_FLOAT:
+                return bitsPerSample == 32 ? "pcm_f32le" : bitsPerSample == 64 ? "pcm_f64le" : null;
+            case WavHeader.FORMAT_ALAW:
+                return "pcm_alaw";
+            case WavHeader.FORMAT_MULAW:
+                return "pcm_mulaw";
+            default:
+                // compressed WAV (ADPCM, GSM, MP3...) is left to FFmpeg
+                return null;
+        }
+    }
+}
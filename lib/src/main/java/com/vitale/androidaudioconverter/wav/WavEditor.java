@@ -0,0 +1,347 @@
+package com.vitale.androidaudioconverter.wav;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Trims, joins, splits and downmixes linear PCM WAV files in Java, without starting FFmpeg.
+ * Samples are never decoded: ranges are copied with {@link FileChannel#transferTo}, which the kernel can do
+ * without going through the Java heap, and stereo is downmixed reading the input mapped once in memory.
+ * Check {@link #isSupported()} first, anything else needs FFmpeg.
+ */
+@SuppressWarnings("unused")
+public class WavEditor {
+
+    /**
+     * Inputs are mapped whole below this size, in windows of this size above it
+     */
+    private static final long MAX_MAP_LENGTH = 1L << 30;
+    /**
+     * Stereo bytes downmixed between two writes, the mono buffer is half of it at most
+     */
+    private static final int CHUNK_LENGTH = 256 * 1024;
+
+    private final List<File> inputs;
+    private long startMillis;
+    private long durationMillis = -1;
+    private int channels = -1;
+    private long segmentMillis = -1;
+    private List<WavHeader> headers;
+
+    /**
+     * @param inputs files joined one after the other, all with the same sample layout
+     */
+    public WavEditor(List<File> inputs) {
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("inputs cannot be empty");
+        }
+        this.inputs = new ArrayList<>(inputs);
+    }
+
+    public WavEditor(File input) {
+        this(Collections.singletonList(input));
+    }
+
+    /**
+     * Keeps part of the joined inputs
+     * @param startMillis start of the output
+     * @param durationMillis length of the output, -1 up to the end
+     */
+    public WavEditor setTrim(long startMillis, long durationMillis) {
+        this.startMillis = startMillis;
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
+    /**
+     * @param channels channels of the output, only 1 is supported for stereo inputs, -1 keeps them
+     */
+    public WavEditor setChannels(int channels) {
+        this.channels = channels;
+        return this;
+    }
+
+    /**
+     * Splits the output in consecutive files of this length, named as {@link #segmentFile(File, int)}
+     * @param segmentMillis length of each file, -1 writes a single file
+     */
+    public WavEditor setSegmentDuration(long segmentMillis) {
+        this.segmentMillis = segmentMillis;
+        return this;
+    }
+
+    /**
+     * Reads the headers of the inputs
+     * @return false if the inputs are not linear PCM sharing a layout, or the channels cannot be changed in Java
+     */
+    public boolean isSupported() throws IOException {
+        if (headers == null) {
+            List<WavHeader> read = new ArrayList<>(inputs.size());
+            for (File input : inputs) {
+                WavHeader header = WavHeader.read(input);
+                if (header == null) {
+                    return false;
+                }
+                read.add(header);
+            }
+            headers = read;
+        }
+        WavHeader first = headers.get(0);
+        for (WavHeader header : headers) {
+            if (!header.isLinearPcm() || !header.hasSameLayout(first)) {
+                return false;
+            }
+        }
+        return channels <= 0 || channels == first.getChannels() || (channels == 1 && first.getChannels() == 2);
+    }
+
+    /**
+     * Writes the output, blocking
+     * @param output file to write, the name pattern of the segments when splitting
+     * @return the written files
+     */
+    public List<File> write(File output) throws IOException {
+        if (!isSupported()) {
+            throw new IOException("Unsupported WAV layout, use FFmpeg");
+        }
+        for (File input : inputs) {
+            if (input.getAbsoluteFile().equals(output.getAbsoluteFile())) {
+                throw new IOException("Output file is one of the inputs");
+            }
+        }
+        WavHeader layout = headers.get(0);
+        int sampleRate = layout.getSampleRate();
+        long totalFrames = 0;
+        for (WavHeader header : headers) {
+            totalFrames += header.getFrameCount();
+        }
+        long startFrame = Math.min(totalFrames, frames(startMillis, sampleRate));
+        long endFrame = durationMillis < 0 ? totalFrames : Math.min(totalFrames, startFrame + frames(durationMillis, sampleRate));
+        long segmentFrames = segmentMillis > 0 ? Math.max(1, frames(segmentMillis, sampleRate)) : endFrame - startFrame;
+
+        List<FileInputStream> streams = new ArrayList<>(inputs.size());
+        List<MappedInput> mappings = new ArrayList<>(inputs.size());
+        ByteBuffer mono = null;
+        if (channels == 1 && layout.getChannels() == 2) {
+            // sized for the clip, the frames of a chunk are whole
+            long chunkLength = Math.min(CHUNK_LENGTH - CHUNK_LENGTH % layout.getBlockAlign(),
+                    (endFrame - startFrame) * layout.getBlockAlign());
+            mono = ByteBuffer.allocate((int) Math.max(layout.getBlockAlign(), chunkLength) / 2).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        List<File> written = new ArrayList<>();
+        boolean done = false;
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                FileInputStream stream = new FileInputStream(inputs.get(i));
+                streams.add(stream);
+                mappings.add(new MappedInput(stream.getChannel(), headers.get(i)));
+            }
+            long frame = startFrame;
+            do {
+                long end = Math.min(endFrame, frame + segmentFrames);
+                File file = segmentMillis > 0 ? segmentFile(output, written.size()) : output;
+                written.add(file);
+                writeFile(streams, mappings, mono, frame, end, file);
+                frame = end;
+            } while (frame < endFrame);
+            done = true;
+        } finally {
+            for (FileInputStream stream : streams) {
+                close(stream);
+            }
+            if (!done) {
+                for (File file : written) {
+                    file.delete();
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @return name of a segment: the output name followed by -000, -001...
+     */
+    public static File segmentFile(File output, int index) {
+        String[] name = splitName(output);
+        return new File(output.getParentFile(), name[0] + String.format(Locale.US, "-%03d", index) + name[1]);
+    }
+
+    /**
+     * @return FFmpeg pattern of the segment names, for the segment muxer
+     */
+    public static String segmentPattern(File output) {
+        String[] name = splitName(output);
+        // a % in the name would be taken for a pattern
+        return new File(output.getParentFile(), name[0].replace("%", "%%") + "-%03d" + name[1]).getPath();
+    }
+
+    private static String[] splitName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0) ? new String[] { name.substring(0, dot), name.substring(dot) } : new String[] { name, "" };
+    }
+
+    /**
+     * @param mono buffer of the downmixed samples, null to copy the channels
+     */
+    private void writeFile(List<FileInputStream> streams, List<MappedInput> mappings, ByteBuffer mono,
+                           long startFrame, long endFrame, File file) throws IOException {
+        WavHeader layout = headers.get(0);
+        boolean downmix = mono != null;
+        int outputChannels = downmix ? 1 : layout.getChannels();
+        long frames = endFrame - startFrame;
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            FileChannel out = os.getChannel();
+            WavHeader.write(out, layout.getFormat(), outputChannels, layout.getSampleRate(), layout.getBitsPerSample(),
+                    frames * outputChannels * layout.getBitsPerSample() / 8);
+            // frames of the joined inputs before the current one
+            long inputStart = 0;
+            for (int i = 0; i < headers.size() && inputStart < endFrame; i++) {
+                WavHeader header = headers.get(i);
+                long inputEnd = inputStart + header.getFrameCount();
+                long from = Math.max(startFrame, inputStart) - inputStart;
+                long to = Math.min(endFrame, inputEnd) - inputStart;
+                if (from < to) {
+                    long position = header.getDataOffset() + from * header.getBlockAlign();
+                    long length = (to - from) * header.getBlockAlign();
+                    if (downmix) {
+                        downmix(mappings.get(i), position, length, mono, out);
+                    } else {
+                        transfer(streams.get(i).getChannel(), position, length, out);
+                    }
+                }
+                inputStart = inputEnd;
+            }
+        } finally {
+            close(os);
+        }
+    }
+
+    private static void transfer(FileChannel in, long position, long length, FileChannel out) throws IOException {
+        while (length > 0) {
+            // may copy less than asked, e.g. 2 GB at most on some kernels
+            long transferred = in.transferTo(position, length, out);
+            if (transferred <= 0) {
+                throw new IOException("Input ended before its data chunk");
+            }
+            position += transferred;
+            length -= transferred;
+        }
+    }
+
+    /**
+     * Averages the left and right samples, as FFmpeg does for -ac 1
+     * @param mono reused for every chunk, a whole number of frames long
+     */
+    static void downmix(MappedInput in, long position, long length, ByteBuffer mono, FileChannel out) throws IOException {
+        WavHeader header = in.header;
+        int blockAlign = header.getBlockAlign();
+        int bytes = header.getBitsPerSample() / 8;
+        int chunkLength = mono.capacity() * 2;
+        while (length > 0) {
+            ByteBuffer stereo = in.map(position);
+            int start = (int) (position - in.windowStart);
+            int end = (int) Math.min(start + Math.min(length, chunkLength), in.windowEnd - in.windowStart);
+            mono.clear();
+            for (int i = start; i < end; i += blockAlign) {
+                mix(stereo, i, i + bytes, mono, header.getFormat(), bytes);
+            }
+            mono.flip();
+            while (mono.hasRemaining()) {
+                out.write(mono);
+            }
+            position += end - start;
+            length -= end - start;
+        }
+    }
+
+    /**
+     * Data chunk of an input, mapped once for all the segments written from it
+     */
+    static final class MappedInput {
+
+        private final FileChannel channel;
+        private final WavHeader header;
+        private final long windowLength;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long windowEnd;
+
+        MappedInput(FileChannel channel, WavHeader header) {
+            this.channel = channel;
+            this.header = header;
+            this.windowLength = MAX_MAP_LENGTH - MAX_MAP_LENGTH % header.getBlockAlign();
+        }
+
+        /**
+         * @return the window holding the position, mapped on first use
+         */
+        ByteBuffer map(long position) throws IOException {
+            if (window == null || position < windowStart || position >= windowEnd) {
+                long dataOffset = header.getDataOffset();
+                long start = dataOffset + (position - dataOffset) / windowLength * windowLength;
+                long length = Math.min(windowLength, dataOffset + header.getFrameCount() * header.getBlockAlign() - start);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                windowStart = start;
+                windowEnd = start + length;
+            }
+            return window;
+        }
+    }
+
+    private static void mix(ByteBuffer in, int left, int right, ByteBuffer out, int format, int bytes) {
+        if (format == WavHeader.FORMAT_FLOAT) {
+            if (bytes == 4) {
+                out.putFloat((in.getFloat(left) + in.getFloat(right)) / 2);
+            } else {
+                out.putDouble((in.getDouble(left) + in.getDouble(right)) / 2);
+            }
+            return;
+        }
+        switch (bytes) {
+            case 1:
+                // unsigned
+                out.put((byte) (((in.get(left) & 0xFF) + (in.get(right) & 0xFF)) >> 1));
+                break;
+            case 2:
+                out.putShort((short) ((in.getShort(left) + in.getShort(right)) >> 1));
+                break;
+            case 3:
+                int sample = (int24(in, left) + int24(in, right)) >> 1;
+                out.put((byte) sample).put((byte) (sample >> 8)).put((byte) (sample >> 16));
+                break;
+            default:
+                out.putInt((int) (((long) in.getInt(left) + in.getInt(right)) >> 1));
+                break;
+        }
+    }
+
+    private static int int24(ByteBuffer in, int index) {
+        return (in.get(index) & 0xFF) | ((in.get(index + 1) & 0xFF) << 8) | (in.get(index + 2) << 16);
+    }
+
+    private static long frames(long millis, int sampleRate) {
+        return millis * sampleRate / 1000;
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Do nothing
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.vitale.androidaudioconverter.wav;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sample layout and position of the samples of a RIFF/WAVE file, read from its "fmt " and "data" chunks.
+ */
+@SuppressWarnings("unused")
+public final class WavHeader {
+
+    public static final int FORMAT_PCM = 1;
+    public static final int FORMAT_FLOAT = 3;
+    public static final int FORMAT_ALAW = 6;
+    public static final int FORMAT_MULAW = 7;
+
+    /**
+     * Length of the header written by {@link #write(FileChannel, int, int, int, int, long)}
+     */
+    public static final int CANONICAL_LENGTH = 44;
+
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int FMT_LENGTH = 16;
+    private static final int EXTENSIBLE_FMT_LENGTH = 40;
+    private static final long UNKNOWN_SIZE = 0xFFFFFFFFL;
+
+    private final int format;
+    private final int channels;
+    private final int sampleRate;
+    private final long byteRate;
+    private final int blockAlign;
+    private final int bitsPerSample;
+    private final long dataOffset;
+    private final long dataLength;
+
+    private WavHeader(ByteBuffer fmt, long dataOffset, long dataLength) {
+        int format = fmt.getShort(0) & 0xFFFF;
+        if (format == FORMAT_EXTENSIBLE && fmt.limit() >= EXTENSIBLE_FMT_LENGTH) {
+            // the sub format GUID starts with the format code
+            format = fmt.getShort(24) & 0xFFFF;
+        }
+        this.format = format;
+        this.channels = fmt.getShort(2) & 0xFFFF;
+        this.sampleRate = fmt.getInt(4);
+        this.byteRate = fmt.getInt(8) & 0xFFFFFFFFL;
+        this.blockAlign = fmt.getShort(12) & 0xFFFF;
+        this.bitsPerSample = fmt.getShort(14) & 0xFFFF;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    /**
+     * @return the header of the file, null if it is not a WAV file or its header is incomplete
+     */
+    public static WavHeader read(File file) throws IOException {
+        FileInputStream is = new FileInputStream(file);
+        try {
+            return read(is.getChannel());
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Walks the chunks from the start of the channel up to "data"
+     * @return the header, null if it is not a WAV file or its header is incomplete
+     */
+    public static WavHeader read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer riff = read(channel, 0, 12);
+        if (riff == null || riff.getInt(0) != 0x52494646 || riff.getInt(8) != 0x57415645) {
+            // not "RIFF" and "WAVE"
+            return null;
+        }
+        long position = 12;
+        ByteBuffer fmt = null;
+        while (position + 8 <= size) {
+            ByteBuffer header = read(channel, position, 8);
+            int id = header.getInt(0);
+            long length = header.order(ByteOrder.LITTLE_ENDIAN).getInt(4) & 0xFFFFFFFFL;
+            long data = position + 8;
+            if (id == 0x666D7420) {
+                // "fmt "
+                if (length < FMT_LENGTH) {
+                    return null;
+                }
+                fmt = read(channel, data, (int) Math.min(length, EXTENSIBLE_FMT_LENGTH));
+                if (fmt == null) {
+                    return null;
+                }
+                fmt.order(ByteOrder.LITTLE_ENDIAN);
+            } else if (id == 0x64617461) {
+                // "data", streamed files leave its size unknown
+                if (fmt == null) {
+                    return null;
+                }
+                long dataLength = (length == UNKNOWN_SIZE || data + length > size) ? size - data : length;
+                return new WavHeader(fmt, data, dataLength);
+            }
+            // chunks are word aligned
+            position = data + length + (length & 1);
+        }
+        return null;
+    }
+
+    /**
+     * Writes a 44 bytes PCM or float header at the current position of the channel
+     */
+    public static void write(FileChannel channel, int format, int channels, int sampleRate, int bitsPerSample,
+                             long dataLength) throws IOException {
+        int blockAlign = channels * bitsPerSample / 8;
+        // sizes do not fit above 4 GB, readers then use the file size
+        long riffLength = Math.min(UNKNOWN_SIZE, CANONICAL_LENGTH - 8 + dataLength);
+        ByteBuffer header = ByteBuffer.allocate(CANONICAL_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x46464952).putInt((int) riffLength).putInt(0x45564157);
+        header.putInt(0x20746D66).putInt(FMT_LENGTH)
+                .putShort((short) format).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * blockAlign)
+                .putShort((short) blockAlign).putShort((short) bitsPerSample);
+        header.putInt(0x61746164).putInt((int) Math.min(UNKNOWN_SIZE, dataLength));
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        if (position + length > channel.size()) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return true for uncompressed samples: 8 to 32 bits integers, 32 or 64 bits floats
+     */
+    public boolean isLinearPcm() {
+        if (channels == 0 || sampleRate <= 0 || blockAlign != channels * bitsPerSample / 8) {
+            return false;
+        }
+        if (format == FORMAT_PCM) {
+            return bitsPerSample == 8 || bitsPerSample == 16 || bitsPerSample == 24 || bitsPerSample == 32;
+        }
+        return format == FORMAT_FLOAT && (bitsPerSample == 32 || bitsPerSample == 64);
+    }
+
+    /**
+     * @return true if the samples of both files can be copied one after the other
+     */
+    public boolean hasSameLayout(WavHeader other) {
+        return format == other.format && channels == other.channels && sampleRate == other.sampleRate
+                && bitsPerSample == other.bitsPerSample;
+    }
+
+    /**
+     * @return format code of the samples, the sub format for WAVE_FORMAT_EXTENSIBLE
+     */
+    public int getFormat() {
+        return format;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public long getByteRate() {
+        return byteRate;
+    }
+
+    /**
+     * @return bytes per frame, one sample of every channel
+     */
+    public int getBlockAlign() {
+        return blockAlign;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    /**
+     * @return position of the first sample in the file
+     */
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    public long getFrameCount() {
+        return blockAlign > 0 ? dataLength / blockAlign : 0;
+    }
+
+    public long getDurationMillis() {
+        return byteRate > 0 ? dataLength * 1000 / byteRate : 0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.vitale.androidaudioconverter;
+
+import com.vitale.androidaudioconverter.model.AudioFormat;
+import com.vitale.androidaudioconverter.model.AudioOutput;
+import com.vitale.androidaudioconverter.model.AudioProfile;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class AudioProfileTest extends TestCase {
+
+    public void testPresetsBecomeOutputOptions() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/uploads/memo.m4a"))
+                .setFormat(AudioFormat.MP3)
+                .setAudioProfile(AudioProfile.voice());
+
+        assertEquals(Arrays.asList("-y", "-i", "/uploads/memo.m4a", "-b:a", "32k", "-ar", "16000", "-ac", "1",
+                "-af", "aresample=16000:filter_size=8:phase_shift=6", "/uploads/memo.mp3"),
+                converter.buildCommand(new File("/uploads/memo.mp3")));
+    }
+
+    public void testVbrQualityReplacesTheBitrate() throws Exception {
+        AudioProfile profile = AudioProfile.music().setCodec("libmp3lame").setVbrQuality(2).setCompressionLevel(7);
+
+        assertEquals(Arrays.asList("-c:a", "libmp3lame", "-q:a", "2", "-compression_level", "7",
+                "-ar", "44100", "-ac", "2"), profile.getOptions());
+        assertNull(profile.getFilter());
+        assertEquals("aresample=filter_size=64:phase_shift=14:cutoff=0.98", AudioProfile.archive().getFilter());
+    }
+
+    public void testExplicitOptionsTakePrecedence() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/uploads/a.wav"))
+                .addConcatFile(new File("/uploads/b.wav"))
+                .setFormat(AudioFormat.AAC)
+                .setAudioProfile(AudioProfile.voice())
+                .setChannels(2);
+
+        assertEquals(Arrays.asList("-y", "-i", "/uploads/a.wav", "-i", "/uploads/b.wav", "-filter_complex",
+                "[0:a][1:a]concat=n=2:v=0:a=1,aresample=16000:filter_size=8:phase_shift=6[a]", "-map", "[a]",
+                "-b:a", "32k", "-ar", "16000", "-ac", "2", "/uploads/a.aac"),
+                converter.buildCommand(new File("/uploads/a.aac")));
+
+        converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/uploads/talk.flac"))
+                .addOutput(new AudioOutput(AudioFormat.MP3).setProfile(AudioProfile.music()).setBitrate("128k"));
+        assertEquals(Arrays.asList("-y", "-i", "/uploads/talk.flac",
+                "-vn", "-ar", "44100", "-ac", "2", "-b:a", "128k", "/uploads/talk.mp3"),
+                converter.buildCommand(Collections.singletonList(new File("/uploads/talk.mp3"))));
+    }
+
+    public void testResamplesToTheRateOfTheOutput() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/uploads/talk.wav"))
+                .addOutput(new AudioOutput(AudioFormat.MP3).setProfile(AudioProfile.voice()).setSampleRate(44100));
+
+        assertEquals(Arrays.asList("-y", "-i", "/uploads/talk.wav",
+                "-vn", "-b:a", "32k", "-ac", "1", "-af", "aresample=44100:filter_size=8:phase_shift=6",
+                "-ar", "44100", "/uploads/talk.mp3"),
+                converter.buildCommand(Collections.singletonList(new File("/uploads/talk.mp3"))));
+    }
+}
@@ -0,0 +1,176 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.github.hiteshsondhi88.libffmpeg.ProgressEvent;
+import com.vitale.androidaudioconverter.callback.IBatchCallback;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.callback.IProgressCallback;
+import com.vitale.androidaudioconverter.model.BatchProgress;
+import com.vitale.androidaudioconverter.model.BatchResult;
+import com.vitale.androidaudioconverter.model.ConversionPath;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BatchConversionTest extends TestCase {
+
+    public void testConvertedFileOnlyChangesTheName() throws Exception {
+        assertEquals(new File("/data/v1.2/song.mp3"), AndroidAudioConverter.getConvertedFile(new File("/data/v1.2/song.wav"), "mp3", ""));
+        assertEquals(new File("/data/mp3/mp3.mp3"), AndroidAudioConverter.getConvertedFile(new File("/data/mp3/mp3.wav"), "mp3", ""));
+        assertEquals(new File("/data/clip-CONV.mp4"), AndroidAudioConverter.getConvertedFile(new File("/data/clip.mov"), "mp4", "-CONV"));
+        assertEquals(new File("/data/noext.mp3"), AndroidAudioConverter.getConvertedFile(new File("/data/noext"), "mp3", ""));
+    }
+
+    public void testOutputNamesAreUniqueAndDeterministic() throws Exception {
+        List<File> inputs = Arrays.asList(new File("/a/song.wav"), new File("/b/song.flac"), new File("/a/song.mp3"), new File("/a/song-1.wav"));
+
+        List<File> outputs = BatchConversion.outputFiles(inputs, "mp3", "", new File("/out"));
+
+        assertEquals(Arrays.asList(new File("/out/song.mp3"), new File("/out/song-1.mp3"), new File("/out/song-2.mp3"), new File("/out/song-1-1.mp3")), outputs);
+        assertEquals(outputs, BatchConversion.outputFiles(inputs, "mp3", "", new File("/out")));
+        // never overwrite an input of the batch
+        assertEquals(Arrays.asList(new File("/a/song-2.wav"), new File("/b/song.wav"), new File("/a/song-3.wav"), new File("/a/song-1-1.wav")),
+                BatchConversion.outputFiles(inputs, "wav", "", null));
+    }
+
+    public void testRunsAtMostMaxParallelAndContinuesOnError() throws Exception {
+        FakeConverter converter = new FakeConverter();
+        RecordingCallback callback = new RecordingCallback();
+        BatchConversion batch = new BatchConversion(files(5), "mp3", "", converter)
+                .setMaxParallel(2)
+                .setCallback(callback);
+
+        batch.start();
+        assertEquals(2, converter.pending.size());
+        converter.progress(0, 50);
+        assertEquals(10f, callback.progress.get(callback.progress.size() - 1).getPercent(), 0.01);
+        converter.complete(0, null);
+        converter.complete(1, new IOException("broken"));
+        converter.complete(2, null);
+        converter.complete(3, null);
+        assertEquals(1, converter.pending.size());
+        converter.complete(4, null);
+
+        assertEquals(1, callback.finished.size());
+        BatchResult result = callback.finished.get(0);
+        assertFalse(result.isCancelled());
+        assertEquals(4, result.getSucceeded().size());
+        assertEquals(1, result.getFailed().size());
+        assertTrue(result.getSkipped().isEmpty());
+        assertEquals(100f, result.getProgress().getPercent(), 0.01);
+        assertEquals(2, converter.maxPending);
+    }
+
+    public void testFailFastStopsTheBatch() throws Exception {
+        FakeConverter converter = new FakeConverter();
+        RecordingCallback callback = new RecordingCallback();
+        BatchConversion batch = new BatchConversion(files(4), "mp3", "", converter)
+                .setMaxParallel(2)
+                .setErrorPolicy(BatchConversion.ErrorPolicy.FAIL_FAST)
+                .setCallback(callback);
+
+        batch.start();
+        converter.complete(0, new IOException("broken"));
+
+        BatchResult result = callback.finished.get(0);
+        assertTrue(result.isCancelled());
+        assertEquals(1, result.getFailed().size());
+        assertEquals(3, result.getSkipped().size());
+        // late results of cancelled conversions are ignored
+        converter.complete(1, null);
+        assertEquals(1, callback.finished.size());
+        assertEquals(0, callback.succeeded);
+    }
+
+    public void testSynchronousResultsDoNotRecurse() throws Exception {
+        FakeConverter converter = new FakeConverter();
+        converter.synchronous = true;
+        RecordingCallback callback = new RecordingCallback();
+        new BatchConversion(files(1000), "mp3", "", converter).setMaxParallel(1).setCallback(callback).start();
+
+        assertEquals(1000, callback.finished.get(0).getSucceeded().size());
+    }
+
+    private static ProgressEvent progressEvent(long timeMillis, long durationMillis) throws Exception {
+        Constructor<ProgressEvent> constructor = ProgressEvent.class.getDeclaredConstructor(long.class, double.class, long.class,
+                double.class, double.class, long.class, long.class, long.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(-1L, -1.0, timeMillis, -1.0, -1.0, -1L, durationMillis, -1L);
+    }
+
+    private static List<File> files(int count) {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(new File("/in/file" + i + ".wav"));
+        }
+        return files;
+    }
+
+    private static class FakeConverter implements BatchConversion.ItemConverter {
+
+        final List<IConvertResultCallback> callbacks = new ArrayList<>();
+        final List<IProgressCallback> progressCallbacks = new ArrayList<>();
+        final List<Integer> pending = new ArrayList<>();
+        int maxPending;
+        boolean synchronous;
+
+        @Override
+        public ConversionJob convert(File input, File output, IConvertResultCallback callback, IProgressCallback progressCallback) {
+            if (synchronous) {
+                callback.onSuccess(new ConversionResult(output, ConversionPath.CACHE));
+                return null;
+            }
+            pending.add(callbacks.size());
+            callbacks.add(callback);
+            progressCallbacks.add(progressCallback);
+            maxPending = Math.max(maxPending, pending.size());
+            return null;
+        }
+
+        void progress(int index, long timeMillis) throws Exception {
+            progressCallbacks.get(index).onProgress(progressEvent(timeMillis, 100));
+        }
+
+        void complete(int index, Exception error) {
+            pending.remove(Integer.valueOf(index));
+            if (error == null) {
+                callbacks.get(index).onSuccess(new ConversionResult(new File("out" + index), ConversionPath.TRANSCODE));
+            } else {
+                callbacks.get(index).onFailure(error);
+            }
+        }
+    }
+
+    private static class RecordingCallback implements IBatchCallback {
+
+        final List<BatchProgress> progress = new ArrayList<>();
+        final List<BatchResult> finished = new ArrayList<>();
+        int succeeded;
+
+        @Override
+        public void onProgress(BatchProgress progress) {
+            this.progress.add(progress);
+        }
+
+        @Override
+        public void onItemSuccess(File input, ConversionResult result) {
+            succeeded++;
+        }
+
+        @Override
+        public void onItemFailure(File input, Exception error) {
+        }
+
+        @Override
+        public void onFinish(BatchResult result) {
+            finished.add(result);
+        }
+    }
+}
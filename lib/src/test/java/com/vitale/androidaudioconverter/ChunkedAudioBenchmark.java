@@ -0,0 +1,165 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.CallbackExecutors;
+import com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.AudioFormat;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+import com.vitale.androidaudioconverter.wav.WavHeader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Encodes a long WAV file to MP3 on the local FFmpeg binary, in one process and in parallel chunks, and prints
+ * the best time of each. Not a unit test, run its main method:
+ * <pre>
+ * java -Dffmpeg.path=/usr/bin/ffmpeg -cp ... com.vitale.androidaudioconverter.ChunkedAudioBenchmark [minutes] [chunks] [runs]
+ * </pre>
+ * The binary defaults to ffmpeg in the PATH, minutes to 20, chunks to the number of cores and runs to 3.
+ */
+public class ChunkedAudioBenchmark {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    // half a second of silence every 45 seconds, where the chunks can be cut
+    private static final int SPEECH_SECONDS = 45;
+    private static final double SILENCE_SECONDS = 0.5;
+
+    public static void main(String[] args) throws Exception {
+        String ffmpegPath = System.getProperty("ffmpeg.path", "ffmpeg");
+        int minutes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int chunks = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        checkBinary(ffmpegPath);
+
+        File directory = Files.createTempDirectory("chunked-benchmark").toFile();
+        File input = new File(directory, "long.wav");
+        writeWav(input, minutes * 60);
+        System.out.println(String.format(Locale.US, "%s: %d min, %d MB, %d chunks, %s",
+                ffmpegPath, minutes, input.length() >> 20, chunks, AudioFormat.MP3));
+
+        HostExecutionEngine engine = new HostExecutionEngine(ffmpegPath, Math.max(1, chunks));
+        long single = Long.MAX_VALUE;
+        long chunked = Long.MAX_VALUE;
+        for (int run = 0; run < runs; run++) {
+            single = Math.min(single, convert(engine, input, new File(directory, "single.mp3"), 0));
+            chunked = Math.min(chunked, convert(engine, input, new File(directory, "chunked.mp3"), chunks));
+        }
+        System.out.println(String.format(Locale.US, "single process: %d ms, %d bytes",
+                single, new File(directory, "single.mp3").length()));
+        System.out.println(String.format(Locale.US, "%d chunks: %d ms, %d bytes, %.2fx",
+                chunks, chunked, new File(directory, "chunked.mp3").length(), (double) single / chunked));
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private static void checkBinary(String ffmpegPath) throws Exception {
+        Process process;
+        try {
+            process = new ProcessBuilder(ffmpegPath, "-version").redirectErrorStream(true).start();
+        } catch (IOException e) {
+            throw new IllegalStateException("No FFmpeg binary at " + ffmpegPath + ", give it with -Dffmpeg.path", e);
+        }
+        InputStream output = process.getInputStream();
+        byte[] buffer = new byte[4096];
+        while (output.read(buffer) != -1) {
+            // only the exit value matters
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(ffmpegPath + " -version failed");
+        }
+    }
+
+    /**
+     * @return duration of the conversion in milliseconds
+     */
+    private static long convert(HostExecutionEngine engine, File input, File output, int chunks) throws Exception {
+        output.delete();
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        long start = System.nanoTime();
+        AndroidAudioConverter.withEngine(engine)
+                .setFile(input)
+                .setFormat(AudioFormat.MP3)
+                .setOutputFile(output)
+                .setParallelSegments(chunks)
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setCallback(new IConvertResultCallback() {
+                    @Override
+                    public void onSuccess(ConversionResult conversionResult) {
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        error.set(e);
+                        done.countDown();
+                    }
+                })
+                .convert();
+        if (!done.await(1, TimeUnit.HOURS)) {
+            throw new IllegalStateException("Conversion of " + output.getName() + " timed out");
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Writes a noisy tone sweep, something for the encoder to work on, broken by regular silences
+     */
+    static void writeWav(File file, int seconds) throws IOException {
+        long frames = (long) seconds * SAMPLE_RATE;
+        int period = SPEECH_SECONDS * SAMPLE_RATE;
+        int silence = (int) (SILENCE_SECONDS * SAMPLE_RATE);
+        Random random = new Random(1);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            channel.truncate(0);
+            WavHeader.write(channel, WavHeader.FORMAT_PCM, CHANNELS, SAMPLE_RATE, 16, frames * CHANNELS * 2);
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            double phase = 0;
+            for (long frame = 0; frame < frames; frame++) {
+                short sample = 0;
+                if (frame % period >= silence) {
+                    double frequency = 200 + 600 * ((frame / SAMPLE_RATE) % 10) / 10.0;
+                    phase += 2 * Math.PI * frequency / SAMPLE_RATE;
+                    sample = (short) (8000 * Math.sin(phase) + 1000 * random.nextGaussian());
+                }
+                for (int i = 0; i < CHANNELS; i++) {
+                    buffer.putShort(sample);
+                }
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.CallbackExecutors;
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteOptions;
+import com.github.hiteshsondhi88.libffmpeg.FFmpegExecuteResponseHandler;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ChunkedAudioConversionTest extends TestCase {
+
+    private static final List<String> DETECTION_OUTPUT = Arrays.asList(
+            "Input #0, wav, from 'podcast.wav':",
+            "  Duration: 00:30:00.00, bitrate: 1411 kb/s",
+            "    Stream #0:0: Audio: pcm_s16le ([1][0][0][0] / 0x0001), 44100 Hz, 2 channels, s16, 1411 kb/s",
+            "[silencedetect @ 0x7f8] silence_start: 580.5",
+            "[silencedetect @ 0x7f8] silence_end: 581.5 | silence_duration: 1",
+            "[silencedetect @ 0x7f8] silence_start: 1400",
+            "[silencedetect @ 0x7f8] silence_end: 1400.4 | silence_duration: 0.4",
+            "size=N/A time=00:30:00.00 bitrate=N/A speed= 400x");
+
+    public void testParsesSilences() throws Exception {
+        List<double[]> silences = ChunkedAudioConversion.parseSilences(DETECTION_OUTPUT);
+        assertEquals(2, silences.size());
+        assertEquals(580.5, silences.get(0)[0], 0.001);
+        assertEquals(581.5, silences.get(0)[1], 0.001);
+        assertEquals(1400.4, silences.get(1)[1], 0.001);
+    }
+
+    public void testCutsInTheClosestSilence() throws Exception {
+        List<double[]> silences = ChunkedAudioConversion.parseSilences(DETECTION_OUTPUT);
+        List<Double> cuts = ChunkedAudioConversion.cutPoints(1800, 3, silences);
+
+        assertEquals(2, cuts.size());
+        assertEquals(581, cuts.get(0), 0.001);
+        assertEquals(1200, cuts.get(1), 0.001);
+        // silences too far from an even split are ignored
+        assertEquals(Arrays.asList(450.0, 900.0, 1400.2), ChunkedAudioConversion.cutPoints(1800, 4, silences));
+        assertTrue(ChunkedAudioConversion.cutPoints(1800, 1, silences).isEmpty());
+    }
+
+    public void testEncodesChunksInParallelAndJoins() throws Exception {
+        File workDirectory = File.createTempFile("chunks", "");
+        assertTrue(workDirectory.delete());
+        final List<String[]> commands = new ArrayList<>();
+        final List<FFmpegExecuteResponseHandler> handlers = new ArrayList<>();
+        final List<String> results = new ArrayList<>();
+        ChunkedAudioConversion conversion = new ChunkedAudioConversion(new MultiStepConversion.Runner() {
+            @Override
+            public ConversionJob execute(String[] cmd, ExecuteOptions options, FFmpegExecuteResponseHandler handler) {
+                commands.add(cmd);
+                handlers.add(handler);
+                return null;
+            }
+        }, new File("/audio/podcast.wav"), new File("/audio/podcast.mp3"), workDirectory, 3,
+                Collections.<String>emptyList(), new IConvertResultCallback() {
+            @Override
+            public void onSuccess(ConversionResult result) {
+                results.add("success");
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                results.add("failure " + error.getMessage());
+            }
+        }, CallbackExecutors.direct(), 0, null);
+
+        conversion.start();
+        for (String line : DETECTION_OUTPUT) {
+            handlers.get(0).onProgress(line);
+        }
+        handlers.get(0).onSuccess("");
+
+        assertEquals(4, commands.size());
+        assertEquals(Arrays.asList("-y", "-ss", "0.000000", "-i", "/audio/podcast.wav", "-t", "581.000000", "-vn",
+                new File(workDirectory, "chunk000.mp3").getPath()), Arrays.asList(commands.get(1)));
+        assertEquals(Arrays.asList("-y", "-ss", "1200.000000", "-i", "/audio/podcast.wav", "-vn",
+                new File(workDirectory, "chunk002.mp3").getPath()), Arrays.asList(commands.get(3)));
+        for (int i = 3; i > 0; i--) {
+            handlers.get(i).onSuccess("");
+        }
+        assertEquals(5, commands.size());
+        assertEquals("/audio/podcast.mp3", commands.get(4)[commands.get(4).length - 1]);
+        handlers.get(4).onSuccess("");
+
+        assertEquals("[success]", results.toString());
+        assertFalse(workDirectory.exists());
+    }
+}
@@ -0,0 +1,70 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.AudioFormat;
+import com.vitale.androidaudioconverter.model.ConversionPath;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class HostEngineConversionTest extends TestCase {
+
+    // probes print a WAV header, conversions write their arguments to the output file
+    private static final String STUB = "#!/bin/sh\n"
+            + "if [ \"$1\" = \"-hide_banner\" ]; then\n"
+            + "  echo \"Input #0, wav, from '$3':\" 1>&2\n"
+            + "  echo '  Duration: 00:00:01.00, bitrate: 1411 kb/s' 1>&2\n"
+            + "  echo '    Stream #0:0: Audio: pcm_s16le ([1][0][0][0] / 0x0001), 44100 Hz, 2 channels, s16, 1411 kb/s' 1>&2\n"
+            + "  exit 1\n"
+            + "fi\n"
+            + "for last; do :; done\n"
+            + "echo \"$*\" > \"$last\"\n";
+
+    public void testConvertsWithALocalBinary() throws Exception {
+        File directory = Files.createTempDirectory("host-engine").toFile();
+        File ffmpeg = new File(directory, "ffmpeg");
+        FileOutputStream os = new FileOutputStream(ffmpeg);
+        os.write(STUB.getBytes("UTF-8"));
+        os.close();
+        assertTrue(ffmpeg.setExecutable(true));
+        File input = new File(directory, "voice.wav");
+        assertTrue(input.createNewFile());
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Object> result = new AtomicReference<>();
+        AndroidAudioConverter.withEngine(new HostExecutionEngine(ffmpeg.getPath(), 2))
+                .setFile(input)
+                .setFormat(AudioFormat.MP3)
+                .setCallback(new IConvertResultCallback() {
+                    @Override
+                    public void onSuccess(ConversionResult conversionResult) {
+                        result.set(conversionResult);
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Exception error) {
+                        result.set(error);
+                        done.countDown();
+                    }
+                })
+                .convert();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(String.valueOf(result.get()), result.get() instanceof ConversionResult);
+        ConversionResult conversionResult = (ConversionResult) result.get();
+        // WAV audio cannot be copied into MP3, the probe made it transcode
+        assertEquals(ConversionPath.TRANSCODE, conversionResult.getPath());
+        File output = new File(directory, "voice.mp3");
+        assertEquals(output, conversionResult.getFile());
+        assertTrue(new String(Files.readAllBytes(output.toPath()), "UTF-8").startsWith("-y -i " + input.getPath()));
+    }
+}
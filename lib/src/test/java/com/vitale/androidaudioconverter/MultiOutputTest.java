@@ -0,0 +1,48 @@
+package com.vitale.androidaudioconverter;
+
+import com.vitale.androidaudioconverter.model.AudioFormat;
+import com.vitale.androidaudioconverter.model.AudioOutput;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+public class MultiOutputTest extends TestCase {
+
+    public void testBuildsOneCommandWithEveryOutput() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/uploads/talk.flac"))
+                .addOutput(new AudioOutput(AudioFormat.MP3).setBitrate("192k"))
+                .addOutput(new AudioOutput(AudioFormat.AAC).setBitrate("128k").setSampleRate(44100))
+                .addOutput(new AudioOutput(AudioFormat.WAV).setChannels(1).setDuration("30").setFile(new File("/previews/talk.wav")));
+
+        List<File> files = converter.getOutputFiles();
+        assertEquals(Arrays.asList(new File("/uploads/talk.mp3"), new File("/uploads/talk.aac"), new File("/previews/talk.wav")), files);
+        assertEquals(Arrays.asList("-y", "-i", "/uploads/talk.flac",
+                "-vn", "-b:a", "192k", "/uploads/talk.mp3",
+                "-vn", "-b:a", "128k", "-ar", "44100", "/uploads/talk.aac",
+                "-vn", "-ac", "1", "-t", "30", "/previews/talk.wav"), converter.buildCommand(files));
+    }
+
+    public void testOutputsSharingAFormatGetDistinctFiles() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/uploads/talk.flac"))
+                .addOutput(new AudioOutput(AudioFormat.MP3).setBitrate("320k"))
+                .addOutput(new AudioOutput(AudioFormat.MP3).setBitrate("64k"));
+
+        assertEquals(Arrays.asList(new File("/uploads/talk.mp3"), new File("/uploads/talk-1.mp3")), converter.getOutputFiles());
+    }
+
+    public void testDefaultNamesNeverTargetTheInput() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/uploads/talk.wav"))
+                .addOutput(new AudioOutput(AudioFormat.WAV).setChannels(1))
+                .addOutput(new AudioOutput(AudioFormat.WAV).setFile(new File("/uploads/talk-1.wav")))
+                .addOutput(new AudioOutput(AudioFormat.MP3));
+
+        assertEquals(Arrays.asList(new File("/uploads/talk-2.wav"), new File("/uploads/talk-1.wav"),
+                new File("/uploads/talk.mp3")), converter.getOutputFiles());
+    }
+}
@@ -0,0 +1,176 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine;
+import com.vitale.androidaudioconverter.callback.IPcmCallback;
+import com.vitale.androidaudioconverter.model.PcmFormat;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PcmDecoderTest extends TestCase {
+
+    // writes 1050 bytes of 0x01 to stdout, 525 samples of 257
+    private static final String STUB = "#!/bin/sh\n"
+            + "head -c 1050 /dev/zero | tr '\\000' '\\001'\n";
+
+    public void testBuildsARawOutputCommand() throws Exception {
+        PcmDecoder decoder = PcmDecoder.withEngine(null)
+                .setFile(new File("/uploads/memo.m4a"))
+                .setFormat(PcmFormat.F32LE)
+                .setSampleRate(48000)
+                .setChannels(2);
+
+        assertEquals(Arrays.asList("-i", "/uploads/memo.m4a", "-vn", "-f", "f32le", "-c:a", "pcm_f32le",
+                "-ar", "48000", "-ac", "2", "pipe:1"), Arrays.asList(decoder.buildCommand()));
+    }
+
+    public void testDeliversFramesFromThePool() throws Exception {
+        File directory = Files.createTempDirectory("pcm-decoder").toFile();
+        File ffmpeg = new File(directory, "ffmpeg");
+        FileOutputStream os = new FileOutputStream(ffmpeg);
+        os.write(STUB.getBytes("UTF-8"));
+        os.close();
+        assertTrue(ffmpeg.setExecutable(true));
+        File input = new File(directory, "voice.m4a");
+        assertTrue(input.createNewFile());
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final List<Long> positions = new ArrayList<>();
+        final List<Integer> counts = new ArrayList<>();
+        final Set<PcmFrame> frames = Collections.newSetFromMap(new IdentityHashMap<PcmFrame, Boolean>());
+        PcmDecoder.withEngine(new HostExecutionEngine(ffmpeg.getPath(), 2))
+                .setFile(input)
+                .setFrameLength(100)
+                .setBufferCount(2)
+                .setCallback(new IPcmCallback() {
+                    @Override
+                    public void onFrame(PcmFrame frame) {
+                        frames.add(frame);
+                        positions.add(frame.getPosition());
+                        counts.add(frame.getSampleCount());
+                        for (int i = 0; i < frame.getSampleCount(); i++) {
+                            if (frame.getShorts()[i] != 257) {
+                                throw new IllegalStateException("Sample " + i + " is " + frame.getShorts()[i]);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onSuccess() {
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        error.set(e);
+                        done.countDown();
+                    }
+                })
+                .decode();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertEquals(Arrays.asList(0L, 100L, 200L, 300L, 400L, 500L), positions);
+        assertEquals(Arrays.asList(100, 100, 100, 100, 100, 25), counts);
+        assertTrue(frames.size() <= 2);
+    }
+
+    public void testSlowCallbackBlocksTheWriter() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final PcmSink sink = new PcmSink(PcmFormat.S16LE, 16000, 1, 10, 2, new IPcmCallback() {
+            @Override
+            public void onFrame(PcmFrame frame) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+        sink.start();
+
+        final CountDownLatch written = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // five frames, only two in the pool
+                    sink.write(ByteBuffer.allocate(100));
+                    written.countDown();
+                } catch (Exception e) {
+                    error.set(e);
+                }
+            }
+        });
+        writer.start();
+
+        assertFalse(written.await(300, TimeUnit.MILLISECONDS));
+        assertEquals(0, sink.getFreeCount());
+        release.countDown();
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        sink.finish(null);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertEquals(2, sink.getFreeCount());
+    }
+
+    public void testCallbackErrorStopsDecoding() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final PcmSink sink = new PcmSink(PcmFormat.S16LE, 16000, 1, 10, 1, new IPcmCallback() {
+            @Override
+            public void onFrame(PcmFrame frame) {
+                throw new IllegalStateException("Model not ready");
+            }
+
+            @Override
+            public void onSuccess() {
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+        sink.start();
+
+        try {
+            sink.write(ByteBuffer.allocate(100));
+            fail("The writer must stop with the callback");
+        } catch (IOException expected) {
+            // the pump closes the pipe, FFmpeg then exits
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals("Model not ready", error.get().getMessage());
+    }
+}
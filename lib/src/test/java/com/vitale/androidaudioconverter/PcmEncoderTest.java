@@ -0,0 +1,128 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.CallbackExecutors;
+import com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.AudioFormat;
+import com.vitale.androidaudioconverter.model.AudioProfile;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PcmEncoderTest extends TestCase {
+
+    // copies stdin to the output, the last argument
+    private static final String STUB = "#!/bin/sh\n"
+            + "for last; do :; done\n"
+            + "if [ \"$last\" = \"pipe:1\" ]; then cat; else cat > \"$last\"; fi\n";
+
+    public void testBuildsARawInputCommand() throws Exception {
+        PcmEncoder encoder = PcmEncoder.withEngine(null)
+                .setFormat(AudioFormat.MP3)
+                .setAudioProfile(AudioProfile.voice())
+                .setSampleRate(48000)
+                .setOutputFile(new File("/recordings/memo.mp3"));
+
+        assertEquals(Arrays.asList("-y", "-f", "s16le", "-ar", "48000", "-ac", "1", "-i", "pipe:0",
+                "-b:a", "32k", "-ar", "16000", "-ac", "1", "-af", "aresample=16000:filter_size=8:phase_shift=6",
+                "-flush_packets", "1", "/recordings/memo.mp3"), Arrays.asList(encoder.buildCommand()));
+
+        encoder = PcmEncoder.withEngine(null)
+                .setFormat(AudioFormat.M4A)
+                .setChannels(2)
+                .setOutput(new ByteArrayOutputStream());
+        assertEquals(Arrays.asList("-y", "-f", "s16le", "-ar", "44100", "-ac", "2", "-i", "pipe:0",
+                "-flush_packets", "1", "-f", "ipod", "-movflags", "frag_keyframe+empty_moov", "pipe:1"),
+                Arrays.asList(encoder.buildCommand()));
+    }
+
+    public void testEncodesWrittenSamplesToAFile() throws Exception {
+        File directory = Files.createTempDirectory("pcm-encoder").toFile();
+        File output = new File(directory, "memo.mp3");
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Object> result = new AtomicReference<>();
+        PcmEncoderSession session = PcmEncoder.withEngine(new HostExecutionEngine(createStub(directory).getPath(), 2))
+                .setFormat(AudioFormat.MP3)
+                .setSampleRate(8000)
+                .setOutputFile(output)
+                .setBuffering(16, 2)
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setCallback(callback(result, done))
+                .start();
+
+        assertNotNull(session);
+        for (int i = 0; i < 100; i++) {
+            session.write(new short[]{(short) i, (short) -i}, 0, 2);
+        }
+        assertEquals(25, session.getWrittenDurationMillis());
+        session.finish();
+        assertFalse(session.isOpen());
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(String.valueOf(result.get()), result.get() instanceof ConversionResult);
+        assertEquals(output, ((ConversionResult) result.get()).getFile());
+        byte[] bytes = Files.readAllBytes(output.toPath());
+        assertEquals(400, bytes.length);
+        assertEquals(99, bytes[396]);
+        assertEquals((byte) -99, bytes[398]);
+        assertEquals((byte) -1, bytes[399]);
+    }
+
+    public void testCancelFailsTheNextWrites() throws Exception {
+        File directory = Files.createTempDirectory("pcm-encoder").toFile();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Object> result = new AtomicReference<>();
+        PcmEncoderSession session = PcmEncoder.withEngine(new HostExecutionEngine(createStub(directory).getPath(), 2))
+                .setFormat(AudioFormat.AAC)
+                .setOutput(output)
+                .setCallbackExecutor(CallbackExecutors.direct())
+                .setCallback(callback(result, done))
+                .start();
+
+        session.write(new byte[64], 0, 64);
+        session.cancel();
+        try {
+            session.write(new byte[64], 0, 64);
+            fail("Writes must fail once the session is cancelled");
+        } catch (IOException expected) {
+            // the recorder stops
+        }
+        assertFalse(done.await(1, TimeUnit.SECONDS));
+    }
+
+    private static File createStub(File directory) throws IOException {
+        File ffmpeg = new File(directory, "ffmpeg");
+        FileOutputStream os = new FileOutputStream(ffmpeg);
+        os.write(STUB.getBytes("UTF-8"));
+        os.close();
+        assertTrue(ffmpeg.setExecutable(true));
+        return ffmpeg;
+    }
+
+    private static IConvertResultCallback callback(final AtomicReference<Object> result, final CountDownLatch done) {
+        return new IConvertResultCallback() {
+            @Override
+            public void onSuccess(ConversionResult conversionResult) {
+                result.set(conversionResult);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                result.set(error);
+                done.countDown();
+            }
+        };
+    }
+}
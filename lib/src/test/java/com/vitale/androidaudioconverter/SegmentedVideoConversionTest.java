@@ -0,0 +1,175 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.CallbackExecutors;
+import com.github.hiteshsondhi88.libffmpeg.ConversionJob;
+import com.github.hiteshsondhi88.libffmpeg.ExecuteOptions;
+import com.github.hiteshsondhi88.libffmpeg.FFmpegExecuteResponseHandler;
+import com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine;
+import com.github.hiteshsondhi88.libffmpeg.JobState;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+import com.vitale.androidaudioconverter.probe.MediaProbe;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class SegmentedVideoConversionTest extends TestCase {
+
+    private File workDirectory;
+    private final List<String[]> commands = new ArrayList<>();
+    private final List<FFmpegExecuteResponseHandler> handlers = new ArrayList<>();
+    private final List<String> results = new ArrayList<>();
+    private List<String> concatList;
+    private MediaProbe probe;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        workDirectory = File.createTempFile("segments", "");
+        assertTrue(workDirectory.delete());
+    }
+
+    public void testSplitsEncodesInParallelAndJoins() throws Exception {
+        SegmentedVideoConversion conversion = newConversion();
+        conversion.start();
+
+        // the segment time is filled in on the scheduler thread, the input duration is unknown here
+        assertTrue(Arrays.asList(commands.get(0)).contains("60.000"));
+        assertFalse(Arrays.asList(commands.get(0)).contains(SegmentedVideoConversion.SEGMENT_TIME));
+        createSegments(3);
+        complete(0, true);
+
+        // audio in one piece and 3 video segments, all queued at once
+        assertEquals(5, commands.size());
+        assertEquals(Arrays.asList("-y", "-i", "/videos/talk.mov", "-vn", new File(workDirectory, "audio.mp4").getPath()),
+                Arrays.asList(commands.get(1)));
+        assertEquals(Arrays.asList("-y", "-i", new File(workDirectory, "seg002.mkv").getPath(), "-an", "-c:v", "libx264",
+                new File(workDirectory, "enc002.mp4").getPath()), Arrays.asList(commands.get(4)));
+        for (int i = 1; i < 5; i++) {
+            complete(i, true);
+        }
+
+        assertEquals(6, commands.size());
+        List<String> join = Arrays.asList(commands.get(5));
+        assertEquals(Arrays.asList("-f", "concat", "-safe", "0"), join.subList(1, 5));
+        assertTrue(join.containsAll(Arrays.asList("-c", "copy", "-map", "1:a")));
+        assertEquals("/videos/talk.mp4", join.get(join.size() - 1));
+        assertEquals(3, concatList.size());
+        assertEquals("file '" + new File(workDirectory, "enc000.mp4").getAbsolutePath() + "'", concatList.get(0));
+        complete(5, true);
+
+        assertEquals("[success /videos/talk.mp4]", results.toString());
+        assertFalse(workDirectory.exists());
+    }
+
+    public void testFailsOnceWhenASegmentFails() throws Exception {
+        newConversion().start();
+        createSegments(2);
+        complete(0, true);
+        complete(2, false);
+        complete(3, false);
+        complete(1, true);
+
+        assertEquals("[failure]", results.toString());
+        assertEquals(4, commands.size());
+        assertFalse(workDirectory.exists());
+    }
+
+    public void testCancelsThroughTheReturnedJob() throws Exception {
+        ConversionJob job = newConversion().start();
+        createSegments(2);
+
+        assertTrue(job.cancel());
+        assertEquals(JobState.CANCELLED, job.getState());
+        assertFalse(workDirectory.exists());
+        // a step finishing after the cancellation is ignored
+        complete(0, true);
+        assertEquals(1, commands.size());
+        assertTrue(results.isEmpty());
+    }
+
+    public void testFailsWhenTheInputCannotBeProbed() throws Exception {
+        // the input does not exist, the probe fails before FFmpeg is needed
+        probe = MediaProbe.getInstance(new HostExecutionEngine("/nonexistent/ffmpeg", 1));
+        ConversionJob job = newConversion().start();
+
+        assertEquals("[failure]", results.toString());
+        assertEquals(JobState.FAILED, job.getState());
+        assertFalse(workDirectory.exists());
+    }
+
+    public void testEscapesQuotesInTheConcatList() throws Exception {
+        File list = File.createTempFile("segments", ".txt");
+        MultiStepConversion.writeConcatList(Collections.singletonList(new File("/tmp/it's.mp4")), list);
+        assertEquals("[file '/tmp/it'\\''s.mp4']", readLines(list).toString());
+        list.delete();
+    }
+
+    private SegmentedVideoConversion newConversion() {
+        return new SegmentedVideoConversion(new MultiStepConversion.Runner() {
+            @Override
+            public ConversionJob execute(String[] cmd, ExecuteOptions options, FFmpegExecuteResponseHandler handler) {
+                if (options.getCommandPreparer() != null) {
+                    cmd = options.getCommandPreparer().prepare(cmd);
+                }
+                if (cmd[cmd.length - 1].endsWith("talk.mp4")) {
+                    try {
+                        concatList = readLines(new File(workDirectory, "segments.txt"));
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+                commands.add(cmd);
+                handlers.add(handler);
+                return null;
+            }
+        }, probe, new File("/videos/talk.mov"), new File("/videos/talk.mp4"), workDirectory, 3,
+                Arrays.asList("-c:v", "libx264"), Arrays.asList("-metadata", "title=talk"), new IConvertResultCallback() {
+            @Override
+            public void onSuccess(ConversionResult result) {
+                results.add("success " + result.getFile().getPath());
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                results.add("failure");
+            }
+        }, CallbackExecutors.direct(), 0, null);
+    }
+
+    private void complete(int index, boolean success) {
+        if (success) {
+            handlers.get(index).onSuccess("");
+        } else {
+            handlers.get(index).onFailure("");
+        }
+    }
+
+    private void createSegments(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            assertTrue(new File(workDirectory, String.format("seg%03d.mkv", i)).createNewFile());
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+}
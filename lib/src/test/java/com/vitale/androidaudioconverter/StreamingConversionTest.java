@@ -0,0 +1,41 @@
+package com.vitale.androidaudioconverter;
+
+import com.vitale.androidaudioconverter.model.AudioFormat;
+import com.vitale.androidaudioconverter.model.VideoFormat;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
+public class StreamingConversionTest extends TestCase {
+
+    public void testReadsStdinAndWritesStdout() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setInput(new ByteArrayInputStream(new byte[0]))
+                .setOutput(new ByteArrayOutputStream())
+                .setFormat(AudioFormat.MP3);
+
+        assertEquals(Arrays.asList("-y", "-i", "pipe:0", "-f", "mp3", "pipe:1"), converter.buildCommand((File) null));
+    }
+
+    public void testFragmentsMp4Outputs() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/videos/clip.mov"))
+                .setOutput(new ByteArrayOutputStream())
+                .setVideoFormat(VideoFormat.MP4);
+
+        assertEquals(Arrays.asList("-f", "mp4", "-movflags", "frag_keyframe+empty_moov", "pipe:1"),
+                converter.buildCommand((File) null).subList(11, 16));
+        assertEquals("/videos/clip.mov", converter.buildCommand((File) null).get(2));
+    }
+
+    public void testKnowsWhichFormatsCanBeStreamed() throws Exception {
+        for (AudioFormat format : AudioFormat.values()) {
+            assertNotNull(format.name(), StreamingFormats.outputOptions(format.getFormat()));
+        }
+        assertNull(StreamingFormats.outputOptions(VideoFormat.AVI.getFormat()));
+    }
+}
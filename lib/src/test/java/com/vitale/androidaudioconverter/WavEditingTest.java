@@ -0,0 +1,129 @@
+package com.vitale.androidaudioconverter;
+
+import com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine;
+import com.vitale.androidaudioconverter.callback.IConvertResultCallback;
+import com.vitale.androidaudioconverter.model.AudioFormat;
+import com.vitale.androidaudioconverter.model.ConversionPath;
+import com.vitale.androidaudioconverter.model.ConversionResult;
+import com.vitale.androidaudioconverter.wav.WavHeader;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class WavEditingTest extends TestCase {
+
+    public void testTrimsAndDownmixesWithFFmpeg() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/uploads/talk.flac"))
+                .setFormat(AudioFormat.MP3)
+                .setTrim(1500, 30000)
+                .setChannels(1);
+
+        assertEquals(Arrays.asList("-y", "-ss", "1.500", "-i", "/uploads/talk.flac", "-t", "30.000", "-ac", "1",
+                "/uploads/talk.mp3"), converter.buildCommand(new File("/uploads/talk.mp3")));
+    }
+
+    public void testJoinsAndSplitsWithFFmpeg() throws Exception {
+        AndroidAudioConverter converter = AndroidAudioConverter.with(null)
+                .setFile(new File("/uploads/a.mp3"))
+                .addConcatFile(new File("/uploads/b.mp3"))
+                .setFormat(AudioFormat.MP3)
+                .setTrim(2000, -1)
+                .setSegmentDuration(60000);
+
+        assertEquals(Arrays.asList("-y", "-i", "/uploads/a.mp3", "-i", "/uploads/b.mp3",
+                "-filter_complex", "[0:a][1:a]concat=n=2:v=0:a=1[a]", "-map", "[a]", "-ss", "2.000",
+                "-f", "segment", "-segment_time", "60.000", "-reset_timestamps", "1", "/out/all-%03d.mp3"),
+                converter.buildCommand(new File("/out/all.mp3")));
+    }
+
+    public void testEditsPcmWavWithoutFFmpeg() throws Exception {
+        File directory = Files.createTempDirectory("wav-editing").toFile();
+        File first = createWav(new File(directory, "first.wav"), 8000);
+        File second = createWav(new File(directory, "second.wav"), 8000);
+        File output = new File(directory, "joined.wav");
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Object> result = new AtomicReference<>();
+        // the binary does not exist, FFmpeg must not be needed
+        AndroidAudioConverter.withEngine(new HostExecutionEngine(new File(directory, "ffmpeg").getPath(), 2))
+                .setFile(first)
+                .addConcatFile(second)
+                .setFormat(AudioFormat.WAV)
+                .setOutputFile(output)
+                .setTrim(500, -1)
+                .setChannels(1)
+                .setCallback(new IConvertResultCallback() {
+                    @Override
+                    public void onSuccess(ConversionResult conversionResult) {
+                        result.set(conversionResult);
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Exception error) {
+                        result.set(error);
+                        done.countDown();
+                    }
+                })
+                .convert();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(String.valueOf(result.get()), result.get() instanceof ConversionResult);
+        ConversionResult conversionResult = (ConversionResult) result.get();
+        assertEquals(ConversionPath.DIRECT, conversionResult.getPath());
+        assertEquals(output, conversionResult.getFile());
+        WavHeader header = WavHeader.read(output);
+        assertEquals(1, header.getChannels());
+        assertEquals(1500, header.getDurationMillis());
+    }
+
+    public void testConvertsUneditedWavWithFFmpeg() throws Exception {
+        File directory = Files.createTempDirectory("wav-editing").toFile();
+        File input = createWav(new File(directory, "voice.wav"), 8000);
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Object> result = new AtomicReference<>();
+        // the binary does not exist, the conversion fails if it is not copied in Java
+        AndroidAudioConverter.withEngine(new HostExecutionEngine(new File(directory, "ffmpeg").getPath(), 2))
+                .setFile(input)
+                .setFormat(AudioFormat.WAV)
+                .setOutputFile(new File(directory, "converted.wav"))
+                .setCallback(new IConvertResultCallback() {
+                    @Override
+                    public void onSuccess(ConversionResult conversionResult) {
+                        result.set(conversionResult);
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Exception error) {
+                        result.set(error);
+                        done.countDown();
+                    }
+                })
+                .convert();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(String.valueOf(result.get()), result.get() instanceof Exception);
+    }
+
+    private static File createWav(File file, int frames) throws Exception {
+        // 8 kHz stereo 16 bits, silent
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            WavHeader.write(os.getChannel(), WavHeader.FORMAT_PCM, 2, 8000, 16, frames * 4);
+            os.write(new byte[frames * 4]);
+        } finally {
+            os.close();
+        }
+        return file;
+    }
+}
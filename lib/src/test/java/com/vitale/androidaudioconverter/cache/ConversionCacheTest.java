@@ -0,0 +1,147 @@
+package com.vitale.androidaudioconverter.cache;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class ConversionCacheTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("conversion-cache", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    public void testKeyDependsOnContentAndOptionsOnly() throws Exception {
+        ConversionCache cache = new ConversionCache(new File(directory, "entries"), ConversionCache.DEFAULT_MAX_SIZE);
+        byte[] content = randomBytes(300 * 1024, 1);
+        File a = write("clip-a.wav", content);
+        File b = write("clip-b.wav", content);
+        File out = new File(directory, "clip-a.mp3");
+
+        String key = cache.key(a, args(a, out, "128k"), out);
+        assertEquals(key, cache.key(b, args(b, out, "128k"), out));
+        assertFalse(key.equals(cache.key(a, args(a, out, "192k"), out)));
+        assertFalse(key.equals(cache.key(a, args(a, out, "128k"), new File(directory, "clip-a.flac"))));
+
+        content[0] ^= 1;
+        File c = write("clip-c.wav", content);
+        assertFalse(key.equals(cache.key(c, args(c, out, "128k"), out)));
+    }
+
+    public void testEditedInputOfTheSameSizeGetsANewKey() throws Exception {
+        ConversionCache cache = new ConversionCache(new File(directory, "entries"), ConversionCache.DEFAULT_MAX_SIZE);
+        byte[] content = randomBytes(2 * 1024 * 1024, 6);
+        File input = write("memo.wav", content);
+        File out = new File(directory, "memo.mp3");
+        String key = cache.key(input, args(input, out, "128k"), out);
+        assertEquals(key, cache.key(input, args(input, out, "128k"), out));
+
+        // one byte in the middle, the size does not change
+        content[content.length / 2 + 12345] ^= 1;
+        long modified = input.lastModified();
+        write("memo.wav", content);
+        assertTrue(input.setLastModified(modified + 2000));
+
+        assertFalse(key.equals(cache.key(input, args(input, out, "128k"), out)));
+    }
+
+    public void testHitRestoresTheStoredOutput() throws Exception {
+        ConversionCache cache = new ConversionCache(new File(directory, "entries"), ConversionCache.DEFAULT_MAX_SIZE);
+        File output = write("out.mp3", randomBytes(1000, 2));
+        File restored = new File(directory, "restored.mp3");
+
+        assertFalse(cache.restore("k.mp3", restored));
+        cache.store("k.mp3", output);
+        waitForWrites(cache, 1000);
+        assertTrue(cache.restore("k.mp3", restored));
+
+        assertTrue(Arrays.equals(read(output), read(restored)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    public void testEvictsLeastRecentlyUsedEntries() throws Exception {
+        File entries = new File(directory, "entries");
+        ConversionCache cache = new ConversionCache(entries, 2500);
+        File restored = new File(directory, "restored.mp3");
+        cache.store("a.mp3", write("a.mp3", randomBytes(1000, 3)));
+        cache.store("b.mp3", write("b.mp3", randomBytes(1000, 4)));
+        waitForWrites(cache, 2000);
+        // a becomes the most recently used entry
+        assertTrue(cache.restore("a.mp3", restored));
+        cache.store("c.mp3", write("c.mp3", randomBytes(1000, 5)));
+        waitForWrites(cache, 2000);
+
+        assertTrue(cache.restore("a.mp3", restored));
+        assertFalse(cache.restore("b.mp3", restored));
+        assertTrue(cache.restore("c.mp3", restored));
+
+        // entries survive a restart
+        ConversionCache reopened = new ConversionCache(entries, 2500);
+        assertEquals(2000, reopened.getSize());
+        assertTrue(reopened.restore("c.mp3", restored));
+    }
+
+    private static List<String> args(File input, File output, String bitrate) {
+        return Arrays.asList("-y", "-i", input.getPath(), "-b:a", bitrate, output.getPath());
+    }
+
+    private static void waitForWrites(ConversionCache cache, long size) throws Exception {
+        // stores are synchronous
+        assertEquals(size, cache.getSize());
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(directory, name);
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content);
+        } finally {
+            os.close();
+        }
+        return file;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] content = new byte[(int) file.length()];
+        FileInputStream is = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < content.length) {
+                offset += is.read(content, offset, content.length - offset);
+            }
+        } finally {
+            is.close();
+        }
+        return content;
+    }
+}
@@ -0,0 +1,44 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import junit.framework.TestCase;
+
+public class ContainerSupportTest extends TestCase {
+
+    private static final String AAC_OUTPUT = "Input #0, aac, from 'song.aac':\n"
+            + "  Duration: 00:03:00.00, bitrate: 128 kb/s\n"
+            + "    Stream #0:0: Audio: aac (LC), 44100 Hz, stereo, fltp, 128 kb/s\n";
+
+    private static final String MOV_OUTPUT = "Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'clip.mov':\n"
+            + "  Duration: 00:00:10.00, start: 0.000000, bitrate: 1205 kb/s\n"
+            + "    Stream #0:0(und): Video: h264 (High) (avc1 / 0x31637661), yuv420p, 1280x720, 1072 kb/s, 30 fps, 30 tbr, 600 tbn (default)\n"
+            + "    Stream #0:1(und): Audio: aac (LC) (mp4a / 0x6134706D), 44100 Hz, stereo, fltp, 128 kb/s (default)\n";
+
+    private static final String MP3_WITH_COVER_OUTPUT = "Input #0, mp3, from 'song.mp3':\n"
+            + "  Duration: 00:03:00.00, start: 0.025057, bitrate: 320 kb/s\n"
+            + "    Stream #0:0: Audio: mp3, 44100 Hz, stereo, fltp, 320 kb/s\n"
+            + "    Stream #0:1: Video: mjpeg (Baseline), yuvj420p(pc, bt470bg/unknown/unknown), 500x500, 90k tbr, 90k tbn (attached pic)\n";
+
+    public void testCopiesCompatibleAudio() throws Exception {
+        MediaInfo aac = MediaInfoParser.parse(AAC_OUTPUT);
+        assertTrue(ContainerSupport.canRemux(aac, "m4a", false));
+        assertTrue(ContainerSupport.canRemux(aac, "mp4", true));
+        assertFalse(ContainerSupport.canRemux(aac, "mp3", false));
+        assertFalse(ContainerSupport.canRemux(aac, "wav", false));
+    }
+
+    public void testCopiesCompatibleVideo() throws Exception {
+        MediaInfo mov = MediaInfoParser.parse(MOV_OUTPUT);
+        assertTrue(ContainerSupport.canRemux(mov, "mp4", true));
+        assertFalse(ContainerSupport.canRemux(mov, "avi", true));
+        // an audio output cannot keep the video stream
+        assertFalse(ContainerSupport.canRemux(mov, "m4a", false));
+    }
+
+    public void testRefusesUnknownInputsAndContainers() throws Exception {
+        assertFalse(ContainerSupport.canRemux(MediaInfoParser.parse(MP3_WITH_COVER_OUTPUT), "mp3", false));
+        assertFalse(ContainerSupport.canRemux(MediaInfoParser.parse(AAC_OUTPUT), "ogg", false));
+        assertFalse(ContainerSupport.canRemux(null, "m4a", false));
+    }
+}
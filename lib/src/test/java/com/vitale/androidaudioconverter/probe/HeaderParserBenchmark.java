@@ -0,0 +1,107 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine;
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to describe a file with {@link HeaderParser} against the FFmpeg process it replaces, for each supported
+ * format. The files are written by the local FFmpeg binary, given with -Dffmpeg.path or found in the PATH.
+ * Run its main method, or the JMH runner with HeaderParserBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HeaderParserBenchmark {
+
+    @Param({"wav", "mp3", "flac", "mp4"})
+    public String format;
+
+    private File directory;
+    private File file;
+    private HostExecutionEngine engine;
+
+    @Setup
+    public void setUp() throws Exception {
+        String ffmpegPath = System.getProperty("ffmpeg.path", "ffmpeg");
+        engine = new HostExecutionEngine(ffmpegPath, 1);
+        directory = Files.createTempDirectory("header-benchmark").toFile();
+        file = new File(directory, "sample." + format);
+        List<String> cmd = new ArrayList<>(Arrays.asList(ffmpegPath, "-y", "-f", "lavfi", "-i", "sine=frequency=440:duration=60"));
+        if ("mp4".equals(format)) {
+            cmd.addAll(Arrays.asList("-f", "lavfi", "-i", "testsrc=duration=60:size=1280x720:rate=30", "-shortest"));
+        }
+        cmd.add(file.getPath());
+        run(cmd);
+        if (HeaderParser.parse(file) == null) {
+            throw new IllegalStateException("The header of " + file + " is not parsed, nothing to compare");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public MediaInfo headerParser() {
+        return HeaderParser.parse(file);
+    }
+
+    @Benchmark
+    public MediaInfo processProbe() {
+        return MediaInfoParser.parse(engine.probe(file.getPath()));
+    }
+
+    private static void run(List<String> cmd) throws IOException, InterruptedException {
+        Process process;
+        try {
+            process = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            throw new IllegalStateException("No FFmpeg binary at " + cmd.get(0) + ", give it with -Dffmpeg.path", e);
+        }
+        InputStream output = process.getInputStream();
+        byte[] buffer = new byte[4096];
+        while (output.read(buffer) != -1) {
+            // only the exit value matters
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Unable to write " + cmd.get(cmd.size() - 1));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String ffmpegPath = System.getProperty("ffmpeg.path", "ffmpeg");
+        new Runner(new OptionsBuilder()
+                .include(HeaderParserBenchmark.class.getSimpleName())
+                .jvmArgsAppend("-Dffmpeg.path=" + ffmpegPath)
+                .build()).run();
+    }
+}
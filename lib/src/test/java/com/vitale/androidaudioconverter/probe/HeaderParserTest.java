@@ -0,0 +1,203 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HeaderParserTest extends TestCase {
+
+    public void testParsesWav() throws Exception {
+        // 5 s of 16 kHz mono 16 bits, after a LIST chunk of odd size
+        ByteBuffer header = ByteBuffer.allocate(12 + 8 + 16 + 8 + 4 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(0).put("WAVE".getBytes());
+        header.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(16000).putInt(32000).putShort((short) 2).putShort((short) 16);
+        header.put("LIST".getBytes()).putInt(3).put(new byte[] { 1, 2, 3, 0 });
+        header.put("data".getBytes()).putInt(160000);
+        MediaInfo info = HeaderParser.parse(createFile("voice", header.array(), 160000));
+
+        assertEquals("wav", info.getContainer());
+        assertEquals(5000, info.getDurationMillis());
+        assertEquals(256, info.getBitrateKbps());
+        assertNull(info.getVideoStream());
+        assertEquals("pcm_s16le", info.getAudioStream().getCodec());
+        assertEquals(16000, info.getAudioStream().getSampleRate());
+        assertEquals(1, info.getAudioStream().getChannels());
+    }
+
+    public void testParsesFlac() throws Exception {
+        ByteBuffer header = ByteBuffer.allocate(4 + 4 + 34);
+        header.put("fLaC".getBytes()).put((byte) 0x80).put(new byte[] { 0, 0, 34 });
+        header.put(new byte[10]);
+        // 44100 Hz, stereo, 16 bits, 10 s
+        long packed = (44100L << 44) | (1L << 41) | (15L << 36) | 441000L;
+        header.putLong(packed);
+        MediaInfo info = HeaderParser.parse(createFile("song", header.array(), 1000));
+
+        assertEquals("flac", info.getContainer());
+        assertEquals(10000, info.getDurationMillis());
+        assertEquals("flac", info.getAudioStream().getCodec());
+        assertEquals(44100, info.getAudioStream().getSampleRate());
+        assertEquals(2, info.getAudioStream().getChannels());
+    }
+
+    public void testParsesConstantBitrateMp3AfterId3Tag() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { 'I', 'D', '3', 4, 0, 0, 0, 0, 1, 0 });
+        out.write(new byte[128]);
+        // MPEG 1 layer 3, 128 kb/s, 44100 Hz, stereo: 417 bytes per frame, 0.026 s each
+        for (int i = 0; i < 383; i++) {
+            out.write(frame(417, 0xFF, 0xFB, 0x90, 0x00));
+        }
+        MediaInfo info = HeaderParser.parse(createFile("cbr", out.toByteArray(), 0));
+
+        assertEquals("mp3", info.getContainer());
+        assertEquals(383 * 417 * 8 / 128, info.getDurationMillis());
+        assertEquals(128, info.getBitrateKbps());
+        assertEquals("mp3", info.getAudioStream().getCodec());
+        assertEquals(44100, info.getAudioStream().getSampleRate());
+        assertEquals(2, info.getAudioStream().getChannels());
+    }
+
+    public void testParsesVariableBitrateMp3FromXingHeader() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // mono: the Xing header follows 17 bytes of side information
+        byte[] first = frame(417, 0xFF, 0xFB, 0x90, 0xC0);
+        ByteBuffer.wrap(first, 4 + 17, 12).put("Xing".getBytes()).putInt(1).putInt(1000);
+        out.write(first);
+        for (int i = 0; i < 10; i++) {
+            out.write(frame(417, 0xFF, 0xFB, 0x90, 0xC0));
+        }
+        MediaInfo info = HeaderParser.parse(createFile("vbr", out.toByteArray(), 0));
+
+        assertEquals(1000L * 1152 * 1000 / 44100, info.getDurationMillis());
+        assertEquals(1, info.getAudioStream().getChannels());
+    }
+
+    public void testParsesMp4() throws Exception {
+        byte[] mvhd = box("mvhd", ByteBuffer.allocate(100).putInt(0).putInt(0).putInt(0).putInt(1000).putInt(70500).array());
+        byte[] audio = track("soun", 44100, 44100L * 70, audioEntry());
+        byte[] video = track("vide", 15360, 15360L * 70, videoEntry(), 2100);
+        byte[] moov = box("moov", mvhd, audio, video);
+        byte[] ftyp = box("ftyp", "isom".getBytes(), new byte[4]);
+        byte[] mdat = box("mdat", new byte[1000]);
+        MediaInfo info = HeaderParser.parse(createFile("clip", concat(ftyp, mdat, moov), 0));
+
+        assertEquals("mov,mp4,m4a,3gp,3g2,mj2", info.getContainer());
+        assertEquals(70500, info.getDurationMillis());
+        assertEquals(2, info.getStreams().size());
+
+        MediaInfo.Stream audioStream = info.getAudioStream();
+        assertEquals("aac", audioStream.getCodec());
+        assertEquals(44100, audioStream.getSampleRate());
+        assertEquals(2, audioStream.getChannels());
+
+        MediaInfo.Stream videoStream = info.getVideoStream();
+        assertEquals("h264", videoStream.getCodec());
+        assertEquals(1280, videoStream.getWidth());
+        assertEquals(720, videoStream.getHeight());
+        assertEquals(30.0, videoStream.getFps(), 0.001);
+    }
+
+    public void testReturnsNullForUnknownOrTruncatedFiles() throws Exception {
+        assertNull(HeaderParser.parse(createFile("zeros", new byte[0], 4096)));
+        assertNull(HeaderParser.parse(createFile("riff", "RIFF\0\0\0\0WAVEfmt ".getBytes(), 0)));
+        assertNull(HeaderParser.parse(new File("missing.wav")));
+    }
+
+    public void testProbeDoesNotForkFFmpegForParsedHeaders() throws Exception {
+        final AtomicInteger forks = new AtomicInteger();
+        MediaProbe probe = new MediaProbe(new MediaProbe.Prober() {
+            @Override
+            public String probe(String path) {
+                forks.incrementAndGet();
+                return null;
+            }
+        }, 2);
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(0).put("WAVE".getBytes());
+        header.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 2)
+                .putInt(48000).putInt(192000).putShort((short) 4).putShort((short) 16);
+        header.put("data".getBytes()).putInt(192000);
+        File file = createFile("stereo", header.array(), 192000);
+
+        assertEquals(1000, probe.probe(file).getDurationMillis());
+        assertEquals(0, forks.get());
+        assertEquals(1, probe.getHeaderParseCount());
+
+        probe.setHeaderParsing(false);
+        probe.clear();
+        try {
+            probe.probe(file);
+            fail();
+        } catch (java.io.IOException e) {
+            assertEquals(1, forks.get());
+        }
+    }
+
+    private static byte[] frame(int length, int... header) {
+        byte[] frame = new byte[length];
+        for (int i = 0; i < header.length; i++) {
+            frame[i] = (byte) header[i];
+        }
+        return frame;
+    }
+
+    private static byte[] audioEntry() {
+        ByteBuffer entry = ByteBuffer.allocate(36);
+        entry.putInt(36).put("mp4a".getBytes()).put(new byte[6]).putShort((short) 1);
+        entry.put(new byte[8]).putShort((short) 2).putShort((short) 16).putInt(0).putInt(44100 << 16);
+        return entry.array();
+    }
+
+    private static byte[] videoEntry() {
+        ByteBuffer entry = ByteBuffer.allocate(86);
+        entry.putInt(86).put("avc1".getBytes()).put(new byte[6]).putShort((short) 1);
+        entry.put(new byte[16]).putShort((short) 1280).putShort((short) 720);
+        return entry.array();
+    }
+
+    private static byte[] track(String handler, int timeScale, long duration, byte[] entry, int... frames) {
+        byte[] mdhd = box("mdhd", ByteBuffer.allocate(24).putInt(0).putInt(0).putInt(0).putInt(timeScale)
+                .putInt((int) duration).array());
+        byte[] hdlr = box("hdlr", ByteBuffer.allocate(24).putInt(0).putInt(0).put(handler.getBytes()).array());
+        byte[] stsd = box("stsd", ByteBuffer.allocate(8).putInt(0).putInt(1).array(), entry);
+        byte[] stbl = frames.length > 0
+                ? box("stbl", stsd, box("stsz", ByteBuffer.allocate(12).putInt(0).putInt(0).putInt(frames[0]).array()))
+                : box("stbl", stsd);
+        return box("trak", box("mdia", mdhd, hdlr, box("minf", stbl)));
+    }
+
+    private static byte[] box(String type, byte[]... contents) {
+        byte[] content = concat(contents);
+        return ByteBuffer.allocate(8 + content.length).putInt(8 + content.length).put(type.getBytes()).put(content).array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static File createFile(String name, byte[] header, int padding) throws Exception {
+        File file = File.createTempFile(name, ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(header);
+            out.write(new byte[padding]);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,190 @@
+package com.vitale.androidaudioconverter.probe;
+
+import com.github.hiteshsondhi88.libffmpeg.HostExecutionEngine;
+import com.vitale.androidaudioconverter.model.MediaInfo;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MediaProbeTest extends TestCase {
+
+    private static final String MP4_OUTPUT = "Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'in.mp4':\n"
+            + "  Metadata:\n"
+            + "    major_brand     : isom\n"
+            + "  Duration: 00:01:10.50, start: 0.000000, bitrate: 1205 kb/s\n"
+            + "    Stream #0:0(und): Video: h264 (High) (avc1 / 0x31637661), yuv420p(tv, bt709), 1280x720 [SAR 1:1 DAR 16:9], 1072 kb/s, 29.97 fps, 30 tbr, 15360 tbn, 60 tbc (default)\n"
+            + "    Stream #0:1(und): Audio: aac (LC) (mp4a / 0x6134706D), 44100 Hz, stereo, fltp, 128 kb/s (default)\n"
+            + "At least one output file must be specified\n";
+
+    private static final String WAV_OUTPUT = "Guessed Channel Layout for Input Stream #0.0 : mono\n"
+            + "Input #0, wav, from 'voice.wav':\n"
+            + "  Duration: 00:00:05.00, bitrate: 256 kb/s\n"
+            + "    Stream #0:0: Audio: pcm_s16le ([1][0][0][0] / 0x0001), 16000 Hz, 1 channels, s16, 256 kb/s\n";
+
+    public void testParsesVideoInput() throws Exception {
+        MediaInfo info = MediaInfoParser.parse(MP4_OUTPUT);
+
+        assertEquals("mov,mp4,m4a,3gp,3g2,mj2", info.getContainer());
+        assertEquals(70500, info.getDurationMillis());
+        assertEquals(1205, info.getBitrateKbps());
+        assertEquals(2, info.getStreams().size());
+
+        MediaInfo.Stream video = info.getVideoStream();
+        assertEquals("h264", video.getCodec());
+        assertEquals(1280, video.getWidth());
+        assertEquals(720, video.getHeight());
+        assertEquals(29.97, video.getFps(), 0.001);
+        assertEquals(1072, video.getBitrateKbps());
+
+        MediaInfo.Stream audio = info.getAudioStream();
+        assertEquals("aac", audio.getCodec());
+        assertEquals(44100, audio.getSampleRate());
+        assertEquals(2, audio.getChannels());
+        assertEquals(128, audio.getBitrateKbps());
+    }
+
+    public void testParsesAudioInput() throws Exception {
+        MediaInfo info = MediaInfoParser.parse(WAV_OUTPUT);
+
+        assertEquals("wav", info.getContainer());
+        assertEquals(5000, info.getDurationMillis());
+        assertNull(info.getVideoStream());
+        assertEquals("pcm_s16le", info.getAudioStream().getCodec());
+        assertEquals(16000, info.getAudioStream().getSampleRate());
+        assertEquals(1, info.getAudioStream().getChannels());
+    }
+
+    public void testRejectsOutputWithoutInput() throws Exception {
+        assertNull(MediaInfoParser.parse("in.xyz: Invalid data found when processing input\n"));
+        assertNull(MediaInfoParser.parse(null));
+    }
+
+    public void testCachesByPathSizeAndModificationTime() throws Exception {
+        final AtomicInteger forks = new AtomicInteger();
+        MediaProbe probe = new MediaProbe(new MediaProbe.Prober() {
+            @Override
+            public String probe(String path) {
+                forks.incrementAndGet();
+                return WAV_OUTPUT;
+            }
+        }, 2);
+        File file = createFile("voice", 10);
+
+        assertNull(probe.getCached(file));
+        MediaInfo first = probe.probe(file);
+        assertSame(first, probe.probe(file));
+        assertSame(first, probe.getCached(file));
+        assertEquals(1, forks.get());
+        assertEquals(1, probe.getHitCount());
+
+        // a modified file is probed again
+        write(file, 20);
+        probe.probe(file);
+        assertEquals(2, forks.get());
+    }
+
+    public void testEvictsLeastRecentlyUsedAndPersists() throws Exception {
+        MediaProbe.Prober prober = new MediaProbe.Prober() {
+            @Override
+            public String probe(String path) {
+                return WAV_OUTPUT;
+            }
+        };
+        File cacheFile = File.createTempFile("media-probe", ".cache");
+        cacheFile.delete();
+        cacheFile.deleteOnExit();
+        MediaProbe probe = new MediaProbe(prober, 2);
+        probe.setCacheFile(cacheFile);
+        File a = createFile("clip-a", 1);
+        File b = createFile("clip-b", 1);
+        File c = createFile("clip-c", 1);
+
+        probe.probe(a);
+        probe.probe(b);
+        probe.probe(a);
+        probe.probe(c);
+
+        assertNotNull(probe.getCached(a));
+        assertNull(probe.getCached(b));
+        assertNotNull(probe.getCached(c));
+
+        probe.flush();
+        MediaProbe reloaded = new MediaProbe(prober, 2);
+        reloaded.setCacheFile(cacheFile);
+        assertEquals(5000, reloaded.getCached(a).getDurationMillis());
+        assertNotNull(reloaded.getCached(c));
+    }
+
+    public void testWritesTheCacheFileInBatches() throws Exception {
+        MediaProbe.Prober prober = new MediaProbe.Prober() {
+            @Override
+            public String probe(String path) {
+                return WAV_OUTPUT;
+            }
+        };
+        File cacheFile = File.createTempFile("media-probe", ".cache");
+        cacheFile.delete();
+        cacheFile.deleteOnExit();
+        MediaProbe probe = new MediaProbe(prober, 8);
+        probe.saveDelay = 200;
+        probe.setCacheFile(cacheFile);
+
+        File[] clips = new File[5];
+        for (int i = 0; i < clips.length; i++) {
+            clips[i] = createFile("clip-" + i, 1);
+            probe.probe(clips[i]);
+        }
+        assertEquals(0, probe.getSaveCount());
+
+        long deadline = System.currentTimeMillis() + 10 * 1000;
+        while (probe.getSaveCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, probe.getSaveCount());
+        // nothing changed since
+        probe.flush();
+        assertEquals(1, probe.getSaveCount());
+
+        MediaProbe reloaded = new MediaProbe(prober, 8);
+        reloaded.setCacheFile(cacheFile);
+        for (File clip : clips) {
+            assertNotNull(reloaded.getCached(clip));
+        }
+    }
+
+    public void testEngineProbesAreDroppedWithTheirEngine() throws Exception {
+        HostExecutionEngine engine = new HostExecutionEngine("/nonexistent/ffmpeg", 1);
+        MediaProbe probe = MediaProbe.getInstance(engine);
+        assertSame(probe, MediaProbe.getInstance(engine));
+        WeakReference<HostExecutionEngine> engineReference = new WeakReference<>(engine);
+        WeakReference<MediaProbe> probeReference = new WeakReference<>(probe);
+        engine = null;
+        probe = null;
+
+        for (int i = 0; i < 50 && (engineReference.get() != null || probeReference.get() != null); i++) {
+            System.gc();
+            // expunges the stale entries of the map
+            MediaProbe.getInstance(new HostExecutionEngine("/nonexistent/ffmpeg", 1));
+            Thread.sleep(20);
+        }
+        assertNull(engineReference.get());
+        assertNull(probeReference.get());
+    }
+
+    private static File createFile(String name, int size) throws Exception {
+        File file = File.createTempFile(name, ".wav");
+        file.deleteOnExit();
+        write(file, size);
+        return file;
+    }
+
+    private static void write(File file, int size) throws Exception {
+        FileOutputStream os = new FileOutputStream(file);
+        os.write(new byte[size]);
+        os.close();
+    }
+}
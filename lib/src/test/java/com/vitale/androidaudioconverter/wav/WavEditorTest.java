@@ -0,0 +1,144 @@
+package com.vitale.androidaudioconverter.wav;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+public class WavEditorTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("wav-editor").toFile();
+    }
+
+    public void testTrimsAcrossJoinedInputs() throws Exception {
+        // 1 kHz mono 16 bits: samples count up from 0 in the first file and from 1000 in the second
+        File first = createWav("first", 1, 1000, 0);
+        File second = createWav("second", 1, 1000, 1000);
+        File output = new File(directory, "out.wav");
+
+        List<File> files = new WavEditor(Arrays.asList(first, second)).setTrim(900, 200).write(output);
+
+        assertEquals(Arrays.asList(output), files);
+        WavHeader header = WavHeader.read(output);
+        assertEquals(WavHeader.CANONICAL_LENGTH, header.getDataOffset());
+        assertEquals(200, header.getFrameCount());
+        short[] samples = samples(output);
+        assertEquals(900, samples[0]);
+        assertEquals(1099, samples[199]);
+    }
+
+    public void testSplitsInConsecutiveFiles() throws Exception {
+        File input = createWav("long", 1, 2500, 0);
+        File output = new File(directory, "part.wav");
+
+        List<File> files = new WavEditor(input).setSegmentDuration(1000).write(output);
+
+        assertEquals(Arrays.asList(new File(directory, "part-000.wav"), new File(directory, "part-001.wav"),
+                new File(directory, "part-002.wav")), files);
+        assertEquals(1000, WavHeader.read(files.get(1)).getFrameCount());
+        assertEquals(1000, samples(files.get(1))[0]);
+        assertEquals(500, WavHeader.read(files.get(2)).getFrameCount());
+    }
+
+    public void testDownmixesStereoToMono() throws Exception {
+        // left counts up, right is the opposite plus 100
+        File input = createWav("stereo", 2, 300, 0);
+        File output = new File(directory, "mono.wav");
+
+        new WavEditor(input).setChannels(1).write(output);
+
+        WavHeader header = WavHeader.read(output);
+        assertEquals(1, header.getChannels());
+        assertEquals(2, header.getBlockAlign());
+        assertEquals(300, header.getFrameCount());
+        for (short sample : samples(output)) {
+            assertEquals(50, sample);
+        }
+    }
+
+    public void testRejectsWhatNeedsFFmpeg() throws Exception {
+        File mono = createWav("mono", 1, 10, 0);
+        File stereo = createWav("stereo", 2, 10, 0);
+        assertFalse(new WavEditor(Arrays.asList(mono, stereo)).isSupported());
+        assertFalse(new WavEditor(stereo).setChannels(6).isSupported());
+        assertTrue(new WavEditor(stereo).setChannels(2).isSupported());
+
+        File text = new File(directory, "notes.wav");
+        Files.write(text.toPath(), "not a wav file".getBytes("UTF-8"));
+        assertFalse(new WavEditor(text).isSupported());
+        try {
+            new WavEditor(mono).write(mono);
+            fail();
+        } catch (java.io.IOException e) {
+            assertEquals(10, WavHeader.read(mono).getFrameCount());
+        }
+    }
+
+    public void testDownmixesSegmentsLongerThanAChunk() throws Exception {
+        // 100 s of 1 kHz stereo, 400 KB: both channels hold the frame index modulo 1000
+        File input = new File(directory, "long-stereo.wav");
+        FileOutputStream os = new FileOutputStream(input);
+        try {
+            WavHeader.write(os.getChannel(), WavHeader.FORMAT_PCM, 2, 1000, 16, 100000 * 4);
+            ByteBuffer data = ByteBuffer.allocate(100000 * 4).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < 100000; i++) {
+                data.putShort((short) (i % 1000)).putShort((short) (i % 1000));
+            }
+            os.write(data.array());
+        } finally {
+            os.close();
+        }
+
+        List<File> files = new WavEditor(input).setTrim(500, -1).setChannels(1).setSegmentDuration(70000)
+                .write(new File(directory, "mono.wav"));
+
+        assertEquals(2, files.size());
+        short[] first = samples(files.get(0));
+        assertEquals(70000, first.length);
+        short[] second = samples(files.get(1));
+        assertEquals(29500, second.length);
+        for (int i = 0; i < first.length; i++) {
+            assertEquals((500 + i) % 1000, first[i]);
+        }
+        for (int i = 0; i < second.length; i++) {
+            assertEquals((70500 + i) % 1000, second[i]);
+        }
+    }
+
+    private File createWav(String name, int channels, int frames, int firstSample) throws Exception {
+        File file = new File(directory, name + ".wav");
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            WavHeader.write(os.getChannel(), WavHeader.FORMAT_PCM, channels, 1000, 16, frames * channels * 2);
+            ByteBuffer data = ByteBuffer.allocate(frames * channels * 2).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < frames; i++) {
+                data.putShort((short) (firstSample + i));
+                if (channels == 2) {
+                    data.putShort((short) (100 - firstSample - i));
+                }
+            }
+            os.write(data.array());
+        } finally {
+            os.close();
+        }
+        return file;
+    }
+
+    private static short[] samples(File file) throws Exception {
+        WavHeader header = WavHeader.read(file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        short[] samples = new short[(int) (header.getDataLength() / 2)];
+        ByteBuffer.wrap(bytes, (int) header.getDataOffset(), (int) header.getDataLength())
+                .order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+        return samples;
+    }
+}